@@ -0,0 +1,184 @@
+package model;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Computes the per-pixel arithmetic of the simplest operations with the incubating Java Vector
+ *   API. Sums are taken in double lanes, in the same order and without fused multiply-adds, and
+ *   rounded to the nearest integer with halves rounded up, as {@link Math#round(double)} does, so
+ *   every color is exactly the one the scalar code computes. Pixels left over at the end of a
+ *   run are computed by the scalar code itself.
+ *
+ * <p>This class is compiled and run with {@code --add-modules jdk.incubator.vector}, and is only
+ *   ever loaded by {@link VectorSupport} once it has found that module.
+ */
+final class VectorPixelKernels extends PixelKernels {
+
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  //as many int lanes as there are double lanes, so the two convert lane for lane
+  private static final VectorSpecies<Integer> INTS =
+          IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(DOUBLES.length() * 32));
+  //the narrowest byte vector, holding a whole number of runs of double lanes
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+  private static final double TWO_POW_52 = 0x1p52;
+
+  @Override
+  int lanes() {
+    return DOUBLES.length();
+  }
+
+  @Override
+  void brighten(int[] src, int[] dest, int from, int to, int delta) {
+    int i = from;
+    for (int bound = from + INTS.loopBound(to - from); i < bound;
+         i += INTS.length()) {
+      IntVector colors = IntVector.fromArray(INTS, src, i);
+      IntVector r = clamp(colors.lanewise(VectorOperators.LSHR, 16).and(0xFF).add(delta));
+      IntVector g = clamp(colors.lanewise(VectorOperators.LSHR, 8).and(0xFF).add(delta));
+      IntVector b = clamp(colors.and(0xFF).add(delta));
+      pack(r, g, b).intoArray(dest, i);
+    }
+    for (; i < to; i++) {
+      dest[i] = PackedRGB.brighten(src[i], delta);
+    }
+  }
+
+  @Override
+  void transform(int[] src, int[] dest, int from, int to, double[][] matrix) {
+    int bound = from + INTS.loopBound(to - from);
+    for (int channel = 0; channel < 3; channel++) {
+      transformChannel(src, dest, from, bound, matrix[channel], 16 - 8 * channel);
+    }
+    for (int i = bound; i < to; i++) {
+      dest[i] = PackedRGB.transform(src[i], matrix);
+    }
+  }
+
+  //computes one channel of a run of transformed colors, a whole number of vectors long, and
+  //writes it into dest at the given shift, after any channels above it. A pass per channel keeps
+  //each loop small enough for the compiler to keep every vector in registers.
+  private static void transformChannel(int[] src, int[] dest, int from, int to, double[] factors,
+                                       int shift) {
+    for (int i = from; i < to; i += INTS.length()) {
+      IntVector colors = IntVector.fromArray(INTS, src, i);
+      IntVector value = weighted(channel(colors, 16), channel(colors, 8), channel(colors, 0),
+              factors);
+      put(value, shift, dest, i);
+    }
+  }
+
+  @Override
+  void transformPlane(byte[] red, byte[] green, byte[] blue, byte[] dest, int from, int to,
+                      double[] factors) {
+    int parts = BYTES.length() / DOUBLES.length();
+    int[] values = new int[BYTES.length()];
+    int i = from;
+    for (int bound = from + BYTES.loopBound(to - from); i < bound; i += BYTES.length()) {
+      ByteVector r = ByteVector.fromArray(BYTES, red, i);
+      ByteVector g = ByteVector.fromArray(BYTES, green, i);
+      ByteVector b = ByteVector.fromArray(BYTES, blue, i);
+      for (int part = 0; part < parts; part++) {
+        weighted(unsigned(r, part), unsigned(g, part), unsigned(b, part), factors)
+                .intoArray(values, part * DOUBLES.length());
+      }
+      for (int j = 0; j < values.length; j++) {
+        dest[i + j] = (byte) values[j];
+      }
+    }
+    for (; i < to; i++) {
+      int value = (int) Math.round((red[i] & 0xFF) * factors[0]
+              + (green[i] & 0xFF) * factors[1] + (blue[i] & 0xFF) * factors[2]);
+      dest[i] = (byte) PackedRGB.clamp(value);
+    }
+  }
+
+  @Override
+  void convolveRow(int[] src, int width, double[][] kernel, int top, int left, int count,
+                   int[] dest, int destIndex) {
+    int bound = INTS.loopBound(count);
+    for (int shift = 16; shift >= 0; shift -= 8) {
+      convolveChannel(src, width, kernel, top, left, bound, dest, destIndex, shift);
+    }
+    for (int i = bound; i < count; i++) {
+      dest[destIndex + i] = Convolution.interiorColor(src, width, kernel, top, left + i);
+    }
+  }
+
+  //convolves one channel of a run of pixels, a whole number of vectors long, as transformChannel
+  //transforms one. The sums are accumulated a kernel factor at a time across the whole run, in
+  //the same order as the scalar code adds them for each pixel.
+  private static void convolveChannel(int[] src, int width, double[][] kernel, int top, int left,
+                                      int count, int[] dest, int destIndex, int shift) {
+    double[] sums = new double[count];
+    for (int r = 0; r < kernel.length; r++) {
+      double[] kernelRow = kernel[r];
+      for (int c = 0; c < kernelRow.length; c++) {
+        double kernelFactor = kernelRow[c];
+        int start = (top + r) * width + left + c;
+        for (int i = 0; i < count; i += DOUBLES.length()) {
+          IntVector colors = IntVector.fromArray(INTS, src, start + i);
+          DoubleVector.fromArray(DOUBLES, sums, i)
+                  .add(channel(colors, shift).mul(kernelFactor)).intoArray(sums, i);
+        }
+      }
+    }
+    for (int i = 0; i < count; i += DOUBLES.length()) {
+      put(round(DoubleVector.fromArray(DOUBLES, sums, i)), shift, dest, destIndex + i);
+    }
+  }
+
+  //writes channel values into packed colors at a shift, as the highest channel written so far
+  private static void put(IntVector values, int shift, int[] dest, int index) {
+    IntVector shifted = values.lanewise(VectorOperators.LSHL, shift);
+    if (shift != 16) {
+      shifted = shifted.or(IntVector.fromArray(INTS, dest, index));
+    }
+    shifted.intoArray(dest, index);
+  }
+
+  //the values of one channel of packed colors, as doubles
+  private static DoubleVector channel(IntVector colors, int shift) {
+    return (DoubleVector) colors.lanewise(VectorOperators.LSHR, shift).and(0xFF)
+            .convertShape(VectorOperators.I2D, DOUBLES, 0);
+  }
+
+  //one part of a vector of unsigned bytes, as doubles
+  private static DoubleVector unsigned(ByteVector values, int part) {
+    DoubleVector signed = (DoubleVector) values.convertShape(VectorOperators.B2D, DOUBLES, part);
+    return signed.add(256.0, signed.compare(VectorOperators.LT, 0.0));
+  }
+
+  //the rounded and clamped sum r * factors[0] + g * factors[1] + b * factors[2]
+  private static IntVector weighted(DoubleVector r, DoubleVector g, DoubleVector b,
+                                    double[] factors) {
+    return round(r.mul(factors[0]).add(g.mul(factors[1])).add(b.mul(factors[2])));
+  }
+
+  //clamps into [0,255], then rounds to the nearest integer with halves rounded up; clamping
+  //first gives the same result as Math.round followed by a clamp, since both are monotonic.
+  //Adding 2^52 leaves no fraction bits, so the sum holds the value rounded with halves to even
+  //in its low bits; halves rounded down that way are moved up. This avoids converting doubles
+  //to ints, which the compiler does not vectorize on every platform.
+  private static IntVector round(DoubleVector sums) {
+    DoubleVector clamped = sums.max(0.0).min(255.0);
+    DoubleVector shifted = clamped.add(TWO_POW_52);
+    VectorMask<Double> half = clamped.sub(shifted.sub(TWO_POW_52))
+            .compare(VectorOperators.EQ, 0.5);
+    return (IntVector) shifted.add(1.0, half).viewAsIntegralLanes().and(0xFF)
+            .convertShape(VectorOperators.L2I, INTS, 0);
+  }
+
+  private static IntVector clamp(IntVector values) {
+    return values.max(0).min(255);
+  }
+
+  private static IntVector pack(IntVector r, IntVector g, IntVector b) {
+    return r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b);
+  }
+}
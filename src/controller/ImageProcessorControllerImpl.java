@@ -10,6 +10,7 @@ import java.util.Scanner;
 import java.util.function.Function;
 
 import controller.commands.BlurCommand;
+import controller.commands.BoxBlurCommand;
 import controller.commands.GrayscaleMatrixCommand;
 import controller.commands.LoadImageCommand;
 import controller.commands.AdjustBrightnessCommand;
@@ -93,8 +94,14 @@ public class ImageProcessorControllerImpl implements ImageProcessorController {
         s -> new AdjustBrightnessCommand(s.nextInt(), s.next(), s.next()));
     this.modelCommands.put("load",
         s -> new LoadImageCommand(s.next(), s.next()));
+    this.modelCommands.put("load-mapped",
+        s -> new LoadImageCommand(s.next(), s.next(), true));
     this.modelCommands.put("save",
         s -> new SaveImageCommand(s.next(), s.next()));
+    this.modelCommands.put("save-binary",
+        s -> new SaveImageCommand(s.next(), s.next(), true));
+    this.modelCommands.put("save-compressed",
+        s -> new SaveImageCommand(s.next(), s.next(), false, true));
     this.modelCommands.put("sepia",
         s -> new SepiaCommand(s.next(), s.next()));
     this.modelCommands.put("grayscale",
@@ -102,6 +109,8 @@ public class ImageProcessorControllerImpl implements ImageProcessorController {
                 0.2126, 0.7152, 0.0722, s.next(), s.next()));
     this.modelCommands.put("blur",
         s -> new BlurCommand(s.next(), s.next()));
+    this.modelCommands.put("box-blur",
+        s -> new BoxBlurCommand(s.nextInt(), s.next(), s.next()));
     this.modelCommands.put("sharpen",
         s -> new SharpenCommand(s.next(), s.next()));
   }
@@ -167,7 +176,10 @@ public class ImageProcessorControllerImpl implements ImageProcessorController {
     view.renderMessage("  Command: q, quit\n" +
             "  Command: menu\n" +
             "  Command: load  |  Arguments: file-name image-name\n" +
+            "  Command: load-mapped  |  Arguments: file-name image-name\n" +
             "  Command: save  |  Arguments: image-name file-name\n" +
+            "  Command: save-binary  |  Arguments: image-name file-name\n" +
+            "  Command: save-compressed  |  Arguments: image-name file-name\n" +
             "  Command: red-component  |  Arguments: image-name new-image-name\n" +
             "  Command: green-component  |  Arguments: image-name new-image-name\n" +
             "  Command: blue-component  |  Arguments: image-name new-image-name\n" +
@@ -180,6 +192,7 @@ public class ImageProcessorControllerImpl implements ImageProcessorController {
             "  Command: grayscale  |  Arguments: image-name new-image-name\n" +
             "  Command: sepia  |  Arguments: image-name new-image-name\n" +
             "  Command: blur  |  Arguments: image-name new-image-name\n" +
+            "  Command: box-blur  |  Arguments: radius image-name new-image-name\n" +
             "  Command: sharpen  |  Arguments: image-name new-image-name\n");
   }
 }
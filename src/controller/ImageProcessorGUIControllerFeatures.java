@@ -8,6 +8,7 @@ import java.util.function.Function;
 
 import model.ColorComponent;
 import model.Image;
+import model.RasterImage;
 import utils.ImageUtils;
 import view.ImageProcessorGUIView;
 
@@ -64,6 +65,7 @@ public class ImageProcessorGUIControllerFeatures implements ImageProcessorContro
                     {0.125, 0.25, 0.125},
                     {0.0625, 0.125, 0.0625}}));
     commands.put("brighten", s -> this.image.adjustBrightness(s.nextInt()));
+    commands.put("box-blur", s -> this.image.boxBlur(s.nextInt()));
   }
 
   /**
@@ -90,7 +92,7 @@ public class ImageProcessorGUIControllerFeatures implements ImageProcessorContro
   public void loadImage(String filepath) {
     try {
       if (filepath.endsWith(".ppm")) {
-        this.image = ImageUtils.readPPM(filepath);
+        this.image = RasterImage.of(ImageUtils.readPPM(filepath));
       } else {
         this.image = ImageUtils.readOther(filepath);
       }
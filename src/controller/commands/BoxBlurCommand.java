@@ -0,0 +1,33 @@
+package controller.commands;
+
+import model.ImageProcessorModel;
+
+/**
+ * Represents a single specification of the boxBlurImage method, which can be applied to a model
+ * object.
+ */
+public class BoxBlurCommand implements ImageProcessorCommand {
+
+  private final int radius;
+  private final String name;
+  private final String newName;
+
+  /**
+   * Constructs this command instance with the specified arguments.
+   *
+   * @param radius  how far the blurred square reaches from each pixel.
+   * @param name    the name of the image in the processor.
+   * @param newName the name to save the image as in the processor
+   */
+  public BoxBlurCommand(int radius, String name, String newName) {
+    this.radius = radius;
+    this.name = name;
+    this.newName = newName;
+  }
+
+  @Override
+  public void runCommand(ImageProcessorModel m)
+          throws IllegalArgumentException {
+    m.boxBlurImage(name, newName, radius);
+  }
+}
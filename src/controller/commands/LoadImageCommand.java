@@ -6,12 +6,15 @@ import model.ImageProcessorModel;
 import utils.ImageUtils;
 
 /**
- * Represents a command to load an image from a ppm, jpg, bmp, or png file, and add it to a model.
+ * Represents a command to load an image from a ppm, pgm, ipr, jpg, bmp, or png file, and add it
+ * to a model. Binary ppm and pgm files, and uncompressed ipr files, can be mapped into memory
+ * rather than read, if the command is made to map them.
  */
 public class LoadImageCommand implements ImageProcessorCommand {
 
   private final String file;
   private final String name;
+  private final boolean mapped;
 
   /**
    * Constructs an instance of a command to load an image from a file into a model.
@@ -19,16 +22,34 @@ public class LoadImageCommand implements ImageProcessorCommand {
    * @param name the name by which the image will be referred in the model.
    */
   public LoadImageCommand(String file, String name) {
+    this(file, name, false);
+  }
+
+  /**
+   * Constructs an instance of a command to load an image from a file into a model, mapping a
+   *   binary ppm or pgm file, or an uncompressed ipr file, into memory if asked.
+   * @param file the file path of the image.
+   * @param name the name by which the image will be referred in the model.
+   * @param mapped whether a binary ppm, pgm, or ipr file is mapped into memory rather than read.
+   */
+  public LoadImageCommand(String file, String name, boolean mapped) {
     this.file = file;
     this.name = name;
+    this.mapped = mapped;
   }
 
   @Override
   public void runCommand(ImageProcessorModel m)
           throws IllegalArgumentException, IOException {
 
-    if (file.endsWith(".ppm")) {
+    if ((file.endsWith(".ppm") || file.endsWith(".pgm")) && mapped) {
+      m.addImage(name, ImageUtils.mapPPM(file));
+    } else if (file.endsWith(".ppm") || file.endsWith(".pgm")) {
       m.addImage(name, ImageUtils.readPPM(file));
+    } else if (file.endsWith(".ipr") && mapped) {
+      m.addImage(name, ImageUtils.mapIPR(file));
+    } else if (file.endsWith(".ipr")) {
+      m.addImage(name, ImageUtils.readIPR(file));
     } else {
       m.addImage(name, ImageUtils.readOther(file));
     }
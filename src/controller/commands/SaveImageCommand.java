@@ -7,12 +7,16 @@ import utils.ImageUtils;
 
 /**
  * Represents a command to save an image from an
- * ImageProcessorModel as a ppm, jpg, bmp, or png file.
+ * ImageProcessorModel as a ppm, pgm, ipr, jpg, bmp, or png file. PPM files are plain text unless
+ * the command is made to write them in binary, and PGM files, of the luma of each pixel, are
+ * always binary. IPR files are uncompressed unless the command is made to compress them.
  */
 public class SaveImageCommand implements ImageProcessorCommand {
 
   private final String name;
   private final String fileName;
+  private final boolean binary;
+  private final boolean compressed;
 
   /**
    * Constructs the command, which can save an image of some specific name from an
@@ -21,14 +25,46 @@ public class SaveImageCommand implements ImageProcessorCommand {
    * @param fileName the location to which to save the image.
    */
   public SaveImageCommand(String name, String fileName) {
+    this(name, fileName, false);
+  }
+
+  /**
+   * Constructs the command, which can save an image of some specific name from an
+   *   ImageProcessorModel into some file location, writing a ppm file in binary (P6) if asked.
+   * @param name the name of the image in the model.
+   * @param fileName the location to which to save the image.
+   * @param binary whether a ppm file is written in binary rather than as plain text.
+   */
+  public SaveImageCommand(String name, String fileName, boolean binary) {
+    this(name, fileName, binary, false);
+  }
+
+  /**
+   * Constructs the command, which can save an image of some specific name from an
+   *   ImageProcessorModel into some file location, writing a ppm file in binary (P6) and
+   *   compressing an ipr file if asked.
+   * @param name the name of the image in the model.
+   * @param fileName the location to which to save the image.
+   * @param binary whether a ppm file is written in binary rather than as plain text.
+   * @param compressed whether the tiles of an ipr file are compressed.
+   */
+  public SaveImageCommand(String name, String fileName, boolean binary, boolean compressed) {
     this.name = name;
     this.fileName = this.cleanFileName(fileName);
+    this.binary = binary;
+    this.compressed = compressed;
   }
 
   @Override
   public void runCommand(ImageProcessorModel m) throws IllegalArgumentException, IOException {
-    if (this.fileName.endsWith(".ppm")) {
+    if (this.fileName.endsWith(".ppm") && this.binary) {
+      ImageUtils.saveRawPPM(m.returnImage(this.name), this.fileName);
+    } else if (this.fileName.endsWith(".ppm")) {
       ImageUtils.savePPM(m.returnImage(this.name), this.fileName);
+    } else if (this.fileName.endsWith(".pgm")) {
+      ImageUtils.savePGM(m.returnImage(this.name), this.fileName);
+    } else if (this.fileName.endsWith(".ipr")) {
+      ImageUtils.saveIPR(m.returnImage(this.name), this.fileName, this.compressed);
     } else {
       ImageUtils.saveOther(m.returnImage(this.name), this.fileName);
     }
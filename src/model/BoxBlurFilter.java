@@ -0,0 +1,79 @@
+package model;
+
+/**
+ * Blurs an image by replacing each pixel with the mean color of the square of pixels within a
+ *   given radius of it. Near the edges of the image the square is clipped to the image, and the
+ *   mean is taken over the pixels which remain. The means are read from summed-area tables, so
+ *   the cost per pixel does not depend on the radius. The tables are built for one band of rows
+ *   of the result at a time (along with the rows the band's squares reach), so that an image
+ *   whose rows are streamed never has all of its sums in memory at once.
+ */
+final class BoxBlurFilter extends RowFilter {
+
+  private static final int MIN_BAND_ROWS = 64;
+
+  private final int radius;
+  private final int bandRows;
+  private SummedAreaTable band;
+  private int bandStart;
+
+  /**
+   * Constructs the filter.
+   * @param source reads the rows of the image to blur.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param radius the radius of the square, which has already been checked to be non-negative.
+   */
+  BoxBlurFilter(RowReader source, int width, int height, int radius) {
+    super(source, width, height);
+    //a square reaching past every edge of the image covers all of it, however large it is
+    this.radius = Math.min(radius, Math.max(width, height));
+    //bands at least as tall as the square keep the rows summed per row of the result bounded
+    this.bandRows = (int) Math.min(height, Math.max(MIN_BAND_ROWS, 2L * this.radius + 1));
+    this.bandStart = -1;
+  }
+
+  /**
+   * Checks that a box blur radius is valid.
+   * @param radius the radius to check.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  static void checkRadius(int radius) throws IllegalArgumentException {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Given radius was negative.");
+    }
+  }
+
+  @Override
+  RowFilter copy() {
+    return new BoxBlurFilter(this.source, this.width, this.height, this.radius);
+  }
+
+  @Override
+  int rowsPerGroup() {
+    return this.bandRows;
+  }
+
+  @Override
+  int rowReach() {
+    return this.radius;
+  }
+
+  @Override
+  void filterRow(int row, int[] dest) {
+    int start = row - row % this.bandRows;
+    if (start != this.bandStart) {
+      int first = Math.max(0, start - this.radius);
+      int last = (int) Math.min(this.height, (long) start + this.bandRows + this.radius);
+      this.band = new SummedAreaTable(this.source, this.width, first, last - first);
+      this.bandStart = start;
+    }
+
+    int top = Math.max(0, row - this.radius);
+    int bottom = (int) Math.min(this.height, (long) row + this.radius + 1);
+    for (int col = 0; col < this.width; col++) {
+      dest[col] = this.band.mean(top, Math.max(0, col - this.radius), bottom,
+              (int) Math.min(this.width, (long) col + this.radius + 1));
+    }
+  }
+}
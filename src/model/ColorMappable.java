@@ -0,0 +1,19 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents an image which can map each of its colors independently in a single pass, so that
+ *   several operations on colors alone can be applied together without building the images in
+ *   between.
+ */
+interface ColorMappable extends Image {
+
+  /**
+   * Produces a new image of the same kind and dimensions as this one, whose every color is the
+   *   result of a function of the color at the same location in this image.
+   * @param op the function, from a packed color of the form 0x00RRGGBB to another.
+   * @return the new image.
+   */
+  Image mapColors(IntUnaryOperator op);
+}
@@ -0,0 +1,113 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Contains static helpers which build functions on packed colors from lookup tables. Each
+ *   channel only takes 256 values, so brightness changes, components and the products of a color
+ *   transformation matrix are computed once per value, rather than once per pixel. Products are
+ *   kept as doubles and summed in the same order as in {@link PackedRGB}, so that every function
+ *   rounds, and so computes, exactly the same colors.
+ */
+final class ColorTables {
+
+  private ColorTables() {
+    // static helpers only
+  }
+
+  /**
+   * Builds a function which adjusts the brightness of a packed color, computing the same colors
+   *   as {@link PackedRGB#brighten(int, int)}.
+   * @param delta the amount by which to change each channel.
+   * @return the function.
+   */
+  static IntUnaryOperator brightness(int delta) {
+    int[] table = clamped(delta);
+    return rgb -> PackedRGB.pack(table[PackedRGB.red(rgb)], table[PackedRGB.green(rgb)],
+            table[PackedRGB.blue(rgb)]);
+  }
+
+  /**
+   * Builds a function which grayscales a packed color by a component, computing the same colors
+   *   as {@link PackedRGB#grayscale(int, ColorComponent)}.
+   * @param comp the component to grayscale by.
+   * @return the function.
+   */
+  static IntUnaryOperator grayscale(ColorComponent comp) {
+    switch (comp) {
+      case Red:
+        return rgb -> gray(PackedRGB.red(rgb));
+      case Green:
+        return rgb -> gray(PackedRGB.green(rgb));
+      case Blue:
+        return rgb -> gray(PackedRGB.blue(rgb));
+      case Luma:
+        double[] red = products(0.2126);
+        double[] green = products(0.7152);
+        double[] blue = products(0.0722);
+        return rgb -> gray((int) Math.round(red[PackedRGB.red(rgb)]
+                + green[PackedRGB.green(rgb)] + blue[PackedRGB.blue(rgb)]));
+      default:
+        return rgb -> PackedRGB.grayscale(rgb, comp);
+    }
+  }
+
+  /**
+   * Builds a function which applies a color transformation matrix to a packed color, computing
+   *   the same colors as {@link PackedRGB#transform(int, double[][])}. The matrix is read once,
+   *   when the function is built, and is not checked.
+   * @param matrix the 3x3 transformation matrix.
+   * @return the function.
+   */
+  static IntUnaryOperator transform(double[][] matrix) {
+    //one table per entry of the matrix, indexed by the value of the channel of its column
+    double[][][] tables = new double[3][3][];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        tables[i][j] = products(matrix[i][j]);
+      }
+    }
+
+    return rgb -> {
+      int r = PackedRGB.red(rgb);
+      int g = PackedRGB.green(rgb);
+      int b = PackedRGB.blue(rgb);
+      return PackedRGB.pack(channel(tables[0], r, g, b), channel(tables[1], r, g, b),
+              channel(tables[2], r, g, b));
+    };
+  }
+
+  /**
+   * Builds a table of each channel value plus a delta, clamped into [0,255].
+   * @param delta the amount to add to each value.
+   * @return the table, indexed by channel value.
+   */
+  static int[] clamped(int delta) {
+    int[] table = new int[256];
+    for (int v = 0; v < 256; v++) {
+      table[v] = PackedRGB.clamp(v + delta);
+    }
+    return table;
+  }
+
+  /**
+   * Builds a table of each channel value multiplied by a factor.
+   * @param factor the factor to multiply by.
+   * @return the table, indexed by channel value.
+   */
+  static double[] products(double factor) {
+    double[] table = new double[256];
+    for (int v = 0; v < 256; v++) {
+      table[v] = v * factor;
+    }
+    return table;
+  }
+
+  private static int channel(double[][] row, int r, int g, int b) {
+    return PackedRGB.clamp((int) Math.round(row[0][r] + row[1][g] + row[2][b]));
+  }
+
+  private static int gray(int value) {
+    return PackedRGB.pack(value, value, value);
+  }
+}
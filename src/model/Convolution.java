@@ -0,0 +1,272 @@
+package model;
+
+/**
+ * Contains the convolution used by the in-memory images to apply a filter. The kernel is
+ *   anchored the same way SimpleImage always has: kernel[r][c] weighs the neighbor
+ *   (row - kernel[0].length / 2 + r, col - kernel.length / 2 + c), and the products are summed
+ *   over r, then c, then rounded and clamped. Pixels whose neighbors all lie within the image
+ *   are computed without any bounds checks; only those in the band along the edges resolve
+ *   their neighbors through an {@link EdgePolicy}. Kernels which are separable, or large, are
+ *   applied by a {@link RowFilter} instead. Rows are divided between threads as
+ *   {@link Parallelism} allows, each band of rows is worked through in strips of columns as
+ *   {@link Tiling} chooses, and the interior of each row of packed colors is summed with
+ *   vector instructions when {@link VectorSupport} allows.
+ */
+final class Convolution {
+
+  private Convolution() {
+    // static helpers only
+  }
+
+  /**
+   * Checks that a filter kernel is rectangular, with odd dimensions, and that an edge policy
+   *   was given.
+   * @param kernel the kernel to check.
+   * @param policy the edge policy to check.
+   * @throws IllegalArgumentException if the kernel is null, jagged, or has an even dimension,
+   *                                  or if the policy is null.
+   */
+  static void checkFilter(double[][] kernel, EdgePolicy policy)
+          throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Given kernel was null.");
+    }
+
+    if (policy == null) {
+      throw new IllegalArgumentException("Given edge policy was null.");
+    }
+
+    if (kernel.length % 2 == 0) {
+      throw new IllegalArgumentException("Given kernel had an even dimension.");
+    }
+
+    if (kernel[0] == null || kernel[0].length % 2 == 0) {
+      throw new IllegalArgumentException("Given kernel had an even dimension.");
+    }
+
+    for (int i = 1; i < kernel.length; i++) {
+      if (kernel[i] == null || kernel[0].length != kernel[i].length) {
+        throw new IllegalArgumentException("Kernel was jagged.");
+      }
+    }
+  }
+
+  /**
+   * Convolves an image of packed colors with a kernel, which must already have been checked.
+   * @param src the colors of the image, in row-major order.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel.
+   * @param policy how neighbors outside of the image are treated.
+   * @return a new array holding the colors of the filtered image.
+   */
+  static int[] convolve(int[] src, int width, int height, double[][] kernel,
+                        EdgePolicy policy) {
+    RowFilter fast = RowFilter.of(
+            (row, into) -> System.arraycopy(src, row * width, into, 0, width),
+            width, height, kernel, policy);
+    if (fast != null) {
+      return fast.filterAll();
+    }
+
+    int[] dest = new int[src.length];
+    PixelKernels vector = VectorSupport.kernels();
+    int rowRadius = kernel[0].length / 2;
+    int colRadius = kernel.length / 2;
+    int colFrom = Math.min(width, colRadius);
+    int colTo = Math.max(colFrom, width - kernel[0].length + colRadius + 1);
+
+    int columns = Tiling.columns(kernel.length, Integer.BYTES);
+
+    Parallelism.forEachBand(height, width, (from, to) -> {
+      for (int left = 0, right; left < width; left = right) {
+        right = (int) Math.min(width, (long) left + columns);
+        for (int row = from; row < to; row++) {
+          //the run [interiorFrom, interiorTo) of the strip has every neighbor in the image
+          int top = row - rowRadius;
+          boolean edgeRow = top < 0 || top + kernel.length > height;
+          int interiorFrom = edgeRow ? right : Math.min(right, Math.max(left, colFrom));
+          int interiorTo = edgeRow ? right : Math.max(interiorFrom, Math.min(right, colTo));
+
+          for (int col = left; col < interiorFrom; col++) {
+            dest[row * width + col] = edgeColor(src, width, height, kernel, policy, row, col);
+          }
+          if (vector != null) {
+            vector.convolveRow(src, width, kernel, top, interiorFrom - colRadius,
+                    interiorTo - interiorFrom, dest, row * width + interiorFrom);
+          } else {
+            for (int col = interiorFrom; col < interiorTo; col++) {
+              dest[row * width + col] = interiorColor(src, width, kernel, top, col - colRadius);
+            }
+          }
+          for (int col = interiorTo; col < right; col++) {
+            dest[row * width + col] = edgeColor(src, width, height, kernel, policy, row, col);
+          }
+        }
+      }
+    });
+    return dest;
+  }
+
+  /**
+   * Convolves one channel of an image, stored as unsigned bytes, with a kernel, which must
+   *   already have been checked.
+   * @param plane the values of the channel, in row-major order.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel.
+   * @param policy how neighbors outside of the image are treated.
+   * @return a new array holding the values of the channel of the filtered image.
+   */
+  static byte[] convolve(byte[] plane, int width, int height, double[][] kernel,
+                         EdgePolicy policy) {
+    //a row filter is applied to the plane as the blue channel of otherwise black colors
+    RowFilter fast = RowFilter.of((row, into) -> {
+      for (int col = 0; col < width; col++) {
+        into[col] = plane[row * width + col] & 0xFF;
+      }
+    }, width, height, kernel, policy);
+    if (fast != null) {
+      int[] colors = fast.filterAll();
+      byte[] values = new byte[plane.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (byte) PackedRGB.blue(colors[i]);
+      }
+      return values;
+    }
+
+    byte[] dest = new byte[plane.length];
+    int rowRadius = kernel[0].length / 2;
+    int colRadius = kernel.length / 2;
+    int colFrom = Math.min(width, colRadius);
+    int colTo = Math.max(colFrom, width - kernel[0].length + colRadius + 1);
+
+    int columns = Tiling.columns(kernel.length, Byte.BYTES);
+
+    Parallelism.forEachBand(height, width, (from, to) -> {
+      for (int left = 0, right; left < width; left = right) {
+        right = (int) Math.min(width, (long) left + columns);
+        for (int row = from; row < to; row++) {
+          int top = row - rowRadius;
+          boolean edgeRow = top < 0 || top + kernel.length > height;
+          int interiorFrom = edgeRow ? right : Math.min(right, Math.max(left, colFrom));
+          int interiorTo = edgeRow ? right : Math.max(interiorFrom, Math.min(right, colTo));
+
+          for (int col = left; col < interiorFrom; col++) {
+            dest[row * width + col] = edgeValue(plane, width, height, kernel, policy, row, col);
+          }
+          for (int col = interiorFrom; col < interiorTo; col++) {
+            dest[row * width + col] = interiorValue(plane, width, kernel, top, col - colRadius);
+          }
+          for (int col = interiorTo; col < right; col++) {
+            dest[row * width + col] = edgeValue(plane, width, height, kernel, policy, row, col);
+          }
+        }
+      }
+    });
+    return dest;
+  }
+
+  //computes a pixel whose neighbors, starting at (top, left), all lie within the image
+  static int interiorColor(int[] src, int width, double[][] kernel, int top, int left) {
+    double newR = 0.0;
+    double newG = 0.0;
+    double newB = 0.0;
+
+    for (int r = 0; r < kernel.length; r++) {
+      double[] kernelRow = kernel[r];
+      int start = (top + r) * width + left;
+      for (int c = 0; c < kernelRow.length; c++) {
+        double kernelFactor = kernelRow[c];
+        int color = src[start + c];
+
+        newR += kernelFactor * PackedRGB.red(color);
+        newG += kernelFactor * PackedRGB.green(color);
+        newB += kernelFactor * PackedRGB.blue(color);
+      }
+    }
+
+    return pack(newR, newG, newB);
+  }
+
+  //computes a pixel in the band along the edges, resolving each neighbor through the policy
+  private static int edgeColor(int[] src, int width, int height, double[][] kernel,
+                               EdgePolicy policy, int row, int col) {
+    int top = row - kernel[0].length / 2;
+    int left = col - kernel.length / 2;
+
+    double newR = 0.0;
+    double newG = 0.0;
+    double newB = 0.0;
+
+    for (int r = 0; r < kernel.length; r++) {
+      int rowHere = policy.resolve(top + r, height);
+      if (rowHere < 0) {
+        continue;
+      }
+      for (int c = 0; c < kernel[r].length; c++) {
+        int colHere = policy.resolve(left + c, width);
+        if (colHere < 0) {
+          continue;
+        }
+        double kernelFactor = kernel[r][c];
+        int color = src[rowHere * width + colHere];
+
+        newR += kernelFactor * PackedRGB.red(color);
+        newG += kernelFactor * PackedRGB.green(color);
+        newB += kernelFactor * PackedRGB.blue(color);
+      }
+    }
+
+    return pack(newR, newG, newB);
+  }
+
+  private static byte interiorValue(byte[] plane, int width, double[][] kernel, int top,
+                                    int left) {
+    double sum = 0.0;
+
+    for (int r = 0; r < kernel.length; r++) {
+      double[] kernelRow = kernel[r];
+      int start = (top + r) * width + left;
+      for (int c = 0; c < kernelRow.length; c++) {
+        sum += kernelRow[c] * (plane[start + c] & 0xFF);
+      }
+    }
+
+    return (byte) PackedRGB.clamp((int) Math.round(sum));
+  }
+
+  private static byte edgeValue(byte[] plane, int width, int height, double[][] kernel,
+                                EdgePolicy policy, int row, int col) {
+    int top = row - kernel[0].length / 2;
+    int left = col - kernel.length / 2;
+    double sum = 0.0;
+
+    for (int r = 0; r < kernel.length; r++) {
+      int rowHere = policy.resolve(top + r, height);
+      if (rowHere < 0) {
+        continue;
+      }
+      for (int c = 0; c < kernel[r].length; c++) {
+        int colHere = policy.resolve(left + c, width);
+        if (colHere >= 0) {
+          sum += kernel[r][c] * (plane[rowHere * width + colHere] & 0xFF);
+        }
+      }
+    }
+
+    return (byte) PackedRGB.clamp((int) Math.round(sum));
+  }
+
+  /**
+   * Rounds and clamps the sums of each channel, and packs them into a color.
+   * @param r the sum for the red channel.
+   * @param g the sum for the green channel.
+   * @param b the sum for the blue channel.
+   * @return the packed color.
+   */
+  static int pack(double r, double g, double b) {
+    return PackedRGB.pack(PackedRGB.clamp((int) Math.round(r)),
+            PackedRGB.clamp((int) Math.round(g)), PackedRGB.clamp((int) Math.round(b)));
+  }
+}
@@ -0,0 +1,266 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Represents an image which has not necessarily been computed yet: a node in a graph of
+ *   operations, holding the image it is derived from and the operation which derives it. Every
+ *   operation on a deferred image produces another deferred image, so chains of operations are
+ *   only recorded. The chain is evaluated, from the earliest pending node onwards, the first
+ *   time the colors of one of its images are needed, and each node then keeps its result and
+ *   lets go of its source, so that images which are never read are never computed, and
+ *   evaluated intermediate images can be reclaimed. A run of pending operations on colors alone
+ *   (brightness, grayscale and color transformations) is fused into a single pass over the
+ *   pixels which applies each of them in turn to every color, so it produces exactly the same
+ *   colors without building the images in between.
+ */
+final class DeferredImage implements Image {
+
+  //evaluation walks and updates several nodes at once, so it is done under one lock
+  private static final Object LOCK = new Object();
+
+  /**
+   * Invariant: exactly one of source and result is null.
+   * Invariant: operation is null if and only if result is not null.
+   * Invariant: pointwise is null unless the node is pending and its operation maps each color
+   *   independently, in which case it computes the same colors as operation, on packed colors.
+   * Invariant: width and height are those of the result, whether or not it has been computed.
+   */
+  private Image source;
+  private UnaryOperator<Image> operation;
+  private IntUnaryOperator pointwise;
+  private volatile Image result;
+  private final int width;
+  private final int height;
+
+  private DeferredImage(Image source, UnaryOperator<Image> operation,
+                        IntUnaryOperator pointwise) {
+    this.source = source;
+    this.operation = operation;
+    this.pointwise = pointwise;
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+  }
+
+  //constructs a node which has already been evaluated
+  private DeferredImage(Image result) {
+    this.result = result;
+    this.width = result.getWidth();
+    this.height = result.getHeight();
+  }
+
+  /**
+   * Produces a deferred image for another image, so that operations on it are recorded rather
+   *   than computed. A deferred image is returned as it is.
+   * @param im the image to defer operations on.
+   * @return a deferred image with the same colors as im.
+   * @throws IllegalArgumentException if im is null.
+   */
+  static DeferredImage of(Image im) throws IllegalArgumentException {
+    if (im == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+    return im instanceof DeferredImage ? (DeferredImage) im : new DeferredImage(im);
+  }
+
+  /**
+   * Produces the image this node stands for, evaluating it, and any pending nodes it is derived
+   *   from, if that has not happened yet.
+   * @return the evaluated image, which is never itself a deferred image.
+   */
+  Image evaluate() {
+    Image done = this.result;
+    if (done != null) {
+      return done;
+    }
+
+    synchronized (LOCK) {
+      //walk down to the earliest pending node, so that long chains do not evaluate recursively
+      List<DeferredImage> pending = new ArrayList<DeferredImage>();
+      DeferredImage node = this;
+      while (node.result == null) {
+        pending.add(node);
+        Image next = node.input();
+        if (!(next instanceof DeferredImage)) {
+          break;
+        }
+        node = (DeferredImage) next;
+      }
+
+      for (int i = pending.size() - 1; i >= 0; i--) {
+        pending.get(i).compute();
+      }
+
+      return this.result;
+    }
+  }
+
+  //gets the image this node is computed from: its source, or for an operation on colors alone,
+  //the image below the run of pending operations on colors alone it will be fused with
+  private Image input() {
+    Image input = this.source;
+    if (this.pointwise != null) {
+      while (input instanceof DeferredImage && ((DeferredImage) input).pointwise != null) {
+        input = ((DeferredImage) input).source;
+      }
+    }
+    return input;
+  }
+
+  //computes this node, whose input has already been evaluated
+  private void compute() {
+    if (this.result != null) {
+      return;
+    }
+
+    Image input = this.input();
+    Image evaluated = input instanceof DeferredImage ? ((DeferredImage) input).result : input;
+
+    if (this.pointwise == null) {
+      this.result = this.operation.apply(evaluated);
+    } else {
+      //the fused nodes, from the last operation applied down to the first
+      List<DeferredImage> run = new ArrayList<DeferredImage>();
+      for (Image im = this; im != input; im = ((DeferredImage) im).source) {
+        run.add((DeferredImage) im);
+      }
+      this.result = fuse(evaluated, run);
+    }
+
+    this.source = null;
+    this.operation = null;
+    this.pointwise = null;
+  }
+
+  private static Image fuse(Image input, List<DeferredImage> run) {
+    //a lone operation is left to the image, which may have a faster way to apply it
+    if (run.size() == 1 || !(input instanceof ColorMappable)) {
+      Image im = input;
+      for (int i = run.size() - 1; i >= 0; i--) {
+        im = run.get(i).operation.apply(im);
+      }
+      return im;
+    }
+
+    IntUnaryOperator[] ops = new IntUnaryOperator[run.size()];
+    for (int i = 0; i < ops.length; i++) {
+      ops[i] = run.get(ops.length - 1 - i).pointwise;
+    }
+
+    return ((ColorMappable) input).mapColors(color -> {
+      for (IntUnaryOperator op : ops) {
+        color = op.applyAsInt(color);
+      }
+      return color;
+    });
+  }
+
+  /**
+   * Gets the image this node stands for, if it has been evaluated already.
+   * @return the evaluated image, or null if it has not been evaluated yet.
+   */
+  Image getResult() {
+    return this.result;
+  }
+
+  /**
+   * Determines whether computing this node's image, or reading it once computed, would read a
+   *   given image.
+   * @param im the image to look for.
+   * @return true if im is this node's result, or is reached by following pending nodes down to
+   *         the image they are derived from.
+   */
+  boolean dependsOn(Image im) {
+    synchronized (LOCK) {
+      Image current = this;
+      while (current instanceof DeferredImage) {
+        DeferredImage node = (DeferredImage) current;
+        current = node.result != null ? node.result : node.source;
+        if (current == im) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    return this.evaluate().getPixelAt(row, col);
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    this.evaluate().copyRegion(row, col, rows, cols, dest, offset, stride);
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, byte[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    this.evaluate().copyRegion(row, col, rows, cols, dest, offset, stride);
+  }
+
+  @Override
+  public Image flipVertical() {
+    return new DeferredImage(this, Image::flipVertical, null);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return new DeferredImage(this, Image::flipHorizontal, null);
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return new DeferredImage(this, im -> im.adjustBrightness(delta),
+            ColorTables.brightness(delta));
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return new DeferredImage(this, im -> im.grayscale(comp), ColorTables.grayscale(comp));
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    PackedImage.checkMatrix(matrix);
+    double[][] copy = copyOf(matrix);
+    return new DeferredImage(this, im -> im.transformColor(copy), ColorTables.transform(copy));
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+    double[][] copy = copyOf(kernel);
+    return new DeferredImage(this, im -> im.filter(copy, policy), null);
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+    return new DeferredImage(this, im -> im.boxBlur(radius), null);
+  }
+
+  //copies an argument, since it will only be used once the node is evaluated
+  private static double[][] copyOf(double[][] array) {
+    double[][] copy = new double[array.length][];
+    for (int i = 0; i < array.length; i++) {
+      copy[i] = array[i].clone();
+    }
+    return copy;
+  }
+}
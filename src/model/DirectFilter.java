@@ -0,0 +1,112 @@
+package model;
+
+/**
+ * Applies a kernel by summing over the whole of it for each pixel, one row of the result at a
+ *   time, for sources which can only supply rows rather than the whole image at once. The rows
+ *   of the source which the kernel reaches are read for each row of the result, and each pixel
+ *   is summed in exactly the same order as in {@link Convolution}, so the colors are the same.
+ */
+final class DirectFilter extends RowFilter {
+
+  private final double[][] kernel;
+  private final int rowAnchor;
+  private final EdgePolicy policy;
+
+  //for each column of the result, the column of the source each kernel column reads, or -1
+  private final int[] columnIndex;
+
+  //the rows of the source under each row of the kernel, or null where they add nothing
+  private final int[][] rows;
+  private final int[][] buffers;
+
+  /**
+   * Constructs the filter.
+   * @param source reads the rows of the image to filter.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel, which must already have been checked.
+   * @param policy how neighbors outside of the image are treated.
+   */
+  DirectFilter(RowReader source, int width, int height, double[][] kernel, EdgePolicy policy) {
+    super(source, width, height);
+    this.kernel = kernel;
+    this.rowAnchor = kernel[0].length / 2;
+    this.policy = policy;
+
+    int colAnchor = kernel.length / 2;
+    int kernelCols = kernel[0].length;
+    this.columnIndex = new int[width * kernelCols];
+    for (int col = 0; col < width; col++) {
+      for (int c = 0; c < kernelCols; c++) {
+        this.columnIndex[col * kernelCols + c] = policy.resolve(col - colAnchor + c, width);
+      }
+    }
+
+    this.rows = new int[kernel.length][];
+    this.buffers = new int[kernel.length][width];
+  }
+
+  //shares the kernel and column table of another filter, which are never modified
+  private DirectFilter(DirectFilter other) {
+    super(other.source, other.width, other.height);
+    this.kernel = other.kernel;
+    this.rowAnchor = other.rowAnchor;
+    this.policy = other.policy;
+    this.columnIndex = other.columnIndex;
+
+    this.rows = new int[this.kernel.length][];
+    this.buffers = new int[this.kernel.length][this.width];
+  }
+
+  @Override
+  RowFilter copy() {
+    return new DirectFilter(this);
+  }
+
+  @Override
+  int rowReach() {
+    return Math.max(this.kernel.length, this.kernel[0].length);
+  }
+
+  @Override
+  void filterRow(int row, int[] dest) {
+    for (int r = 0; r < this.kernel.length; r++) {
+      int rowHere = this.policy.resolve(row - this.rowAnchor + r, this.height);
+      if (rowHere < 0) {
+        this.rows[r] = null;
+      } else {
+        this.source.copyRow(rowHere, this.buffers[r]);
+        this.rows[r] = this.buffers[r];
+      }
+    }
+
+    int kernelCols = this.kernel[0].length;
+    for (int col = 0; col < this.width; col++) {
+      double newR = 0.0;
+      double newG = 0.0;
+      double newB = 0.0;
+
+      for (int r = 0; r < this.kernel.length; r++) {
+        int[] rowHere = this.rows[r];
+        if (rowHere == null) {
+          continue;
+        }
+        double[] kernelRow = this.kernel[r];
+        for (int c = 0; c < kernelCols; c++) {
+          int colHere = this.columnIndex[col * kernelCols + c];
+          if (colHere < 0) {
+            continue;
+          }
+          double kernelFactor = kernelRow[c];
+          int color = rowHere[colHere];
+
+          newR += kernelFactor * PackedRGB.red(color);
+          newG += kernelFactor * PackedRGB.green(color);
+          newB += kernelFactor * PackedRGB.blue(color);
+        }
+      }
+
+      dest[col] = Convolution.pack(newR, newG, newB);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package model;
+
+/**
+ * represents the ways a filter can treat the neighbors of a pixel which lie outside of the
+ *   image.
+ */
+public enum EdgePolicy {
+  /**
+   * Neighbors outside of the image are black, so they add nothing.
+   */
+  Zero,
+  /**
+   * Neighbors outside of the image take the color of the nearest pixel on its edge.
+   */
+  Clamp,
+  /**
+   * Neighbors outside of the image are reflected back into it across its edge pixels, which
+   *   are not repeated.
+   */
+  Mirror,
+  /**
+   * Neighbors outside of the image wrap around to the opposite side, as if the image tiled
+   *   the plane.
+   */
+  Wrap;
+
+  /**
+   * Finds the index along one dimension of the image whose color is used for a neighbor.
+   * @param index the index of the neighbor, which may lie outside of the image.
+   * @param length the length of the image along this dimension.
+   * @return the index within [0,length) to read instead, or -1 if the neighbor adds nothing.
+   */
+  int resolve(int index, int length) {
+    if (index >= 0 && index < length) {
+      return index;
+    }
+
+    switch (this) {
+      case Clamp:
+        return index < 0 ? 0 : length - 1;
+      case Mirror:
+        if (length == 1) {
+          return 0;
+        }
+        int period = 2 * (length - 1);
+        int reflected = Math.abs(index) % period;
+        return reflected < length ? reflected : period - reflected;
+      case Wrap:
+        return Math.floorMod(index, length);
+      default:
+        return -1;
+    }
+  }
+}
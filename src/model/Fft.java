@@ -0,0 +1,108 @@
+package model;
+
+/**
+ * Computes discrete Fourier transforms of one length, which is a power of two, with the
+ *   iterative radix-2 algorithm. The twiddle factors and the bit-reversed order are computed
+ *   once, when the transform is constructed.
+ */
+final class Fft {
+
+  private final int length;
+  private final int[] reversed;
+  private final double[] cos;
+  private final double[] sin;
+
+  /**
+   * Constructs the transform for sequences of a given length.
+   * @param length the length, which must be a power of two.
+   * @throws IllegalArgumentException if length is not a positive power of two.
+   */
+  Fft(int length) throws IllegalArgumentException {
+    if (length <= 0 || Integer.bitCount(length) != 1) {
+      throw new IllegalArgumentException("Transform length was not a power of two.");
+    }
+
+    this.length = length;
+    this.reversed = new int[length];
+    int bits = Integer.numberOfTrailingZeros(length);
+    for (int i = 0; i < length; i++) {
+      this.reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+    }
+
+    this.cos = new double[length / 2];
+    this.sin = new double[length / 2];
+    for (int i = 0; i < length / 2; i++) {
+      double angle = -2 * Math.PI * i / length;
+      this.cos[i] = Math.cos(angle);
+      this.sin[i] = Math.sin(angle);
+    }
+  }
+
+  /**
+   * Gets the length of the sequences this transform works on.
+   * @return the length.
+   */
+  int length() {
+    return this.length;
+  }
+
+  /**
+   * Transforms a complex sequence in place. The inverse transform is scaled by 1 / length, so
+   *   that it undoes the forward transform.
+   * @param re the real parts, whose first (transform length) entries are transformed.
+   * @param im the imaginary parts, whose first (transform length) entries are transformed.
+   * @param inverse whether to compute the inverse transform.
+   */
+  void transform(double[] re, double[] im, boolean inverse) {
+    int n = this.length;
+
+    for (int i = 0; i < n; i++) {
+      int j = this.reversed[i];
+      if (i < j) {
+        double t = re[i];
+        re[i] = re[j];
+        re[j] = t;
+        t = im[i];
+        im[i] = im[j];
+        im[j] = t;
+      }
+    }
+
+    double sign = inverse ? -1.0 : 1.0;
+    for (int size = 2; size <= n; size <<= 1) {
+      int half = size >> 1;
+      int step = n / size;
+      for (int start = 0; start < n; start += size) {
+        for (int k = 0; k < half; k++) {
+          double wr = this.cos[k * step];
+          double wi = sign * this.sin[k * step];
+          int even = start + k;
+          int odd = even + half;
+          double tr = wr * re[odd] - wi * im[odd];
+          double ti = wr * im[odd] + wi * re[odd];
+          re[odd] = re[even] - tr;
+          im[odd] = im[even] - ti;
+          re[even] += tr;
+          im[even] += ti;
+        }
+      }
+    }
+
+    if (inverse) {
+      double scale = 1.0 / n;
+      for (int i = 0; i < n; i++) {
+        re[i] *= scale;
+        im[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Finds the smallest power of two which is at least a given value.
+   * @param value the value, which is positive and at most 2^30.
+   * @return the power of two.
+   */
+  static int ceilingPowerOfTwo(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+}
@@ -0,0 +1,294 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Applies a large kernel through fast Fourier transforms, so that the cost of each pixel grows
+ *   with the logarithm of the kernel's size rather than with its area. The result is computed
+ *   in blocks with the overlap-save method: each block of the source, extended by the rows and
+ *   columns the kernel reaches beyond it, is transformed, multiplied by the transform of the
+ *   kernel, and transformed back, and only the pixels of the block whose sums did not wrap
+ *   around are kept. Since the kernel is real, two real channels can be transformed together as
+ *   the real and imaginary parts of one complex sequence: blocks are computed in pairs, with
+ *   the red and green of each block in one sequence and the blues of both in a third, so that
+ *   every transform carries two channels. The kernel is anchored the same way as in
+ *   {@link Convolution}, and neighbors outside of the image are resolved by an
+ *   {@link EdgePolicy}. Sums agree with summing over the whole kernel up to rounding error, so
+ *   a channel may differ by one where a sum falls on a rounding tie.
+ */
+final class FftFilter extends RowFilter {
+
+  /**
+   * The smallest number of entries for which a kernel is applied through transforms, below
+   *   which summing over the whole kernel is faster. Measured on 256x256 and 1024x1024 images,
+   *   where the transforms overtook summing directly at 7x7 kernels.
+   */
+  static final int MIN_TAPS = 7 * 7;
+
+  private final int kernelRows;
+  private final int kernelCols;
+  private final int rowAnchor;
+  private final int colAnchor;
+  private final EdgePolicy policy;
+
+  private final Fft rowTransform;
+  private final Fft colTransform;
+  private final int blockRows;
+  private final int blockCols;
+  //the transform of the kernel, reversed in both dimensions so the product correlates
+  private final double[] kernelRe;
+  private final double[] kernelIm;
+
+  //the band of rows of the result computed last, and the source rows it was computed from
+  private final int[] band;
+  private int bandIndex;
+  private final int[][] sourceRows;
+
+  //the red and green of a block, the blues of it and of the block after it, and the red and
+  //green of the block after it
+  private final double[] redGreenRe;
+  private final double[] redGreenIm;
+  private final double[] blueRe;
+  private final double[] blueIm;
+  private final double[] nextRe;
+  private final double[] nextIm;
+  private final double[] lineRe;
+  private final double[] lineIm;
+
+  private FftFilter(RowReader source, int width, int height, double[][] kernel,
+                    EdgePolicy policy) {
+    super(source, width, height);
+    this.kernelRows = kernel.length;
+    this.kernelCols = kernel[0].length;
+    this.rowAnchor = this.kernelCols / 2;
+    this.colAnchor = this.kernelRows / 2;
+    this.policy = policy;
+
+    this.colTransform = new Fft(transformLength(this.kernelRows, height));
+    this.rowTransform = new Fft(transformLength(this.kernelCols, width));
+    int n = this.colTransform.length() * this.rowTransform.length();
+    this.blockRows = this.colTransform.length() - this.kernelRows + 1;
+    this.blockCols = this.rowTransform.length() - this.kernelCols + 1;
+
+    int longest = Math.max(this.colTransform.length(), this.rowTransform.length());
+    this.lineRe = new double[longest];
+    this.lineIm = new double[longest];
+
+    this.kernelRe = new double[n];
+    this.kernelIm = new double[n];
+    for (int r = 0; r < this.kernelRows; r++) {
+      for (int c = 0; c < this.kernelCols; c++) {
+        this.kernelRe[r * this.rowTransform.length() + c] =
+                kernel[this.kernelRows - 1 - r][this.kernelCols - 1 - c];
+      }
+    }
+    this.transform2d(this.kernelRe, this.kernelIm, false);
+
+    this.band = new int[this.blockRows * width];
+    this.bandIndex = -1;
+    this.sourceRows = new int[this.colTransform.length()][];
+
+    this.redGreenRe = new double[n];
+    this.redGreenIm = new double[n];
+    this.blueRe = new double[n];
+    this.blueIm = new double[n];
+    this.nextRe = new double[n];
+    this.nextIm = new double[n];
+  }
+
+  //shares the transforms and the kernel's transform of another filter, which are never
+  //modified, with working buffers of its own
+  private FftFilter(FftFilter other) {
+    super(other.source, other.width, other.height);
+    this.kernelRows = other.kernelRows;
+    this.kernelCols = other.kernelCols;
+    this.rowAnchor = other.rowAnchor;
+    this.colAnchor = other.colAnchor;
+    this.policy = other.policy;
+
+    this.colTransform = other.colTransform;
+    this.rowTransform = other.rowTransform;
+    this.blockRows = other.blockRows;
+    this.blockCols = other.blockCols;
+    this.kernelRe = other.kernelRe;
+    this.kernelIm = other.kernelIm;
+
+    int n = this.kernelRe.length;
+    this.lineRe = new double[other.lineRe.length];
+    this.lineIm = new double[other.lineIm.length];
+    this.band = new int[other.band.length];
+    this.bandIndex = -1;
+    this.sourceRows = new int[other.sourceRows.length][];
+    this.redGreenRe = new double[n];
+    this.redGreenIm = new double[n];
+    this.blueRe = new double[n];
+    this.blueIm = new double[n];
+    this.nextRe = new double[n];
+    this.nextIm = new double[n];
+  }
+
+  /**
+   * Builds a filter which applies a kernel through transforms, if it is large enough to be
+   *   worth it.
+   * @param source reads the rows of the image to filter.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel, which must already have been checked.
+   * @param policy how neighbors outside of the image are treated.
+   * @return the filter, or null if the kernel has fewer than {@link #MIN_TAPS} entries.
+   */
+  static FftFilter of(RowReader source, int width, int height, double[][] kernel,
+                      EdgePolicy policy) {
+    if (kernel.length * kernel[0].length < MIN_TAPS) {
+      return null;
+    }
+    return new FftFilter(source, width, height, kernel, policy);
+  }
+
+  //blocks about four times the size of the kernel keep the overlap small, but no block needs
+  //to be larger than the image and the kernel together
+  private static int transformLength(int kernelSize, int imageSize) {
+    int wanted = Fft.ceilingPowerOfTwo(Math.max(64, 4 * kernelSize));
+    return Math.min(wanted, Fft.ceilingPowerOfTwo(imageSize + kernelSize - 1));
+  }
+
+  @Override
+  RowFilter copy() {
+    return new FftFilter(this);
+  }
+
+  @Override
+  int rowsPerGroup() {
+    return this.blockRows;
+  }
+
+  @Override
+  int rowReach() {
+    return Math.max(this.kernelRows, this.kernelCols);
+  }
+
+  @Override
+  void filterRow(int row, int[] dest) {
+    int index = row / this.blockRows;
+    if (index != this.bandIndex) {
+      this.computeBand(index);
+      this.bandIndex = index;
+    }
+    System.arraycopy(this.band, (row - index * this.blockRows) * this.width, dest, 0,
+            this.width);
+  }
+
+  private void computeBand(int index) {
+    int row0 = index * this.blockRows;
+    int rows = Math.min(this.blockRows, this.height - row0);
+
+    for (int j = 0; j < this.sourceRows.length; j++) {
+      int rowHere = this.policy.resolve(row0 - this.rowAnchor + j, this.height);
+      if (rowHere < 0) {
+        this.sourceRows[j] = null;
+      } else {
+        if (this.sourceRows[j] == null) {
+          this.sourceRows[j] = new int[this.width];
+        }
+        this.source.copyRow(rowHere, this.sourceRows[j]);
+      }
+    }
+
+    for (int col0 = 0; col0 < this.width; col0 += 2 * this.blockCols) {
+      int cols = Math.min(this.blockCols, this.width - col0);
+      int nextCols = Math.min(this.blockCols, this.width - col0 - this.blockCols);
+
+      this.readBlock(col0, this.redGreenRe, this.redGreenIm, this.blueRe);
+      if (nextCols > 0) {
+        this.readBlock(col0 + this.blockCols, this.nextRe, this.nextIm, this.blueIm);
+      } else {
+        Arrays.fill(this.blueIm, 0.0);
+      }
+
+      this.convolve(this.redGreenRe, this.redGreenIm);
+      this.convolve(this.blueRe, this.blueIm);
+      this.writeBlock(rows, col0, cols, this.redGreenRe, this.redGreenIm, this.blueRe);
+      if (nextCols > 0) {
+        this.convolve(this.nextRe, this.nextIm);
+        this.writeBlock(rows, col0 + this.blockCols, nextCols, this.nextRe, this.nextIm,
+                this.blueIm);
+      }
+    }
+  }
+
+  //reads the source colors of the block of columns from col0, along with the columns the
+  //kernel reaches beyond it, into one array for each channel
+  private void readBlock(int col0, double[] red, double[] green, double[] blue) {
+    int rowLength = this.rowTransform.length();
+    for (int j = 0; j < this.sourceRows.length; j++) {
+      int[] colors = this.sourceRows[j];
+      for (int i = 0; i < rowLength; i++) {
+        int k = j * rowLength + i;
+        int colHere = colors == null ? -1
+                : this.policy.resolve(col0 - this.colAnchor + i, this.width);
+        int color = colHere < 0 ? 0 : colors[colHere];
+        red[k] = PackedRGB.red(color);
+        green[k] = PackedRGB.green(color);
+        blue[k] = PackedRGB.blue(color);
+      }
+    }
+  }
+
+  private void convolve(double[] re, double[] im) {
+    this.transform2d(re, im, false);
+    this.multiplyByKernel(re, im);
+    this.transform2d(re, im, true);
+  }
+
+  //writes the sums of the block of columns from col0 into the band; the first kernelRows - 1
+  //rows and kernelCols - 1 columns of each block wrapped around
+  private void writeBlock(int rows, int col0, int cols, double[] red, double[] green,
+                          double[] blue) {
+    int rowLength = this.rowTransform.length();
+    for (int y = 0; y < rows; y++) {
+      int start = (y + this.kernelRows - 1) * rowLength + this.kernelCols - 1;
+      for (int x = 0; x < cols; x++) {
+        int k = start + x;
+        this.band[y * this.width + col0 + x] = Convolution.pack(red[k], green[k], blue[k]);
+      }
+    }
+  }
+
+  private void multiplyByKernel(double[] re, double[] im) {
+    for (int k = 0; k < re.length; k++) {
+      double a = re[k];
+      double b = im[k];
+      re[k] = a * this.kernelRe[k] - b * this.kernelIm[k];
+      im[k] = a * this.kernelIm[k] + b * this.kernelRe[k];
+    }
+  }
+
+  //transforms each row, then each column, of a row-major block, through line buffers which
+  //are at least as long as either transform
+  private void transform2d(double[] re, double[] im, boolean inverse) {
+    int rowLength = this.rowTransform.length();
+    int colLength = this.colTransform.length();
+    double[] lineRe = this.lineRe;
+    double[] lineIm = this.lineIm;
+
+    for (int j = 0; j < colLength; j++) {
+      System.arraycopy(re, j * rowLength, lineRe, 0, rowLength);
+      System.arraycopy(im, j * rowLength, lineIm, 0, rowLength);
+      this.rowTransform.transform(lineRe, lineIm, inverse);
+      System.arraycopy(lineRe, 0, re, j * rowLength, rowLength);
+      System.arraycopy(lineIm, 0, im, j * rowLength, rowLength);
+    }
+
+    for (int i = 0; i < rowLength; i++) {
+      for (int j = 0; j < colLength; j++) {
+        lineRe[j] = re[j * rowLength + i];
+        lineIm[j] = im[j * rowLength + i];
+      }
+      this.colTransform.transform(lineRe, lineIm, inverse);
+      for (int j = 0; j < colLength; j++) {
+        re[j * rowLength + i] = lineRe[j];
+        im[j * rowLength + i] = lineIm[j];
+      }
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package model;
+
+/**
+ * Represents an image which can produce flipped copies of itself, so that a flipped view of it
+ *   can be materialized into the same kind of image when an operation needs one.
+ */
+interface Flippable extends Image {
+
+  /**
+   * Produces a new image, of the same kind as this one, which is a copy of this image reflected
+   *   across its center column and/or center row.
+   * @param horizontal whether to reflect across the center column.
+   * @param vertical whether to reflect across the center row.
+   * @return a new, separate image holding the reflected colors.
+   */
+  Image copyFlipped(boolean horizontal, boolean vertical);
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a reflection of another image, which remaps coordinates onto that image rather than
+ *   copying its colors, so that flipping takes constant time and memory. Flipping a flipped image
+ *   only changes which reflections are applied. Operations on colors alone are applied to the
+ *   underlying image, and the result is viewed with the same reflections, while a filter first
+ *   materializes the reflection into a separate image.
+ */
+final class FlippedImage implements ColorMappable {
+
+  /**
+   * Invariant: source is never itself a FlippedImage.
+   * Invariant: at least one of horizontal and vertical is true.
+   */
+  private final Flippable source;
+  private final boolean horizontal;
+  private final boolean vertical;
+
+  private FlippedImage(Flippable source, boolean horizontal, boolean vertical) {
+    this.source = source;
+    this.horizontal = horizontal;
+    this.vertical = vertical;
+  }
+
+  /**
+   * Produces a reflection of an image. Images which can materialize flipped copies of themselves
+   *   are viewed rather than copied; any other image is flipped by its own methods.
+   * @param im the image to reflect.
+   * @param horizontal whether to reflect across the center column.
+   * @param vertical whether to reflect across the center row.
+   * @return the reflected image, which is im itself if neither reflection is applied.
+   */
+  static Image of(Image im, boolean horizontal, boolean vertical) {
+    if (!horizontal && !vertical) {
+      return im;
+    }
+
+    if (im instanceof Flippable) {
+      return new FlippedImage((Flippable) im, horizontal, vertical);
+    }
+
+    Image flipped = horizontal ? im.flipHorizontal() : im;
+    return vertical ? flipped.flipVertical() : flipped;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return this.source.getWidth();
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.getHeight() || col < 0 || col >= this.getWidth()) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    return this.source.getPixelAt(this.vertical ? this.getHeight() - 1 - row : row,
+            this.horizontal ? this.getWidth() - 1 - col : col);
+  }
+
+  //copies the reflected rows of the source, reversing each one if the reflection is horizontal
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    int sourceCol = this.horizontal ? this.getWidth() - col - cols : col;
+    for (int y = 0; y < rows; y++) {
+      int sourceRow = this.vertical ? this.getHeight() - 1 - (row + y) : row + y;
+      int start = offset + y * stride;
+      this.source.copyRegion(sourceRow, sourceCol, 1, cols, dest, start, stride);
+      if (this.horizontal) {
+        for (int i = start, j = start + cols - 1; i < j; i++, j--) {
+          int color = dest[i];
+          dest[i] = dest[j];
+          dest[j] = color;
+        }
+      }
+    }
+  }
+
+  @Override
+  public Image flipVertical() {
+    return of(this.source, this.horizontal, !this.vertical);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return of(this.source, !this.horizontal, this.vertical);
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    Image mapped = this.source instanceof ColorMappable
+            ? ((ColorMappable) this.source).mapColors(op)
+            : new PackedImage(this.source).mapColors(op);
+    return of(mapped, this.horizontal, this.vertical);
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return of(this.source.adjustBrightness(delta), this.horizontal, this.vertical);
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return of(this.source.grayscale(comp), this.horizontal, this.vertical);
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    return of(this.source.transformColor(matrix), this.horizontal, this.vertical);
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    return this.source.copyFlipped(this.horizontal, this.vertical).filter(kernel, policy);
+  }
+
+  //the square around each pixel is symmetric, so blurring commutes with reflection
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    return of(this.source.boxBlur(radius), this.horizontal, this.vertical);
+  }
+}
@@ -27,6 +27,80 @@ public interface Image {
    */
   Pixel getPixelAt(int row, int col) throws IllegalArgumentException;
 
+  /**
+   * Copies the colors of a rectangle of this image into an array, as packed colors of the form
+   *   0x00RRGGBB, without making a pixel for each of them.
+   * @param row the first row of the rectangle.
+   * @param col the first column of the rectangle.
+   * @param rows the number of rows in the rectangle.
+   * @param cols the number of columns in the rectangle.
+   * @param dest the array to copy the colors into, one row of the rectangle after another.
+   * @param offset the index in dest of the color of the rectangle's first pixel.
+   * @param stride the distance in dest from the start of one row of the rectangle to the next.
+   * @throws IllegalArgumentException if the rectangle does not lie within this image, or dest
+   *                                  can not hold it.
+   */
+  default void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                          int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    for (int y = 0; y < rows; y++) {
+      for (int x = 0; x < cols; x++) {
+        dest[offset + y * stride + x] = PackedRGB.fromPixel(this.getPixelAt(row + y, col + x));
+      }
+    }
+  }
+
+  /**
+   * Copies the colors of a rectangle of this image into an array of bytes, as three bytes to
+   *   each pixel, red, green and blue in that order, as in the raster of a binary PPM file.
+   * @param row the first row of the rectangle.
+   * @param col the first column of the rectangle.
+   * @param rows the number of rows in the rectangle.
+   * @param cols the number of columns in the rectangle.
+   * @param dest the array to copy the colors into, one row of the rectangle after another.
+   * @param offset the index in dest of the red value of the rectangle's first pixel.
+   * @param stride the distance in dest, in bytes, from the start of one row of the rectangle to
+   *               the next.
+   * @throws IllegalArgumentException if the rectangle does not lie within this image, or dest
+   *                                  can not hold it.
+   */
+  default void copyRegion(int row, int col, int rows, int cols, byte[] dest, int offset,
+                          int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 3);
+    int[] colors = new int[cols];
+    for (int y = 0; y < rows; y++) {
+      this.copyRegion(row + y, col, 1, cols, colors, 0, cols);
+      for (int x = 0, k = offset + y * stride; x < cols; x++, k += 3) {
+        dest[k] = (byte) PackedRGB.red(colors[x]);
+        dest[k + 1] = (byte) PackedRGB.green(colors[x]);
+        dest[k + 2] = (byte) PackedRGB.blue(colors[x]);
+      }
+    }
+  }
+
+  /**
+   * Copies the colors of one row of this image into an array, as packed colors of the form
+   *   0x00RRGGBB.
+   * @param row the index of the row to copy.
+   * @param dest the array to copy the row into, from its start.
+   * @throws IllegalArgumentException if the row is out of range, or dest is shorter than a row.
+   */
+  default void copyRow(int row, int[] dest) throws IllegalArgumentException {
+    this.copyRegion(row, 0, 1, this.getWidth(), dest, 0, this.getWidth());
+  }
+
+  /**
+   * Copies the colors of this whole image into an array, as packed colors of the form
+   *   0x00RRGGBB, in row-major order.
+   * @param dest the array to copy the colors into, from its start.
+   * @throws IllegalArgumentException if dest is shorter than width * height.
+   */
+  default void copyColors(int[] dest) throws IllegalArgumentException {
+    this.copyRegion(0, 0, this.getHeight(), this.getWidth(), dest, 0, this.getWidth());
+  }
+
   /**
    * Reflects this image across its center row.
    * Does not modify this image, but rather returns a new image with this effect.
@@ -74,5 +148,31 @@ public interface Image {
    * @throws IllegalArgumentException if the array is not rectangular, or one of its dimensions
    *                                  is not odd.
    */
-  Image filter(double[][] kernel) throws IllegalArgumentException;
+  default Image filter(double[][] kernel) throws IllegalArgumentException {
+    return this.filter(kernel, EdgePolicy.Zero);
+  }
+
+  /**
+   * Applies a filter to this image based on a given kernel, and returns a new image, with this
+   *   filter applied. Neighbors of a pixel which lie outside of this image are treated according
+   *   to the given policy.
+   * @param kernel the transformation kernel.
+   * @param policy how neighbors outside of the image are treated.
+   * @return the new, separate image with the filter applied.
+   * @throws IllegalArgumentException if the array is not rectangular, or one of its dimensions
+   *                                  is not odd, or if the policy is null.
+   */
+  Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException;
+
+  /**
+   * Blurs this image by replacing each pixel with the mean color of the square of pixels within
+   *   a given radius of it, clipped to the image. The cost per pixel does not depend on the
+   *   radius.
+   * Does not modify this image, but rather returns a new image with this effect.
+   * @param radius how far the square reaches from each pixel, in pixels. A radius of 0 leaves
+   *               every pixel unchanged.
+   * @return a new, blurred version of this image.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  Image boxBlur(int radius) throws IllegalArgumentException;
 }
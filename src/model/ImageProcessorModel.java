@@ -92,4 +92,17 @@ public interface ImageProcessorModel {
    */
   void filterImage(String name, String newName, double[][] kernel)
           throws IllegalArgumentException;
+
+  /**
+   * Blurs an image by replacing each pixel with the mean color of the square of pixels within a
+   *   given radius of it, and stores the result under a new name. The cost of the blur per pixel
+   *   does not depend on the radius.
+   * @param name name of image to blur.
+   * @param newName name to save the blurred image under.
+   * @param radius how far the square reaches from each pixel, in pixels.
+   * @throws IllegalArgumentException if image with given name does not exist in model, or if the
+   *                                  radius is negative.
+   */
+  void boxBlurImage(String name, String newName, int radius)
+          throws IllegalArgumentException;
 }
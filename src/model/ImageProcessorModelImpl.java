@@ -5,6 +5,12 @@ import java.util.Map;
 
 /**
  * Represents an implementation of an ImageProcessorModel. It stores a mapping of names to images.
+ * Derived images are stored as deferred images, which record the image and operation they come
+ * from, and are only computed once they are returned, so a chain of operations whose
+ * intermediate images are never returned never computes them.
+ * Images which hold resources outside of the heap (such as an OffHeapImage) are closed once they
+ * are no longer stored under any name, so an image returned by this model should not be used
+ * after its name has been overwritten.
  */
 public class ImageProcessorModelImpl implements ImageProcessorModel {
 
@@ -19,51 +25,103 @@ public class ImageProcessorModelImpl implements ImageProcessorModel {
 
   @Override
   public void addImage(String name, Image im) {
-    directory.put(name, im);
+    store(name, im);
   }
 
   @Override
   public Image returnImage(String name) throws IllegalArgumentException {
     nameCheck(name);
-    return directory.get(name);
+    Image im = directory.get(name);
+    return im instanceof DeferredImage ? ((DeferredImage) im).evaluate() : im;
   }
 
   @Override
   public void grayscaleImage(String name, String newName, ColorComponent comp) {
-    nameCheck(name);
-    directory.put(newName, directory.get(name).grayscale(comp));
+    store(newName, deferred(name).grayscale(comp));
   }
 
   @Override
   public void flipImageHorizontal(String name, String newName) {
-    nameCheck(name);
-    directory.put(newName, directory.get(name).flipHorizontal());
+    store(newName, deferred(name).flipHorizontal());
   }
 
   @Override
   public void flipImageVertical(String name, String newName) {
-    nameCheck(name);
-    directory.put(newName, directory.get(name).flipVertical());
+    store(newName, deferred(name).flipVertical());
   }
 
   @Override
   public void adjustImageBrightness(String name, String newName, int delta) {
-    nameCheck(name);
-    directory.put(newName, directory.get(name).adjustBrightness(delta));
+    store(newName, deferred(name).adjustBrightness(delta));
   }
 
   @Override
   public void transformImageColor(String name, String newName, double[][] matrix)
           throws IllegalArgumentException {
-    nameCheck(name);
-    directory.put(newName, directory.get(name).transformColor(matrix));
+    store(newName, deferred(name).transformColor(matrix));
   }
 
   @Override
   public void filterImage(String name, String newName, double[][] kernel)
           throws IllegalArgumentException {
+    store(newName, deferred(name).filter(kernel));
+  }
+
+  @Override
+  public void boxBlurImage(String name, String newName, int radius)
+          throws IllegalArgumentException {
+    store(newName, deferred(name).boxBlur(radius));
+  }
+
+  /**
+   * Gets the image stored under a name as a deferred image, so that an operation on it is
+   * recorded rather than computed.
+   *
+   * @param name the name of the image.
+   * @return the deferred image.
+   * @throws IllegalArgumentException if no image is stored under the name.
+   */
+  protected Image deferred(String name) throws IllegalArgumentException {
     nameCheck(name);
-    directory.put(newName, directory.get(name).filter(kernel));
+    return DeferredImage.of(directory.get(name));
+  }
+
+  /**
+   * Stores an image under a name, overwriting whatever was stored there before. If the image
+   * that was overwritten (or, for a derived image, its evaluated result) holds resources which
+   * must be released explicitly, and is not stored under any other name, it is closed. Any
+   * stored images which are still to be derived from it are evaluated first.
+   *
+   * @param name the name to store the image under.
+   * @param im   the image to store.
+   */
+  protected void store(String name, Image im) {
+    Image displaced = directory.put(name, im);
+    if (displaced instanceof DeferredImage) {
+      displaced = ((DeferredImage) displaced).getResult();
+    }
+
+    if (!(displaced instanceof AutoCloseable) || directory.containsValue(displaced)) {
+      return;
+    }
+
+    for (Image stored : directory.values()) {
+      if (stored instanceof DeferredImage && ((DeferredImage) stored).dependsOn(displaced)) {
+        ((DeferredImage) stored).evaluate();
+      }
+    }
+
+    for (Image stored : directory.values()) {
+      if (stored instanceof DeferredImage && ((DeferredImage) stored).dependsOn(displaced)) {
+        return;
+      }
+    }
+
+    try {
+      ((AutoCloseable) displaced).close();
+    } catch (Exception e) {
+      throw new IllegalStateException("Could not release image " + name + ".");
+    }
   }
 
   protected void nameCheck(String name) throws IllegalArgumentException {
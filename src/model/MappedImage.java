@@ -0,0 +1,182 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, whose colors are read straight out of a
+ *   buffer of bytes, such as the raster of a binary PPM or PGM file mapped into memory, so that
+ *   opening the image copies nothing and the pages of the file can be shared with other
+ *   processes. Reading pixels and flipping never copy the buffer. The first operation which
+ *   computes new colors copies the buffer into a {@link PackedImage} once, which this image
+ *   then keeps, and every operation runs on that copy.
+ */
+public class MappedImage implements Flippable, ColorMappable {
+
+  /**
+   * Invariant: raster holds exactly width * height * (gray ? 1 : 3) bytes from its index 0, in
+   *   row-major order, with the red, green and blue bytes of each pixel in that order, or with
+   *   one byte to each pixel if gray. Each byte is read as an unsigned value in [0,255].
+   * Invariant: raster is only ever read, with absolute gets, so it may be shared between
+   *   threads.
+   * Invariant: copy is null until an operation first needs it, and then holds the same colors.
+   */
+  private final ByteBuffer raster;
+  private final int width;
+  private final int height;
+  private final boolean gray;
+  private PackedImage copy;
+
+  /**
+   * Constructs the image over a buffer of bytes, from its position to its limit. The buffer is
+   *   read directly, not copied, so its contents must not change afterwards.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param raster the colors of the image, in row-major order, as three bytes (red, green and
+   *               blue) to each pixel, or one if the image is gray.
+   * @param gray whether each pixel is a single byte, used for all three channels.
+   * @throws IllegalArgumentException if either dimension is not positive, or if the raster is
+   *                                  null or does not hold exactly the bytes of the image.
+   */
+  public MappedImage(int width, int height, ByteBuffer raster, boolean gray)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (raster == null) {
+      throw new IllegalArgumentException("Given raster was null.");
+    }
+
+    if ((long) width * height * (gray ? 1 : 3) != raster.remaining()) {
+      throw new IllegalArgumentException("Given raster did not match the dimensions.");
+    }
+
+    this.raster = raster.slice();
+    this.width = width;
+    this.height = height;
+    this.gray = gray;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    return PackedRGB.toPixel(this.color(row * this.width + col));
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    for (int y = 0; y < rows; y++) {
+      int from = (row + y) * this.width + col;
+      int to = offset + y * stride;
+      for (int x = 0; x < cols; x++) {
+        dest[to + x] = this.color(from + x);
+      }
+    }
+  }
+
+  //the bytes of a color raster are already in this order, so each of its rows is copied in one
+  //block, while each byte of a gray raster is copied to all three channels
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, byte[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 3);
+    for (int y = 0; y < rows; y++) {
+      int from = (row + y) * this.width + col;
+      int to = offset + y * stride;
+      if (!this.gray) {
+        this.raster.get(3 * from, dest, to, 3 * cols);
+        continue;
+      }
+      for (int x = 0; x < cols; x++) {
+        byte value = this.raster.get(from + x);
+        dest[to + 3 * x] = value;
+        dest[to + 3 * x + 1] = value;
+        dest[to + 3 * x + 2] = value;
+      }
+    }
+  }
+
+  //the packed color of the pixel at an index, in row-major order
+  private int color(int i) {
+    if (this.gray) {
+      int value = this.raster.get(i) & 0xFF;
+      return PackedRGB.pack(value, value, value);
+    }
+    return PackedRGB.pack(this.raster.get(3 * i) & 0xFF, this.raster.get(3 * i + 1) & 0xFF,
+            this.raster.get(3 * i + 2) & 0xFF);
+  }
+
+  //the colors of this image in a packed image, copied out of the raster the first time only
+  private synchronized PackedImage copy() {
+    if (this.copy == null) {
+      int[] rgb = new int[this.width * this.height];
+      Parallelism.forEachBand(this.height, this.width, (from, to) ->
+              this.copyRegion(from, 0, to - from, this.width, rgb, from * this.width,
+                      this.width));
+      this.copy = new PackedImage(rgb, this.width, this.height);
+    }
+    return this.copy;
+  }
+
+  @Override
+  public Image flipVertical() {
+    return FlippedImage.of(this, false, true);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return FlippedImage.of(this, true, false);
+  }
+
+  @Override
+  public Image copyFlipped(boolean horizontal, boolean vertical) {
+    return this.copy().copyFlipped(horizontal, vertical);
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    return this.copy().mapColors(op);
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return this.copy().adjustBrightness(delta);
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return this.copy().grayscale(comp);
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    return this.copy().transformColor(matrix);
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    return this.copy().filter(kernel, policy);
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    return this.copy().boxBlur(radius);
+  }
+}
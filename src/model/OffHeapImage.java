@@ -0,0 +1,326 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, whose colors are stored as packed RGB
+ *   ints in a direct buffer outside of the Java heap, so that they do not count against the
+ *   heap and are never scanned by the garbage collector. Every operation produces another
+ *   off-heap image. Once closed, the image drops its buffer and can no longer be used; the
+ *   memory of the buffer is only freed, or a mapped file unmapped, when the garbage collector
+ *   reclaims the buffer.
+ *   Operations divide their rows between threads as {@link Parallelism} allows.
+ */
+public class OffHeapImage implements ColorMappable, AutoCloseable {
+
+  /**
+   * Invariant: rgb, until this image is closed, holds exactly width * height colors of the form
+   *   0x00RRGGBB, in row-major order, and is never modified.
+   * Invariant: rgb is null if and only if this image has been closed.
+   */
+  private IntBuffer rgb;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs the image by copying an array of packed colors into off-heap memory.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rgb the colors of the image, in row-major order, each of the form 0x00RRGGBB.
+   * @throws IllegalArgumentException if either dimension is not positive, if rgb is null or
+   *                                  does not have width * height entries, or if any entry
+   *                                  is not a valid packed color.
+   */
+  public OffHeapImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (rgb == null) {
+      throw new IllegalArgumentException("Given array of colors was null.");
+    }
+
+    if ((long) width * height != rgb.length) {
+      throw new IllegalArgumentException("Given array of colors did not match the dimensions.");
+    }
+
+    for (int i = 0; i < rgb.length; i++) {
+      if ((rgb[i] & 0xFF000000) != 0) {
+        throw new IllegalArgumentException("Invalid color present at index " + i + ".");
+      }
+    }
+
+    this.width = width;
+    this.height = height;
+    this.rgb = allocate(width, height);
+    this.rgb.put(0, rgb);
+  }
+
+  /**
+   * Constructs an image which has the same colors as another image, held in off-heap memory.
+   * @param other the image to copy.
+   * @throws IllegalArgumentException if other is null, or too large to hold in one buffer.
+   */
+  public OffHeapImage(Image other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+
+    this.width = other.getWidth();
+    this.height = other.getHeight();
+    this.rgb = allocate(this.width, this.height);
+
+    int[] row = new int[this.width];
+    for (int r = 0; r < this.height; r++) {
+      other.copyRow(r, row);
+      this.rgb.put(r * this.width, row);
+    }
+  }
+
+  /**
+   * Constructs the image over a direct buffer of packed colors, such as part of a file mapped
+   *   into memory, from its position to its limit. The buffer is used directly, not copied, so
+   *   its contents must not change afterwards.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rgb the colors of the image, in row-major order, each of the form 0x00RRGGBB.
+   * @throws IllegalArgumentException if either dimension is not positive, if rgb is null, not
+   *                                  direct, or does not have width * height colors remaining,
+   *                                  or if any color is not a valid packed color.
+   */
+  public OffHeapImage(int width, int height, IntBuffer rgb) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (rgb == null || !rgb.isDirect()) {
+      throw new IllegalArgumentException("Given buffer of colors was null or not direct.");
+    }
+
+    if ((long) width * height != rgb.remaining()) {
+      throw new IllegalArgumentException("Given buffer of colors did not match the dimensions.");
+    }
+
+    IntBuffer colors = rgb.slice();
+    for (int i = 0; i < colors.limit(); i++) {
+      if ((colors.get(i) & 0xFF000000) != 0) {
+        throw new IllegalArgumentException("Invalid color present at index " + i + ".");
+      }
+    }
+
+    this.width = width;
+    this.height = height;
+    this.rgb = colors;
+  }
+
+  //trusted constructor for results of operations, which are valid by construction
+  private OffHeapImage(IntBuffer rgb, int width, int height) {
+    this.rgb = rgb;
+    this.width = width;
+    this.height = height;
+  }
+
+  private static IntBuffer allocate(int width, int height) throws IllegalArgumentException {
+    long bytes = (long) width * height * Integer.BYTES;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to hold in one off-heap buffer.");
+    }
+    return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  /**
+   * Drops this image's off-heap buffer, after which the image can no longer be used. This does
+   *   not free the buffer's memory itself, which is freed whenever the garbage collector reclaims
+   *   the buffer, once nothing else refers to it. Closing an image more than once has no effect.
+   */
+  @Override
+  public void close() {
+    this.rgb = null;
+  }
+
+  /**
+   * Determines whether this image has been closed.
+   * @return true if this image has dropped its buffer.
+   */
+  public boolean isClosed() {
+    return this.rgb == null;
+  }
+
+  //gets the buffer of this image, as long as it is still open
+  private IntBuffer buffer() throws IllegalStateException {
+    IntBuffer buffer = this.rgb;
+    if (buffer == null) {
+      throw new IllegalStateException("Image has already been closed.");
+    }
+    return buffer;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    return PackedRGB.toPixel(this.buffer().get(row * this.width + col));
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    IntBuffer src = this.buffer();
+    for (int y = 0; y < rows; y++) {
+      src.get((row + y) * this.width + col, dest, offset + y * stride, cols);
+    }
+  }
+
+  @Override
+  public Image flipVertical() {
+    IntBuffer src = this.buffer();
+    IntBuffer newRGB = allocate(this.width, this.height);
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      int[] rowColors = new int[this.width];
+      for (int row = from; row < to; row++) {
+        src.get(row * this.width, rowColors);
+        newRGB.put((this.height - 1 - row) * this.width, rowColors);
+      }
+    });
+
+    return new OffHeapImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    IntBuffer src = this.buffer();
+    IntBuffer newRGB = allocate(this.width, this.height);
+
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int row = from; row < to; row++) {
+        int start = row * this.width;
+        int end = start + this.width - 1;
+        for (int col = 0; col < this.width; col++) {
+          newRGB.put(start + col, src.get(end - col));
+        }
+      }
+    });
+
+    return new OffHeapImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    IntBuffer src = this.buffer();
+    IntBuffer newRGB = allocate(this.width, this.height);
+
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int i = from * this.width; i < to * this.width; i++) {
+        newRGB.put(i, op.applyAsInt(src.get(i)));
+      }
+    });
+
+    return new OffHeapImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return this.mapColors(ColorTables.brightness(delta));
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return this.mapColors(ColorTables.grayscale(comp));
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    PackedImage.checkMatrix(matrix);
+    return this.mapColors(ColorTables.transform(matrix));
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+
+    IntBuffer src = this.buffer();
+    IntBuffer newRGB = allocate(this.width, this.height);
+
+    RowFilter fast = RowFilter.of(
+            (row, into) -> src.get(row * this.width, into, 0, this.width),
+            this.width, this.height, kernel, policy);
+    if (fast != null) {
+      fast.filterAll((row, colors) -> newRGB.put(row * this.width, colors));
+      return new OffHeapImage(newRGB, this.width, this.height);
+    }
+
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int row = from; row < to; row++) {
+        for (int col = 0; col < this.width; col++) {
+          newRGB.put(row * this.width + col, this.resultOfKernel(src, row, col, kernel,
+                  policy));
+        }
+      }
+    });
+
+    return new OffHeapImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+
+    IntBuffer src = this.buffer();
+    IntBuffer newRGB = allocate(this.width, this.height);
+
+    RowFilter blur = new BoxBlurFilter(
+            (row, into) -> src.get(row * this.width, into, 0, this.width),
+            this.width, this.height, radius);
+    blur.filterAll((row, colors) -> newRGB.put(row * this.width, colors));
+
+    return new OffHeapImage(newRGB, this.width, this.height);
+  }
+
+  //anchors the kernel the same way SimpleImage does, resolving out-of-range neighbors by policy
+  private int resultOfKernel(IntBuffer src, int row, int col, double[][] kernel,
+                             EdgePolicy policy) {
+    int topMostRow = row - (kernel[0].length / 2);
+    int leftMostCol = col - (kernel.length / 2);
+
+    double newR = 0.0;
+    double newG = 0.0;
+    double newB = 0.0;
+
+    for (int r = 0; r < kernel.length; r++) {
+      int rowHere = policy.resolve(topMostRow + r, this.height);
+      if (rowHere < 0) {
+        continue;
+      }
+      for (int c = 0; c < kernel[r].length; c++) {
+        int colHere = policy.resolve(leftMostCol + c, this.width);
+        if (colHere < 0) {
+          continue;
+        }
+        double kernelFactor = kernel[r][c];
+        int color = src.get(rowHere * this.width + colHere);
+
+        newR += kernelFactor * PackedRGB.red(color);
+        newG += kernelFactor * PackedRGB.green(color);
+        newB += kernelFactor * PackedRGB.blue(color);
+      }
+    }
+
+    return Convolution.pack(newR, newG, newB);
+  }
+}
@@ -0,0 +1,268 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, whose colors are stored as packed RGB
+ *   ints in a single contiguous row-major array. It can produce modified versions of itself,
+ *   and return its dimensions and color of pixel at a given location. Flipping it produces a
+ *   view which shares its array rather than a copy. Operations divide their rows between
+ *   threads as {@link Parallelism} allows.
+ */
+public class PackedImage implements Flippable, ColorMappable {
+
+  /**
+   * Invariant: rgb will always have exactly width * height entries, in row-major order.
+   * Invariant: every entry of rgb is a color of the form 0x00RRGGBB.
+   * Invariant: rgb is never modified once this image has been constructed.
+   */
+  private final int[] rgb;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs the image from an array of packed colors. The array is used directly, not copied,
+   *   so the caller must not modify it afterwards.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rgb the colors of the image, in row-major order, each of the form 0x00RRGGBB.
+   * @throws IllegalArgumentException if either dimension is not positive, if rgb is null or
+   *                                  does not have width * height entries, or if any entry
+   *                                  is not a valid packed color.
+   */
+  public PackedImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (rgb == null) {
+      throw new IllegalArgumentException("Given array of colors was null.");
+    }
+
+    if ((long) width * height != rgb.length) {
+      throw new IllegalArgumentException("Given array of colors did not match the dimensions.");
+    }
+
+    for (int i = 0; i < rgb.length; i++) {
+      if ((rgb[i] & 0xFF000000) != 0) {
+        throw new IllegalArgumentException("Invalid color present at index " + i + ".");
+      }
+    }
+
+    this.rgb = rgb;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Constructs an image which has the same colors as another image.
+   * @param other the image to copy.
+   * @throws IllegalArgumentException if other is null.
+   */
+  public PackedImage(Image other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+
+    this.width = other.getWidth();
+    this.height = other.getHeight();
+    this.rgb = new int[this.width * this.height];
+    other.copyColors(this.rgb);
+  }
+
+  //trusted constructor for results of operations, and for copies made by other images of this
+  //package, which are valid by construction
+  PackedImage(int[] rgb, int width, int height) {
+    this.rgb = rgb;
+    this.width = width;
+    this.height = height;
+  }
+
+  //the array of colors itself, not a copy, for images of this package which share it, and which
+  //must not modify it
+  int[] colors() {
+    return this.rgb;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    return PackedRGB.toPixel(this.rgb[row * this.width + col]);
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length, offset, stride, 1);
+    for (int y = 0; y < rows; y++) {
+      System.arraycopy(this.rgb, (row + y) * this.width + col, dest, offset + y * stride, cols);
+    }
+  }
+
+  @Override
+  public Image flipVertical() {
+    return FlippedImage.of(this, false, true);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return FlippedImage.of(this, true, false);
+  }
+
+  @Override
+  public Image copyFlipped(boolean horizontal, boolean vertical) {
+    int[] newRGB = new int[this.rgb.length];
+
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int row = from; row < to; row++) {
+        int start = row * this.width;
+        int newStart = (vertical ? this.height - 1 - row : row) * this.width;
+        if (horizontal) {
+          int end = start + this.width - 1;
+          for (int col = 0; col < this.width; col++) {
+            newRGB[newStart + col] = this.rgb[end - col];
+          }
+        } else {
+          System.arraycopy(this.rgb, start, newRGB, newStart, this.width);
+        }
+      }
+    });
+
+    return new PackedImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    return this.mapRows((from, to, dest) -> {
+      for (int i = from; i < to; i++) {
+        dest[i] = op.applyAsInt(this.rgb[i]);
+      }
+    });
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    PixelKernels vector = VectorSupport.kernels();
+    if (vector != null) {
+      return this.mapRows((from, to, dest) -> vector.brighten(this.rgb, dest, from, to, delta));
+    }
+    return this.mapColors(ColorTables.brightness(delta));
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return this.mapColors(ColorTables.grayscale(comp));
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    checkMatrix(matrix);
+    PixelKernels vector = VectorSupport.kernels();
+    if (vector != null) {
+      return this.mapRows((from, to, dest) -> vector.transform(this.rgb, dest, from, to, matrix));
+    }
+    return this.mapColors(ColorTables.transform(matrix));
+  }
+
+  /**
+   * Computes the colors of a run of the result of an operation.
+   */
+  private interface RunOperation {
+
+    /**
+     * Writes the colors of the result from one index up to another.
+     * @param from the first index of the run.
+     * @param to the index just past the run.
+     * @param dest the array of the result's colors.
+     */
+    void apply(int from, int to, int[] dest);
+  }
+
+  //produces a new image of the same shape, one row at a time, dividing rows between threads
+  private Image mapRows(RunOperation op) {
+    int[] newRGB = new int[this.rgb.length];
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int row = from; row < to; row++) {
+        op.apply(row * this.width, (row + 1) * this.width, newRGB);
+      }
+    });
+    return new PackedImage(newRGB, this.width, this.height);
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+    return new PackedImage(Convolution.convolve(this.rgb, this.width, this.height, kernel, policy),
+            this.width, this.height);
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+    RowFilter blur = new BoxBlurFilter(
+            (row, into) -> System.arraycopy(this.rgb, row * this.width, into, 0, this.width),
+            this.width, this.height, radius);
+    return new PackedImage(blur.filterAll(), this.width, this.height);
+  }
+
+  /**
+   * Checks that a rectangle lies within an image, and that an array can hold its colors.
+   * @param im the image.
+   * @param row the first row of the rectangle.
+   * @param col the first column of the rectangle.
+   * @param rows the number of rows in the rectangle.
+   * @param cols the number of columns in the rectangle.
+   * @param length the length of the array, or -1 if the array is null.
+   * @param offset the index in the array of the rectangle's first pixel.
+   * @param stride the distance in the array from the start of one row of the rectangle to the
+   *               next.
+   * @param perPixel the number of entries of the array each pixel takes.
+   * @throws IllegalArgumentException if the rectangle does not lie within the image, or the
+   *                                  array is null or can not hold it.
+   */
+  static void checkRegion(Image im, int row, int col, int rows, int cols, int length,
+                          int offset, int stride, int perPixel) throws IllegalArgumentException {
+    if (row < 0 || col < 0 || rows < 0 || cols < 0
+            || (long) row + rows > im.getHeight() || (long) col + cols > im.getWidth()) {
+      throw new IllegalArgumentException("region out of range.");
+    }
+
+    if (length < 0) {
+      throw new IllegalArgumentException("Given array was null.");
+    }
+
+    if (rows > 0 && cols > 0 && (offset < 0 || (rows > 1 && stride < (long) cols * perPixel)
+            || offset + (long) (rows - 1) * stride + (long) cols * perPixel > length)) {
+      throw new IllegalArgumentException("Given array could not hold the region.");
+    }
+  }
+
+  /**
+   * Checks that a color transformation matrix is 3x3.
+   * @param matrix the matrix to check.
+   * @throws IllegalArgumentException if the matrix is null or not 3x3.
+   */
+  static void checkMatrix(double[][] matrix) throws IllegalArgumentException {
+    if (matrix == null || matrix.length != 3) {
+      throw new IllegalArgumentException("matrix not 3x3");
+    }
+
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i] == null || matrix[i].length != 3) {
+        throw new IllegalArgumentException("matrix not 3x3");
+      }
+    }
+  }
+}
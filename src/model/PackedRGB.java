@@ -0,0 +1,156 @@
+package model;
+
+/**
+ * Contains static helpers for working with colors packed into a single int, in the form
+ *   0x00RRGGBB. This is the representation used by the array-backed image implementations.
+ */
+public final class PackedRGB {
+
+  private PackedRGB() {
+    // static helpers only
+  }
+
+  /**
+   * Packs the given red, green and blue values into a single int.
+   * @param r red value, in [0,255].
+   * @param g green value, in [0,255].
+   * @param b blue value, in [0,255].
+   * @return the packed color.
+   */
+  public static int pack(int r, int g, int b) {
+    return (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Gets the red value of a packed color.
+   * @param rgb the packed color.
+   * @return the red value, in [0,255].
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Gets the green value of a packed color.
+   * @param rgb the packed color.
+   * @return the green value, in [0,255].
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Gets the blue value of a packed color.
+   * @param rgb the packed color.
+   * @return the blue value, in [0,255].
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  /**
+   * Gets a specified component (R,G,B,Luma,Intensity,Value) of a packed color. Computes the
+   *   same values as {@link RGBPixel#getComponent(ColorComponent)}.
+   * @param rgb the packed color.
+   * @param comp the component to fetch.
+   * @return the value of this component for this color.
+   */
+  public static int component(int rgb, ColorComponent comp) {
+    int r = red(rgb);
+    int g = green(rgb);
+    int b = blue(rgb);
+    switch (comp) {
+      case Red:
+        return r;
+      case Green:
+        return g;
+      case Blue:
+        return b;
+      case Luma:
+        return (int) Math.round(0.2126 * r + 0.7152 * g + 0.0722 * b);
+      case Value:
+        return Math.max(r, Math.max(g, b));
+      case Intensity:
+        return (r + g + b) / 3;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Adjusts the brightness of a packed color, clamping each channel into [0,255]. Computes the
+   *   same color as {@link RGBPixel#adjustBrightness(int)}.
+   * @param rgb the packed color.
+   * @param delta the amount by which to change each channel.
+   * @return the adjusted packed color.
+   */
+  public static int brighten(int rgb, int delta) {
+    return pack(clamp(red(rgb) + delta), clamp(green(rgb) + delta), clamp(blue(rgb) + delta));
+  }
+
+  /**
+   * Grayscales a packed color by a component. Computes the same color as
+   *   {@link RGBPixel#grayscale(ColorComponent)}.
+   * @param rgb the packed color.
+   * @param comp the component to grayscale by.
+   * @return the grayscaled packed color.
+   */
+  public static int grayscale(int rgb, ColorComponent comp) {
+    int value = component(rgb, comp);
+    return pack(value, value, value);
+  }
+
+  /**
+   * Applies a color transformation matrix to a packed color. Computes the same color as
+   *   {@link RGBPixel#transformColor(double[][])}, but does not check the matrix.
+   * @param rgb the packed color.
+   * @param matrix the 3x3 transformation matrix.
+   * @return the transformed packed color.
+   */
+  public static int transform(int rgb, double[][] matrix) {
+    int r = red(rgb);
+    int g = green(rgb);
+    int b = blue(rgb);
+
+    int newRed = (int) Math.round(r * matrix[0][0] + g * matrix[0][1] + b * matrix[0][2]);
+    int newGreen = (int) Math.round(r * matrix[1][0] + g * matrix[1][1] + b * matrix[1][2]);
+    int newBlue = (int) Math.round(r * matrix[2][0] + g * matrix[2][1] + b * matrix[2][2]);
+
+    return pack(clamp(newRed), clamp(newGreen), clamp(newBlue));
+  }
+
+  /**
+   * Clamps a value into the range [0,255].
+   * @param value the value to clamp.
+   * @return 0 if value is negative, 255 if it is above 255, and value otherwise.
+   */
+  public static int clamp(int value) {
+    if (value < 0) {
+      return 0;
+    } else if (value > 255) {
+      return 255;
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Packs a pixel's red, green and blue values into a single int.
+   * @param pixel the pixel to pack.
+   * @return the packed color of the pixel.
+   */
+  public static int fromPixel(Pixel pixel) {
+    return pack(pixel.getComponent(ColorComponent.Red),
+            pixel.getComponent(ColorComponent.Green),
+            pixel.getComponent(ColorComponent.Blue));
+  }
+
+  /**
+   * Creates a new pixel with the color of a packed value.
+   * @param rgb the packed color.
+   * @return a new RGBPixel of that color.
+   */
+  public static Pixel toPixel(int rgb) {
+    return new RGBPixel(red(rgb), green(rgb), blue(rgb));
+  }
+}
@@ -0,0 +1,158 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Controls how image operations split their work across threads. Operations divide an image
+ *   into bands of rows (or, for images stored by column, of columns) and run the bands on one
+ *   shared fork/join pool. Each band writes a separate part of the result and every pixel is
+ *   computed in exactly the same way as it would be on one thread, so results do not depend on
+ *   the parallelism or on how the bands are scheduled. Images smaller than a threshold are
+ *   processed on the calling thread, where splitting them would cost more than it saves. Tiled
+ *   images, which may only hold a limited number of tiles at once, always work on one thread.
+ *   Encoders outside of the model split their work on the same pool.
+ */
+public final class Parallelism {
+
+  /**
+   * The number of pixels below which an operation runs on the calling thread when no threshold
+   *   is specified.
+   */
+  public static final int DEFAULT_THRESHOLD = 128 * 128;
+
+  //bands per thread, so that a thread which finishes early can take over part of the work
+  private static final int BANDS_PER_THREAD = 4;
+
+  private static ForkJoinPool pool;
+  private static int parallelism = Runtime.getRuntime().availableProcessors();
+  private static volatile int threshold = DEFAULT_THRESHOLD;
+
+  private Parallelism() {
+    // static configuration only
+  }
+
+  /**
+   * Sets the number of threads which image operations may use. Operations already running keep
+   *   the threads they started with.
+   * @param threads the number of threads, where 1 runs every operation on the calling thread.
+   * @throws IllegalArgumentException if threads is not positive.
+   */
+  public static synchronized void setParallelism(int threads) throws IllegalArgumentException {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    if (threads != parallelism && pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+    parallelism = threads;
+  }
+
+  /**
+   * Gets the number of threads which image operations may use.
+   * @return the parallelism, which is the number of available processors unless it was set.
+   */
+  public static synchronized int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of pixels below which an operation runs on the calling thread.
+   * @param pixels the threshold.
+   * @throws IllegalArgumentException if pixels is negative.
+   */
+  public static void setThreshold(int pixels) throws IllegalArgumentException {
+    if (pixels < 0) {
+      throw new IllegalArgumentException("Threshold must not be negative.");
+    }
+    threshold = pixels;
+  }
+
+  /**
+   * Gets the number of pixels below which an operation runs on the calling thread.
+   * @return the threshold.
+   */
+  public static int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Processes one band of lines (rows or columns) of an image.
+   */
+  public interface Band {
+
+    /**
+     * Processes the lines from one index up to another.
+     * @param from the first line of the band.
+     * @param to the line just past the band.
+     */
+    void run(int from, int to);
+  }
+
+  /**
+   * Runs a band over every line of an image, split across the shared pool unless the image is
+   *   smaller than the threshold. Returns once every line has been processed. An exception
+   *   thrown by any band is thrown from here.
+   * @param lines the number of lines (rows or columns) to split.
+   * @param length the number of pixels in each line.
+   * @param band processes a range of lines, writing only to the part of the result they own.
+   */
+  public static void forEachBand(int lines, int length, Band band) {
+    ForkJoinPool here = null;
+    int threads;
+    synchronized (Parallelism.class) {
+      threads = parallelism;
+      if (threads > 1 && (long) lines * length >= threshold && lines > 1) {
+        if (pool == null) {
+          pool = new ForkJoinPool(threads);
+        }
+        here = pool;
+      }
+    }
+
+    if (here == null) {
+      band.run(0, lines);
+      return;
+    }
+
+    int bandLines = Math.max(1, (lines + threads * BANDS_PER_THREAD - 1)
+            / (threads * BANDS_PER_THREAD));
+    try {
+      here.invoke(new Split(band, 0, lines, bandLines));
+    } catch (RejectedExecutionException e) {
+      //the pool was replaced by a change of parallelism before any band was submitted
+      band.run(0, lines);
+    }
+  }
+
+  //halves a range of lines until it is no longer than one band
+  private static final class Split extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Band band;
+    private final int from;
+    private final int to;
+    private final int bandLines;
+
+    private Split(Band band, int from, int to, int bandLines) {
+      this.band = band;
+      this.from = from;
+      this.to = to;
+      this.bandLines = bandLines;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= this.bandLines) {
+        this.band.run(this.from, this.to);
+        return;
+      }
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new Split(this.band, this.from, middle, this.bandLines),
+              new Split(this.band, middle, this.to, this.bandLines));
+    }
+  }
+}
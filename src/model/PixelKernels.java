@@ -0,0 +1,68 @@
+package model;
+
+/**
+ * Computes the per-pixel arithmetic of the simplest operations over runs of pixels in packed or
+ *   planar buffers, so that an implementation can process several pixels at once with vector
+ *   instructions. Every method must produce exactly the same colors as the scalar code it stands
+ *   in for. The only implementation is {@code VectorPixelKernels}, which is built separately
+ *   from the rest of the model and found through {@link VectorSupport}.
+ */
+abstract class PixelKernels {
+
+  /**
+   * Gets the number of pixels this implementation processes at once.
+   * @return the number of lanes, which is more than 1 if the hardware supports vectors.
+   */
+  abstract int lanes();
+
+  /**
+   * Adjusts the brightness of a run of packed colors, as {@link PackedRGB#brighten} does.
+   * @param src the colors to read.
+   * @param dest the array to write the adjusted colors into, at the same indices.
+   * @param from the first index of the run.
+   * @param to the index just past the run.
+   * @param delta the amount by which to change each channel.
+   */
+  abstract void brighten(int[] src, int[] dest, int from, int to, int delta);
+
+  /**
+   * Applies a color transformation matrix to a run of packed colors, as
+   *   {@link PackedRGB#transform} does.
+   * @param src the colors to read.
+   * @param dest the array to write the transformed colors into, at the same indices.
+   * @param from the first index of the run.
+   * @param to the index just past the run.
+   * @param matrix the 3x3 matrix, which must already have been checked.
+   */
+  abstract void transform(int[] src, int[] dest, int from, int to, double[][] matrix);
+
+  /**
+   * Computes one channel of a color transformation for a run of a planar image, as the weighted
+   *   sum of its three planes, rounded and clamped.
+   * @param red the red plane.
+   * @param green the green plane.
+   * @param blue the blue plane.
+   * @param dest the plane to write the channel into, at the same indices.
+   * @param from the first index of the run.
+   * @param to the index just past the run.
+   * @param factors the weights of the red, green and blue values.
+   */
+  abstract void transformPlane(byte[] red, byte[] green, byte[] blue, byte[] dest, int from,
+                               int to, double[] factors);
+
+  /**
+   * Convolves a run of pixels of one row whose neighbors all lie within the image, as
+   *   {@link Convolution} does for such pixels.
+   * @param src the colors of the image, in row-major order.
+   * @param width the width of the image.
+   * @param kernel the kernel, which must already have been checked.
+   * @param top the row of the image under the first row of the kernel.
+   * @param left the column of the image under the first column of the kernel, for the first
+   *             pixel of the run.
+   * @param count the number of pixels in the run.
+   * @param dest the array to write the results into.
+   * @param destIndex the index of dest at which to write the first result.
+   */
+  abstract void convolveRow(int[] src, int width, double[][] kernel, int top, int left, int count,
+                            int[] dest, int destIndex);
+}
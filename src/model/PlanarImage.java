@@ -0,0 +1,329 @@
+package model;
+
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, whose red, green and blue values are
+ *   stored in three separate row-major planes of bytes. Operations which only concern one
+ *   channel only ever read that channel's plane, and flipping produces a view which shares the
+ *   planes. It can produce modified versions of itself,
+ *   and return its dimensions and color of pixel at a given location. Operations divide the
+ *   rows of each plane between threads as {@link Parallelism} allows.
+ */
+public class PlanarImage implements Flippable, ColorMappable {
+
+  /**
+   * Invariant: red, green and blue will always have exactly width * height entries, in
+   *   row-major order, and each entry is read as an unsigned value in [0,255].
+   * Invariant: the planes are never modified once this image has been constructed, so they
+   *   may be shared between images, and between the channels of one image.
+   */
+  private final byte[] red;
+  private final byte[] green;
+  private final byte[] blue;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs the image from three planes of channel values. The planes are used directly, not
+   *   copied, so the caller must not modify them afterwards.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param red the red values of the image, in row-major order.
+   * @param green the green values of the image, in row-major order.
+   * @param blue the blue values of the image, in row-major order.
+   * @throws IllegalArgumentException if either dimension is not positive, or if any plane is
+   *                                  null or does not have width * height entries.
+   */
+  public PlanarImage(int width, int height, byte[] red, byte[] green, byte[] blue)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (red == null || green == null || blue == null) {
+      throw new IllegalArgumentException("Given plane was null.");
+    }
+
+    long size = (long) width * height;
+    if (red.length != size || green.length != size || blue.length != size) {
+      throw new IllegalArgumentException("Given plane did not match the dimensions.");
+    }
+
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Constructs an image which has the same colors as another image.
+   * @param other the image to copy.
+   * @throws IllegalArgumentException if other is null.
+   */
+  public PlanarImage(Image other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+
+    this.width = other.getWidth();
+    this.height = other.getHeight();
+    this.red = new byte[this.width * this.height];
+    this.green = new byte[this.width * this.height];
+    this.blue = new byte[this.width * this.height];
+
+    int[] colors = new int[this.width];
+    for (int row = 0; row < this.height; row++) {
+      other.copyRow(row, colors);
+      for (int col = 0; col < this.width; col++) {
+        int i = row * this.width + col;
+        this.red[i] = (byte) PackedRGB.red(colors[col]);
+        this.green[i] = (byte) PackedRGB.green(colors[col]);
+        this.blue[i] = (byte) PackedRGB.blue(colors[col]);
+      }
+    }
+  }
+
+  //trusted constructor for results of operations, which are valid by construction
+  private PlanarImage(byte[] red, byte[] green, byte[] blue, int width, int height) {
+    this.red = red;
+    this.green = green;
+    this.blue = blue;
+    this.width = width;
+    this.height = height;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    int i = row * this.width + col;
+    return new RGBPixel(this.red[i] & 0xFF, this.green[i] & 0xFF, this.blue[i] & 0xFF);
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    for (int y = 0; y < rows; y++) {
+      int from = (row + y) * this.width + col;
+      int to = offset + y * stride;
+      for (int x = 0; x < cols; x++) {
+        dest[to + x] = PackedRGB.pack(this.red[from + x] & 0xFF, this.green[from + x] & 0xFF,
+                this.blue[from + x] & 0xFF);
+      }
+    }
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, byte[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 3);
+    for (int y = 0; y < rows; y++) {
+      int from = (row + y) * this.width + col;
+      for (int x = 0, k = offset + y * stride; x < cols; x++, k += 3) {
+        dest[k] = this.red[from + x];
+        dest[k + 1] = this.green[from + x];
+        dest[k + 2] = this.blue[from + x];
+      }
+    }
+  }
+
+  @Override
+  public Image flipVertical() {
+    return FlippedImage.of(this, false, true);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return FlippedImage.of(this, true, false);
+  }
+
+  @Override
+  public Image copyFlipped(boolean horizontal, boolean vertical) {
+    return this.mapPlanes(plane -> this.flipPlane(plane, horizontal, vertical));
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    byte[] newRed = new byte[this.red.length];
+    byte[] newGreen = new byte[this.red.length];
+    byte[] newBlue = new byte[this.red.length];
+
+    this.forEachBand((from, to) -> {
+      for (int i = from; i < to; i++) {
+        int rgb = op.applyAsInt(
+                PackedRGB.pack(this.red[i] & 0xFF, this.green[i] & 0xFF, this.blue[i] & 0xFF));
+        newRed[i] = (byte) PackedRGB.red(rgb);
+        newGreen[i] = (byte) PackedRGB.green(rgb);
+        newBlue[i] = (byte) PackedRGB.blue(rgb);
+      }
+    });
+
+    return new PlanarImage(newRed, newGreen, newBlue, this.width, this.height);
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    int[] table = ColorTables.clamped(delta);
+    return this.mapPlanes(plane -> {
+      byte[] newPlane = new byte[plane.length];
+      this.forEachBand((from, to) -> {
+        for (int i = from; i < to; i++) {
+          newPlane[i] = (byte) table[plane[i] & 0xFF];
+        }
+      });
+      return newPlane;
+    });
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    byte[] plane;
+
+    switch (comp) {
+      case Red:
+        plane = this.red;
+        break;
+      case Green:
+        plane = this.green;
+        break;
+      case Blue:
+        plane = this.blue;
+        break;
+      default:
+        IntUnaryOperator gray = ColorTables.grayscale(comp);
+        byte[] grayPlane = new byte[this.red.length];
+        this.forEachBand((from, to) -> {
+          for (int i = from; i < to; i++) {
+            int rgb = PackedRGB.pack(this.red[i] & 0xFF, this.green[i] & 0xFF,
+                    this.blue[i] & 0xFF);
+            grayPlane[i] = (byte) PackedRGB.blue(gray.applyAsInt(rgb));
+          }
+        });
+        plane = grayPlane;
+        break;
+    }
+
+    return new PlanarImage(plane, plane, plane, this.width, this.height);
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    PackedImage.checkMatrix(matrix);
+
+    return new PlanarImage(this.transformPlane(matrix[0]),
+            this.transformPlane(matrix[1]),
+            this.transformPlane(matrix[2]),
+            this.width, this.height);
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+
+    return this.mapPlanes(
+            plane -> Convolution.convolve(plane, this.width, this.height, kernel, policy));
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+
+    //each plane is blurred as the blue channel of otherwise black colors
+    return this.mapPlanes(plane -> {
+      int[] colors = new BoxBlurFilter((row, into) -> {
+        for (int col = 0; col < this.width; col++) {
+          into[col] = plane[row * this.width + col] & 0xFF;
+        }
+      }, this.width, this.height, radius).filterAll();
+      byte[] values = new byte[plane.length];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (byte) PackedRGB.blue(colors[i]);
+      }
+      return values;
+    });
+  }
+
+  //applies a per-channel operation to each distinct plane, so that channels which share a plane
+  //(as in a grayscale image) are only computed once, and keep sharing the result
+  private Image mapPlanes(UnaryOperator<byte[]> op) {
+    byte[] newRed = op.apply(this.red);
+    byte[] newGreen = this.green == this.red ? newRed : op.apply(this.green);
+    byte[] newBlue;
+    if (this.blue == this.red) {
+      newBlue = newRed;
+    } else if (this.blue == this.green) {
+      newBlue = newGreen;
+    } else {
+      newBlue = op.apply(this.blue);
+    }
+    return new PlanarImage(newRed, newGreen, newBlue, this.width, this.height);
+  }
+
+  private byte[] flipPlane(byte[] plane, boolean horizontal, boolean vertical) {
+    byte[] newPlane = new byte[plane.length];
+    Parallelism.forEachBand(this.height, this.width, (from, to) -> {
+      for (int row = from; row < to; row++) {
+        int start = row * this.width;
+        int newStart = (vertical ? this.height - 1 - row : row) * this.width;
+        if (horizontal) {
+          int end = start + this.width - 1;
+          for (int col = 0; col < this.width; col++) {
+            newPlane[newStart + col] = plane[end - col];
+          }
+        } else {
+          System.arraycopy(plane, start, newPlane, newStart, this.width);
+        }
+      }
+    });
+    return newPlane;
+  }
+
+  //runs a band over the indices of every entry of a plane, divided into bands of whole rows
+  private void forEachBand(Parallelism.Band band) {
+    Parallelism.forEachBand(this.height, this.width,
+        (from, to) -> band.run(from * this.width, to * this.width));
+  }
+
+  //computes one output channel as a weighted sum of the three input channels, from tables of
+  //the products of each channel value
+  private byte[] transformPlane(double[] factors) {
+    byte[] newPlane = new byte[this.red.length];
+    PixelKernels vector = VectorSupport.kernels();
+    if (vector != null) {
+      this.forEachBand((from, to) -> vector.transformPlane(this.red, this.green, this.blue,
+              newPlane, from, to, factors));
+      return newPlane;
+    }
+
+    double[] fr = ColorTables.products(factors[0]);
+    double[] fg = ColorTables.products(factors[1]);
+    double[] fb = ColorTables.products(factors[2]);
+
+    this.forEachBand((from, to) -> {
+      for (int i = from; i < to; i++) {
+        int value = (int) Math.round(
+                fr[this.red[i] & 0xFF] + fg[this.green[i] & 0xFF] + fb[this.blue[i] & 0xFF]);
+        newPlane[i] = (byte) PackedRGB.clamp(value);
+      }
+    });
+
+    return newPlane;
+  }
+}
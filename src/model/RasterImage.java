@@ -0,0 +1,183 @@
+package model;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, whose colors are the raster of a
+ *   {@link BufferedImage} of type TYPE_INT_RGB, so that it can be drawn, such as through an
+ *   ImageIcon, without converting its colors. The raster holds packed colors in row-major order,
+ *   exactly as a {@link PackedImage} stores them, and every operation runs as it does on a
+ *   PackedImage, with the colors it computes becoming the raster of the resulting image. So the
+ *   result of every operation can be drawn without a copy too. Flipping therefore produces a
+ *   flipped copy rather than a view.
+ */
+public class RasterImage implements Flippable, ColorMappable {
+
+  //how the colors of a TYPE_INT_RGB image are packed
+  private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+  /**
+   * Invariant: packed and image share one array of colors, so they always hold the same colors.
+   * Invariant: the array is never modified once this image has been constructed.
+   */
+  private final PackedImage packed;
+  private final BufferedImage image;
+
+  /**
+   * Constructs the image from an array of packed colors, which becomes the raster of the image.
+   *   The array is used directly, not copied, so the caller must not modify it afterwards.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rgb the colors of the image, in row-major order, each of the form 0x00RRGGBB.
+   * @throws IllegalArgumentException if either dimension is not positive, if rgb is null or
+   *                                  does not have width * height entries, or if any entry
+   *                                  is not a valid packed color.
+   */
+  public RasterImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    this(new PackedImage(width, height, rgb));
+  }
+
+  /**
+   * Constructs the image over the raster of a BufferedImage. The raster is used directly, not
+   *   copied, so its contents must not change afterwards.
+   * @param image the image to use, of type TYPE_INT_RGB, which is not a subimage of another.
+   * @throws IllegalArgumentException if the image is null, is of another type, does not use all
+   *                                  of its raster, or has colors with bits set outside of the
+   *                                  red, green and blue channels.
+   */
+  public RasterImage(BufferedImage image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+
+    if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+      throw new IllegalArgumentException("Given image was not of type TYPE_INT_RGB.");
+    }
+
+    WritableRaster raster = image.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+            || buffer.getOffset() != 0
+            || buffer.getSize() != (long) image.getWidth() * image.getHeight()) {
+      throw new IllegalArgumentException("Given image did not use all of its raster.");
+    }
+
+    this.packed = new PackedImage(image.getWidth(), image.getHeight(),
+            ((DataBufferInt) buffer).getData());
+    this.image = image;
+  }
+
+  //trusted constructor for results of operations, whose colors become the raster of a new
+  //BufferedImage
+  private RasterImage(PackedImage packed) {
+    int[] rgb = packed.colors();
+    WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(rgb, rgb.length),
+            packed.getWidth(), packed.getHeight(), packed.getWidth(), RGB.getMasks(), null);
+    this.packed = packed;
+    this.image = new BufferedImage(RGB, raster, false, null);
+  }
+
+  /**
+   * Produces an image which can be drawn without converting its colors, with the same colors as
+   *   a given image. A RasterImage is returned as it is, and the colors of a PackedImage become
+   *   the raster of the result without being copied. The colors of any other image are copied.
+   * @param image the image to draw.
+   * @return an image with the same colors, backed by a BufferedImage.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static RasterImage of(Image image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+
+    if (image instanceof RasterImage) {
+      return (RasterImage) image;
+    }
+
+    if (image instanceof PackedImage) {
+      return new RasterImage((PackedImage) image);
+    }
+    return new RasterImage(new PackedImage(image));
+  }
+
+  /**
+   * Gets the BufferedImage whose raster holds the colors of this image, such as to draw it. The
+   *   BufferedImage is shared, not copied, so it must not be modified.
+   * @return the BufferedImage, of type TYPE_INT_RGB.
+   */
+  public BufferedImage getBufferedImage() {
+    return this.image;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.packed.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+    return this.packed.getWidth();
+  }
+
+  @Override
+  public Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    return this.packed.getPixelAt(row, col);
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    this.packed.copyRegion(row, col, rows, cols, dest, offset, stride);
+  }
+
+  @Override
+  public Image flipVertical() {
+    return this.copyFlipped(false, true);
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    return this.copyFlipped(true, false);
+  }
+
+  @Override
+  public Image copyFlipped(boolean horizontal, boolean vertical) {
+    return of(this.packed.copyFlipped(horizontal, vertical));
+  }
+
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    return of(this.packed.mapColors(op));
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return of(this.packed.adjustBrightness(delta));
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return of(this.packed.grayscale(comp));
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    return of(this.packed.transformColor(matrix));
+  }
+
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    return of(this.packed.filter(kernel, policy));
+  }
+
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    return of(this.packed.boxBlur(radius));
+  }
+}
@@ -0,0 +1,136 @@
+package model;
+
+/**
+ * Represents a filter which computes the rows of its result one at a time, from a source whose
+ *   rows it can read in any order. Filters which do not sum over the whole kernel for each pixel
+ *   are of this kind, so that every kind of image can apply them, whether or not it holds all of
+ *   its colors in one array. Filters keep working state between rows, so a filter is only used
+ *   by one thread at a time; to compute rows in parallel, each band of rows gets its own copy.
+ */
+abstract class RowFilter implements RowSource {
+
+  /**
+   * Reads the rows of the source image, in any order.
+   */
+  interface RowReader {
+
+    /**
+     * Copies the colors of one row of the source into an array, as packed colors.
+     * @param row the index of the row, which lies within the source.
+     * @param dest the array to copy the row into.
+     */
+    void copyRow(int row, int[] dest);
+  }
+
+  /**
+   * Receives the rows of the result, which may arrive in any order and from several threads.
+   */
+  interface RowWriter {
+
+    /**
+     * Stores one row of the result.
+     * @param row the index of the row.
+     * @param colors the colors of the row, as packed colors, which are only valid until this
+     *               method returns.
+     */
+    void writeRow(int row, int[] colors);
+  }
+
+  protected final RowReader source;
+  protected final int width;
+  protected final int height;
+
+  protected RowFilter(RowReader source, int width, int height) {
+    this.source = source;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Chooses a faster way to apply a kernel than summing over the whole kernel for each pixel,
+   *   if there is one: two one-dimensional passes for a separable kernel, or a fast Fourier
+   *   transform for a large one.
+   * @param source reads the rows of the image to filter.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel, which must already have been checked.
+   * @param policy how neighbors outside of the image are treated.
+   * @return the filter, or null if the kernel is best summed directly.
+   */
+  static RowFilter of(RowReader source, int width, int height, double[][] kernel,
+                      EdgePolicy policy) {
+    RowFilter separable = SeparableFilter.of(source, width, height, kernel, policy);
+    if (separable != null) {
+      return separable;
+    }
+    return FftFilter.of(source, width, height, kernel, policy);
+  }
+
+  /**
+   * Makes a filter which computes the same result from the same source, with working state of
+   *   its own, so that it can compute rows at the same time as this filter.
+   * @return the copy.
+   */
+  abstract RowFilter copy();
+
+  /**
+   * Gets the number of consecutive rows which this filter computes together, so that rows are
+   *   divided between copies in whole groups rather than computing a group more than once.
+   * @return the number of rows in each group, which is 1 unless overridden.
+   */
+  int rowsPerGroup() {
+    return 1;
+  }
+
+  /**
+   * Gets how far from the group of rows being computed the rows of the source which this filter
+   *   reads may lie, above or below it, before edges are resolved. Rows resolved back into the
+   *   image across an edge lie no further than twice this from the group, so a source streamed
+   *   in order only needs to keep a window of rows around the group.
+   * @return the reach, in rows.
+   */
+  abstract int rowReach();
+
+  /**
+   * Computes one row of the result.
+   * @param row the index of the row.
+   * @param dest the array to write the row into, as packed colors.
+   */
+  abstract void filterRow(int row, int[] dest);
+
+  /**
+   * Computes every row of the result, dividing the groups of rows between copies of this filter
+   *   on separate threads, as {@link Parallelism} allows. The source must allow its rows to be
+   *   read by several threads at once.
+   * @param dest receives each row of the result, and must allow separate rows to be written by
+   *             several threads at once.
+   */
+  void filterAll(RowWriter dest) {
+    int group = this.rowsPerGroup();
+    int groups = (this.height + group - 1) / group;
+
+    Parallelism.forEachBand(groups, group * this.width, (from, to) -> {
+      RowFilter filter = from == 0 ? this : this.copy();
+      int[] row = new int[this.width];
+      for (int y = from * group; y < Math.min(this.height, to * group); y++) {
+        filter.filterRow(y, row);
+        dest.writeRow(y, row);
+      }
+    });
+  }
+
+  /**
+   * Computes every row of the result, as {@link #filterAll(RowWriter)} does.
+   * @return the colors of the result, in row-major order.
+   */
+  int[] filterAll() {
+    int[] result = new int[this.width * this.height];
+    this.filterAll((y, row) -> System.arraycopy(row, 0, result, y * this.width, this.width));
+    return result;
+  }
+
+  @Override
+  public void readRow(int row, int[] dest) {
+    this.filterRow(row, dest);
+  }
+}
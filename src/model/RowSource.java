@@ -0,0 +1,20 @@
+package model;
+
+import java.io.IOException;
+
+/**
+ * Supplies the colors of an image one row at a time, so that an image can be built without the
+ *   whole of it ever being held in memory at once.
+ */
+public interface RowSource {
+
+  /**
+   * Writes the colors of a row into the given array, as packed colors of the form 0x00RRGGBB.
+   *   Rows are requested exactly once each, in order from the top row down.
+   *
+   * @param row the index of the row being requested.
+   * @param dest the array to write the row's colors into, which is exactly as long as the row.
+   * @throws IOException if the colors of the row could not be read.
+   */
+  void readRow(int row, int[] dest) throws IOException;
+}
@@ -0,0 +1,65 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Keeps a window of the most recent rows of a source which supplies its rows only once each, in
+ *   order, so that a {@link RowFilter} can read the rows around the ones it is computing. Rows
+ *   are read from the source as they are first asked for, into a ring of row buffers, and each
+ *   replaces the row as many rows above it as the window holds.
+ */
+final class RowWindow implements RowFilter.RowReader {
+
+  private final RowSource source;
+  private final int width;
+  private final int height;
+  private int[][] rows;
+  private int loaded;
+
+  /**
+   * Constructs the window, which holds no rows until {@link #hold} is called.
+   * @param source supplies the rows, in order.
+   * @param width the width of the rows.
+   * @param height the number of rows the source supplies.
+   */
+  RowWindow(RowSource source, int width, int height) {
+    this.source = source;
+    this.width = width;
+    this.height = height;
+    this.rows = new int[0][];
+  }
+
+  /**
+   * Sets how many rows the window holds, before any are read.
+   * @param count the number of rows, which is reduced to the height of the source.
+   */
+  void hold(int count) {
+    this.rows = new int[Math.min(this.height, Math.max(1, count))][this.width];
+  }
+
+  /**
+   * Copies a row, reading it and the rows above it from the source first if they have not been
+   *   read yet.
+   * @param row the index of the row, which lies within the source.
+   * @param dest the array to copy the row into.
+   * @throws IllegalStateException if the row has already left the window.
+   * @throws UncheckedIOException if the source could not read a row.
+   */
+  @Override
+  public void copyRow(int row, int[] dest) {
+    while (this.loaded <= row) {
+      try {
+        this.source.readRow(this.loaded, this.rows[this.loaded % this.rows.length]);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.loaded++;
+    }
+
+    if (row < this.loaded - this.rows.length) {
+      throw new IllegalStateException("Row " + row + " has already left the window.");
+    }
+    System.arraycopy(this.rows[row % this.rows.length], 0, dest, 0, this.width);
+  }
+}
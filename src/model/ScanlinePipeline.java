@@ -0,0 +1,259 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents an image whose rows are computed one at a time, in order, as they are read, from a
+ *   source which supplies its rows the same way, so that an image can be loaded, processed and
+ *   saved without ever being held in memory. Each operation returns a new pipeline which reads
+ *   the rows of this one: operations on each color run on each row as it passes through, and
+ *   filters keep a window of the rows they reach around the row they are computing, so that
+ *   memory grows with the width of the image and the height of the kernels rather than with the
+ *   size of the image. The colors are exactly those the same operations compute on a
+ *   {@link PackedImage}.
+ *
+ * <p>Rows can only be read once each, in order, so a pipeline can feed only one operation, or
+ *   be read once directly. Operations which need rows from the far side of the image, such as
+ *   a vertical flip or a filter whose edges wrap around, can not be streamed and are not
+ *   offered. Closing a pipeline closes its source, if the source can be closed.
+ */
+public final class ScanlinePipeline implements RowSource, Closeable {
+
+  private final int width;
+  private final int height;
+  private final RowSource rows;
+  private final ScanlinePipeline upstream;
+  private int nextRow;
+  private boolean feeding;
+
+  /**
+   * Constructs a pipeline which reads its rows from a source.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rows the source of the image's rows, which is closed along with this pipeline if it
+   *             is {@link Closeable}.
+   * @throws IllegalArgumentException if either dimension is not positive, or rows is null.
+   */
+  public ScanlinePipeline(int width, int height, RowSource rows)
+          throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive.");
+    }
+    if (rows == null) {
+      throw new IllegalArgumentException("Given source of rows was null.");
+    }
+    this.width = width;
+    this.height = height;
+    this.rows = rows;
+    this.upstream = null;
+  }
+
+  //a pipeline which computes its rows from those of another
+  private ScanlinePipeline(ScanlinePipeline upstream, RowSource rows) {
+    this.width = upstream.width;
+    this.height = upstream.height;
+    this.rows = rows;
+    this.upstream = upstream;
+  }
+
+  /**
+   * Gets the height of this image.
+   * @return the image's height in pixels.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the width of this image.
+   * @return the image's width in pixels.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Writes the colors of the next row into the given array, as packed colors.
+   * @param row the index of the row, which must be the row after the one read last.
+   * @param dest the array to write the row's colors into, which is exactly as long as the row.
+   * @throws IllegalStateException if the row is not the next one.
+   * @throws IOException if the colors of the row could not be read from the source.
+   */
+  @Override
+  public void readRow(int row, int[] dest) throws IOException {
+    if (row != this.nextRow || row >= this.height) {
+      throw new IllegalStateException("Rows must be read once each, in order.");
+    }
+    this.rows.readRow(row, dest);
+    this.nextRow++;
+  }
+
+  /**
+   * Applies a function to the color of each pixel.
+   * @param op the function, from a packed color to a packed color.
+   * @return a new pipeline with the function applied.
+   * @throws IllegalArgumentException if op is null.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline mapColors(IntUnaryOperator op)
+          throws IllegalArgumentException, IllegalStateException {
+    if (op == null) {
+      throw new IllegalArgumentException("Given function was null.");
+    }
+    return this.then((row, dest) -> {
+      this.readRow(row, dest);
+      for (int i = 0; i < dest.length; i++) {
+        dest[i] = op.applyAsInt(dest[i]);
+      }
+    });
+  }
+
+  /**
+   * Adjusts the brightness of each pixel, as {@link Image#adjustBrightness} does.
+   * @param delta the amount by which to change each channel.
+   * @return a new pipeline with the brightness adjusted.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline adjustBrightness(int delta) throws IllegalStateException {
+    return this.mapColors(ColorTables.brightness(delta));
+  }
+
+  /**
+   * Grayscales each pixel by a component, as {@link Image#grayscale} does.
+   * @param comp the component by which to grayscale.
+   * @return a new pipeline with the pixels grayscaled.
+   * @throws IllegalArgumentException if comp is null.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline grayscale(ColorComponent comp)
+          throws IllegalArgumentException, IllegalStateException {
+    if (comp == null) {
+      throw new IllegalArgumentException("Given component was null.");
+    }
+    return this.mapColors(ColorTables.grayscale(comp));
+  }
+
+  /**
+   * Applies a matrix multiplication to the color of each pixel, as
+   *   {@link Image#transformColor} does.
+   * @param matrix the 3x3 transformation matrix.
+   * @return a new pipeline with the colors transformed.
+   * @throws IllegalArgumentException if the array is not 3x3.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline transformColor(double[][] matrix)
+          throws IllegalArgumentException, IllegalStateException {
+    PackedImage.checkMatrix(matrix);
+    return this.mapColors(ColorTables.transform(matrix));
+  }
+
+  /**
+   * Reflects each row across the center column of the image.
+   * @return a new pipeline with the image flipped horizontally.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline flipHorizontal() throws IllegalStateException {
+    return this.then((row, dest) -> {
+      this.readRow(row, dest);
+      for (int i = 0, j = dest.length - 1; i < j; i++, j--) {
+        int color = dest[i];
+        dest[i] = dest[j];
+        dest[j] = color;
+      }
+    });
+  }
+
+  /**
+   * Applies a filter based on a given kernel, treating neighbors outside of the image as black.
+   * @param kernel the transformation kernel.
+   * @return a new pipeline with the filter applied.
+   * @throws IllegalArgumentException if the array is not rectangular, or one of its dimensions
+   *                                  is not odd.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline filter(double[][] kernel)
+          throws IllegalArgumentException, IllegalStateException {
+    return this.filter(kernel, EdgePolicy.Zero);
+  }
+
+  /**
+   * Applies a filter based on a given kernel, as {@link Image#filter(double[][], EdgePolicy)}
+   *   does, keeping only the rows the kernel reaches in memory.
+   * @param kernel the transformation kernel.
+   * @param policy how neighbors outside of the image are treated.
+   * @return a new pipeline with the filter applied.
+   * @throws IllegalArgumentException if the array is not rectangular, or one of its dimensions
+   *                                  is not odd, or if the policy is null or wraps around the
+   *                                  edges, which would need rows from the far side of the
+   *                                  image.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline filter(double[][] kernel, EdgePolicy policy)
+          throws IllegalArgumentException, IllegalStateException {
+    Convolution.checkFilter(kernel, policy);
+    if (policy == EdgePolicy.Wrap) {
+      throw new IllegalArgumentException("Wrapped edges can not be streamed.");
+    }
+
+    RowWindow window = new RowWindow(this, this.width, this.height);
+    RowFilter filter = RowFilter.of(window, this.width, this.height, kernel, policy);
+    if (filter == null) {
+      filter = new DirectFilter(window, this.width, this.height, kernel, policy);
+    }
+    return this.through(window, filter);
+  }
+
+  /**
+   * Blurs each pixel to the mean color of the square of pixels within a given radius of it, as
+   *   {@link Image#boxBlur} does.
+   * @param radius how far the square reaches from each pixel, in pixels.
+   * @return a new pipeline with the blur applied.
+   * @throws IllegalArgumentException if the radius is negative.
+   * @throws IllegalStateException if this pipeline already feeds an operation.
+   */
+  public ScanlinePipeline boxBlur(int radius)
+          throws IllegalArgumentException, IllegalStateException {
+    BoxBlurFilter.checkRadius(radius);
+    RowWindow window = new RowWindow(this, this.width, this.height);
+    return this.through(window,
+            new BoxBlurFilter(window, this.width, this.height, radius));
+  }
+
+  //a pipeline whose rows a filter computes from the rows of this one, kept in a window large
+  //enough for every row the filter reads for a group of rows, even across an edge
+  private ScanlinePipeline through(RowWindow window, RowFilter filter) {
+    window.hold(filter.rowsPerGroup() + 4 * filter.rowReach() + 1);
+    return this.then((row, dest) -> {
+      try {
+        filter.filterRow(row, dest);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  //a pipeline whose rows are computed from the rows of this one
+  private ScanlinePipeline then(RowSource rows) {
+    if (this.feeding || this.nextRow > 0) {
+      throw new IllegalStateException("Pipeline already feeds an operation.");
+    }
+    this.feeding = true;
+    return new ScanlinePipeline(this, rows);
+  }
+
+  /**
+   * Closes the source of this pipeline, if it can be closed.
+   * @throws IOException if the source could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.upstream != null) {
+      this.upstream.close();
+    } else if (this.rows instanceof Closeable) {
+      ((Closeable) this.rows).close();
+    }
+  }
+}
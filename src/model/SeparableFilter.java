@@ -0,0 +1,173 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Applies a kernel which is the outer product of a column and a row of factors (such as a blur)
+ *   as two one-dimensional passes, so that each pixel takes kernel.length + kernel[0].length
+ *   multiplications rather than their product. Each row of the result is computed on its own:
+ *   the rows of the source which the kernel reaches are first combined by the column factors,
+ *   and the combined row is then filtered by the row factors. The kernel is anchored the same
+ *   way as in {@link Convolution}, and neighbors outside of the image are resolved by an
+ *   {@link EdgePolicy}.
+ */
+final class SeparableFilter extends RowFilter {
+
+  /**
+   * The largest difference, relative to the largest entry of the kernel, allowed between an
+   *   entry and the product of its column and row factors for the kernel to be separated.
+   */
+  static final double TOLERANCE = 1e-9;
+
+  private final double[] columnFactors;
+  private final int rowRadius;
+  private final EdgePolicy policy;
+
+  //for each column of the result, the column of the source each row factor reads, or -1
+  private final int[] columnIndex;
+  private final double[] rowFactors;
+
+  private final int[] sourceRow;
+  private final double[] sumR;
+  private final double[] sumG;
+  private final double[] sumB;
+
+  private SeparableFilter(RowReader source, int width, int height, double[] columnFactors,
+                          double[] rowFactors, EdgePolicy policy) {
+    super(source, width, height);
+    this.columnFactors = columnFactors;
+    this.rowFactors = rowFactors;
+    this.rowRadius = rowFactors.length / 2;
+    this.policy = policy;
+
+    int colRadius = columnFactors.length / 2;
+    this.columnIndex = new int[width * rowFactors.length];
+    for (int col = 0; col < width; col++) {
+      for (int c = 0; c < rowFactors.length; c++) {
+        this.columnIndex[col * rowFactors.length + c] = policy.resolve(col - colRadius + c, width);
+      }
+    }
+
+    this.sourceRow = new int[width];
+    this.sumR = new double[width];
+    this.sumG = new double[width];
+    this.sumB = new double[width];
+  }
+
+  //shares the factors and column table of another filter, which are never modified
+  private SeparableFilter(SeparableFilter other) {
+    super(other.source, other.width, other.height);
+    this.columnFactors = other.columnFactors;
+    this.rowFactors = other.rowFactors;
+    this.rowRadius = other.rowRadius;
+    this.policy = other.policy;
+    this.columnIndex = other.columnIndex;
+
+    this.sourceRow = new int[this.width];
+    this.sumR = new double[this.width];
+    this.sumG = new double[this.width];
+    this.sumB = new double[this.width];
+  }
+
+  /**
+   * Separates a kernel, if it is the outer product of a column and a row of factors, within
+   *   {@link #TOLERANCE}. Kernels with a single row or column are already one-dimensional, and
+   *   are not separated.
+   * @param source reads the rows of the image to filter.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @param kernel the kernel, which must already have been checked.
+   * @param policy how neighbors outside of the image are treated.
+   * @return the filter, or null if the kernel is not separated.
+   */
+  static SeparableFilter of(RowReader source, int width, int height, double[][] kernel,
+                            EdgePolicy policy) {
+    int rows = kernel.length;
+    int cols = kernel[0].length;
+    if (rows == 1 || cols == 1) {
+      return null;
+    }
+
+    //the largest entry is the most accurate pivot to divide the rows by
+    int pivotRow = 0;
+    int pivotCol = 0;
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        if (Math.abs(kernel[r][c]) > Math.abs(kernel[pivotRow][pivotCol])) {
+          pivotRow = r;
+          pivotCol = c;
+        }
+      }
+    }
+
+    double pivot = kernel[pivotRow][pivotCol];
+    double[] columnFactors = new double[rows];
+    double[] rowFactors = new double[cols];
+    for (int r = 0; r < rows; r++) {
+      columnFactors[r] = kernel[r][pivotCol];
+    }
+    for (int c = 0; c < cols; c++) {
+      rowFactors[c] = pivot == 0.0 ? 0.0 : kernel[pivotRow][c] / pivot;
+    }
+
+    double allowed = TOLERANCE * Math.abs(pivot);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        if (Math.abs(columnFactors[r] * rowFactors[c] - kernel[r][c]) > allowed) {
+          return null;
+        }
+      }
+    }
+
+    return new SeparableFilter(source, width, height, columnFactors, rowFactors, policy);
+  }
+
+  @Override
+  RowFilter copy() {
+    return new SeparableFilter(this);
+  }
+
+  @Override
+  int rowReach() {
+    return Math.max(this.columnFactors.length, this.rowFactors.length);
+  }
+
+  @Override
+  void filterRow(int row, int[] dest) {
+    Arrays.fill(this.sumR, 0.0);
+    Arrays.fill(this.sumG, 0.0);
+    Arrays.fill(this.sumB, 0.0);
+
+    for (int r = 0; r < this.columnFactors.length; r++) {
+      int rowHere = this.policy.resolve(row - this.rowRadius + r, this.height);
+      if (rowHere < 0) {
+        continue;
+      }
+      this.source.copyRow(rowHere, this.sourceRow);
+      double factor = this.columnFactors[r];
+      for (int x = 0; x < this.width; x++) {
+        int color = this.sourceRow[x];
+        this.sumR[x] += factor * PackedRGB.red(color);
+        this.sumG[x] += factor * PackedRGB.green(color);
+        this.sumB[x] += factor * PackedRGB.blue(color);
+      }
+    }
+
+    int taps = this.rowFactors.length;
+    for (int col = 0; col < this.width; col++) {
+      double newR = 0.0;
+      double newG = 0.0;
+      double newB = 0.0;
+      for (int c = 0; c < taps; c++) {
+        int x = this.columnIndex[col * taps + c];
+        if (x >= 0) {
+          double factor = this.rowFactors[c];
+          newR += factor * this.sumR[x];
+          newG += factor * this.sumG[x];
+          newB += factor * this.sumB[x];
+        }
+      }
+      dest[col] = Convolution.pack(newR, newG, newB);
+    }
+  }
+}
@@ -1,14 +1,17 @@
 package model;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Represents a rectangular image with at least 1 pixel, which can produce modified versions of
- *   itself, and return its dimensions and color of pixel at a given location.
+ *   itself, and return its dimensions and color of pixel at a given location. Flipping it
+ *   produces a view of its pixels rather than a copy. Operations divide its columns between
+ *   threads as {@link Parallelism} allows.
  */
-public class SimpleImage implements Image {
+public class SimpleImage implements Flippable, ColorMappable {
+
+  //the number of columns copied together between the column-major pixels and row-major colors
+  private static final int TRANSPOSE_COLUMNS = 16;
 
   /**
    * Invariant: pixels will always have dimensions [width][height].
@@ -54,6 +57,39 @@ public class SimpleImage implements Image {
     this.width = pixels.length;
   }
 
+  /**
+   * Constructs the image from an array of packed colors, as {@link #copyColors} copies them.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param rgb the colors of the image, in row-major order, each of the form 0x00RRGGBB.
+   * @throws IllegalArgumentException if either dimension is not positive, if rgb is null or
+   *                                  does not have width * height entries, or if any entry
+   *                                  is not a valid packed color.
+   */
+  public SimpleImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (rgb == null) {
+      throw new IllegalArgumentException("Given array of colors was null.");
+    }
+
+    if ((long) width * height != rgb.length) {
+      throw new IllegalArgumentException("Given array of colors did not match the dimensions.");
+    }
+
+    for (int i = 0; i < rgb.length; i++) {
+      if ((rgb[i] & 0xFF000000) != 0) {
+        throw new IllegalArgumentException("Invalid color present at index " + i + ".");
+      }
+    }
+
+    this.width = width;
+    this.height = height;
+    this.pixels = this.unpack(rgb);
+  }
+
   @Override
   public int getHeight() {
     return this.height;
@@ -72,6 +108,22 @@ public class SimpleImage implements Image {
     return getCopyOfPixel(col, row);
   }
 
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    for (int left = col; left < col + cols; left += TRANSPOSE_COLUMNS) {
+      int right = Math.min(col + cols, left + TRANSPOSE_COLUMNS);
+      for (int h = row; h < row + rows; h++) {
+        int to = offset + (h - row) * stride - col;
+        for (int w = left; w < right; w++) {
+          dest[to + w] = PackedRGB.fromPixel(pixels[w][h]);
+        }
+      }
+    }
+  }
+
   protected Pixel getCopyOfPixel(int col, int row) {
     Pixel pixelToCopy = pixels[col][row]; //immutable -> can just return pixels[col][row]??
 
@@ -83,133 +135,154 @@ public class SimpleImage implements Image {
   protected Pixel[][] copyPixels() {
     Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int w = 0; w < this.width; w++) {
-      for (int h = 0; h < this.height; h++) {
-        newPixels[w][h] = getCopyOfPixel(w, h);
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = getCopyOfPixel(w, h);
+        }
       }
-    }
+    });
 
     return newPixels;
   }
 
   @Override
   public Image flipVertical() {
-    Pixel[][] newPixels = this.copyPixels();
-    for (int w = 0; w < this.width; w++) {
-      List<Pixel> pixelsOfThisColumn = Arrays.asList(newPixels[w]);
-      Collections.reverse(pixelsOfThisColumn);
-      newPixels[w] = pixelsOfThisColumn.toArray(new Pixel[0]);
-    }
-    return new SimpleImage(newPixels);
+    return FlippedImage.of(this, false, true);
   }
 
   @Override
   public Image flipHorizontal() {
-    Pixel[][] newPixels = this.copyPixels();
-    List<Pixel[]> columnsList = Arrays.asList(newPixels);
-    Collections.reverse(columnsList);
-    Pixel[][] flippedPixels = columnsList.toArray(new Pixel[0][0]);
-    return new SimpleImage(flippedPixels);
+    return FlippedImage.of(this, true, false);
   }
 
   @Override
-  public Image adjustBrightness(int delta) {
+  public Image copyFlipped(boolean horizontal, boolean vertical) {
     Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int w = 0; w < this.width; w++) {
-      for (int h = 0; h < this.height; h++) {
-        newPixels[w][h] = getCopyOfPixel(w, h).adjustBrightness(delta);
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        int fromW = horizontal ? this.width - 1 - w : w;
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = getCopyOfPixel(fromW, vertical ? this.height - 1 - h : h);
+        }
       }
-    }
+    });
 
     return new SimpleImage(newPixels);
   }
 
   @Override
-  public Image grayscale(ColorComponent comp) {
+  public Image mapColors(IntUnaryOperator op) {
     Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int w = 0; w < this.width; w++) {
-      for (int h = 0; h < this.height; h++) {
-        newPixels[w][h] = getCopyOfPixel(w, h).grayscale(comp);
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = PackedRGB.toPixel(op.applyAsInt(PackedRGB.fromPixel(pixels[w][h])));
+        }
       }
-    }
+    });
 
     return new SimpleImage(newPixels);
   }
 
   @Override
-  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+  public Image adjustBrightness(int delta) {
     Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int w = 0; w < this.width; w++) {
-      for (int h = 0; h < this.height; h++) {
-        newPixels[w][h] = getCopyOfPixel(w, h).transformColor(matrix);
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = getCopyOfPixel(w, h).adjustBrightness(delta);
+        }
       }
-    }
+    });
 
     return new SimpleImage(newPixels);
   }
 
   @Override
-  public Image filter(double[][] kernel) throws IllegalArgumentException {
-    if (kernel == null) {
-      throw new IllegalArgumentException("Given kernel was null.");
-    }
-
-    if (kernel.length % 2 == 0) {
-      throw new IllegalArgumentException("Given kernel had an even dimension.");
-    }
-
-    if (kernel[0].length % 2 == 0) {
-      throw new IllegalArgumentException("Given kernel had an even dimension.");
-    }
+  public Image grayscale(ColorComponent comp) {
+    Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int i = 1; i < kernel.length; i++) {
-      if (kernel[i] == null || kernel[0].length != kernel[i].length) {
-        throw new IllegalArgumentException("Kernel was jagged.");
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = getCopyOfPixel(w, h).grayscale(comp);
+        }
       }
-    }
+    });
 
+    return new SimpleImage(newPixels);
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
     Pixel[][] newPixels = new Pixel[this.width][this.height];
 
-    for (int w = 0; w < this.width; w++) {
-      for (int h = 0; h < this.height; h++) {
-        newPixels[w][h] = this.resultOfKernel(w,h,kernel);
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int w = from; w < to; w++) {
+        for (int h = 0; h < this.height; h++) {
+          newPixels[w][h] = getCopyOfPixel(w, h).transformColor(matrix);
+        }
       }
-    }
+    });
 
     return new SimpleImage(newPixels);
   }
 
-  private Pixel resultOfKernel(int w, int h, double[][] kernel) {
-    int topMostRow = h - (kernel[0].length / 2);
-    int leftMostCol = w - (kernel.length / 2);
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+    return this.fromPacked(
+            Convolution.convolve(this.toPacked(), this.width, this.height, kernel, policy));
+  }
 
-    double newR = 0.0;
-    double newG = 0.0;
-    double newB = 0.0;
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+    int[] colors = this.toPacked();
+    return this.fromPacked(new BoxBlurFilter(
+            (row, into) -> System.arraycopy(colors, row * this.width, into, 0, this.width),
+            this.width, this.height, radius).filterAll());
+  }
 
-    for (int r = 0; r < kernel.length; r++) {
-      for (int c = 0; c < kernel[r].length; c++) {
-        Pixel pixelHere;
-        double kernelFactor = kernel[r][c];
-        try {
-          pixelHere = getCopyOfPixel(leftMostCol + c, topMostRow + r);
-        } catch (ArrayIndexOutOfBoundsException e) {
-          pixelHere = new RGBPixel(0,0,0);
+  //packs the colors of this image into a row-major array. Its columns are copied a block at a
+  //time, row by row, so that both the columns read and the rows written are walked in order.
+  private int[] toPacked() {
+    int[] colors = new int[this.width * this.height];
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int left = from; left < to; left += TRANSPOSE_COLUMNS) {
+        int right = Math.min(to, left + TRANSPOSE_COLUMNS);
+        for (int h = 0; h < this.height; h++) {
+          for (int w = left; w < right; w++) {
+            colors[h * this.width + w] = PackedRGB.fromPixel(pixels[w][h]);
+          }
         }
-
-        newR += kernelFactor * pixelHere.getComponent(ColorComponent.Red);
-        newG += kernelFactor * pixelHere.getComponent(ColorComponent.Green);
-        newB += kernelFactor * pixelHere.getComponent(ColorComponent.Blue);
       }
-    }
+    });
+    return colors;
+  }
 
-    int r = Math.min(255, Math.max(0, (int) Math.round(newR)));
-    int g = Math.min(255, Math.max(0, (int) Math.round(newG)));
-    int b = Math.min(255, Math.max(0, (int) Math.round(newB)));
+  //builds an image of this size from a row-major array of packed colors
+  private Image fromPacked(int[] colors) {
+    return new SimpleImage(this.unpack(colors));
+  }
 
-    return new RGBPixel(r, g, b);
+  //unpacks a row-major array of packed colors into pixels of this size, a block at a time
+  private Pixel[][] unpack(int[] colors) {
+    Pixel[][] newPixels = new Pixel[this.width][this.height];
+    Parallelism.forEachBand(this.width, this.height, (from, to) -> {
+      for (int left = from; left < to; left += TRANSPOSE_COLUMNS) {
+        int right = Math.min(to, left + TRANSPOSE_COLUMNS);
+        for (int h = 0; h < this.height; h++) {
+          for (int w = left; w < right; w++) {
+            newPixels[w][h] = PackedRGB.toPixel(colors[h * this.width + w]);
+          }
+        }
+      }
+    });
+    return newPixels;
   }
 }
@@ -0,0 +1,140 @@
+package model;
+
+/**
+ * Holds the summed-area table (integral image) of each of the red, green and blue channels of a
+ *   strip of rows of an image, from which the sum of a channel over any rectangle within the
+ *   strip is found with four lookups, however large the rectangle. Local statistics such as a box
+ *   blur are built on these sums, so that their cost per pixel does not depend on the size of
+ *   the neighborhood.
+ */
+public final class SummedAreaTable {
+
+  /**
+   * Invariant: each table has (rows + 1) * (width + 1) entries, in row-major order, and the
+   *   entry at (y, x) is the sum of the channel over rows [firstRow, firstRow + y) and columns
+   *   [0, x) of the image. The first row and the first column of each table are zero.
+   */
+  private final long[] red;
+  private final long[] green;
+  private final long[] blue;
+  private final int width;
+  private final int firstRow;
+  private final int rows;
+
+  /**
+   * Constructs the tables of a whole image.
+   * @param image the image to sum.
+   * @throws IllegalArgumentException if image is null, or too large to hold the tables of.
+   */
+  public SummedAreaTable(Image image) throws IllegalArgumentException {
+    this(readerOf(image), image.getWidth(), 0, image.getHeight());
+  }
+
+  /**
+   * Constructs the tables of a strip of rows of an image.
+   * @param source reads the rows of the image.
+   * @param width the width of the image.
+   * @param firstRow the first row of the strip.
+   * @param rows the number of rows in the strip.
+   * @throws IllegalArgumentException if the strip is too large to hold the tables of.
+   */
+  SummedAreaTable(RowFilter.RowReader source, int width, int firstRow, int rows)
+          throws IllegalArgumentException {
+    long entries = (long) (rows + 1) * (width + 1);
+    if (entries > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to hold a summed-area table of.");
+    }
+
+    this.width = width;
+    this.firstRow = firstRow;
+    this.rows = rows;
+    this.red = new long[(int) entries];
+    this.green = new long[(int) entries];
+    this.blue = new long[(int) entries];
+
+    int stride = width + 1;
+    int[] colors = new int[width];
+    for (int y = 0; y < rows; y++) {
+      source.copyRow(firstRow + y, colors);
+      long rowRed = 0;
+      long rowGreen = 0;
+      long rowBlue = 0;
+      int above = y * stride + 1;
+      int here = above + stride;
+      for (int x = 0; x < width; x++) {
+        int color = colors[x];
+        rowRed += PackedRGB.red(color);
+        rowGreen += PackedRGB.green(color);
+        rowBlue += PackedRGB.blue(color);
+        this.red[here + x] = this.red[above + x] + rowRed;
+        this.green[here + x] = this.green[above + x] + rowGreen;
+        this.blue[here + x] = this.blue[above + x] + rowBlue;
+      }
+    }
+  }
+
+  private static RowFilter.RowReader readerOf(Image image) throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+    return image::copyRow;
+  }
+
+  /**
+   * Gets the sum of a channel over a rectangle of the image.
+   * @param channel the channel to sum, which is Red, Green or Blue.
+   * @param row the top row of the rectangle.
+   * @param col the left column of the rectangle.
+   * @param rows the number of rows in the rectangle.
+   * @param cols the number of columns in the rectangle.
+   * @return the sum of the channel's values over every pixel of the rectangle.
+   * @throws IllegalArgumentException if the channel is not Red, Green or Blue, or if the
+   *                                  rectangle does not lie within the rows of these tables.
+   */
+  public long sum(ColorComponent channel, int row, int col, int rows, int cols)
+          throws IllegalArgumentException {
+    if (rows < 0 || cols < 0 || row < this.firstRow || col < 0
+            || (long) row + rows > (long) this.firstRow + this.rows
+            || (long) col + cols > this.width) {
+      throw new IllegalArgumentException("Rectangle does not lie within the table.");
+    }
+
+    long[] table;
+    if (channel == ColorComponent.Red) {
+      table = this.red;
+    } else if (channel == ColorComponent.Green) {
+      table = this.green;
+    } else if (channel == ColorComponent.Blue) {
+      table = this.blue;
+    } else {
+      throw new IllegalArgumentException("Only the red, green and blue channels are summed.");
+    }
+
+    return rectangle(table, row, col, row + rows, col + cols);
+  }
+
+  /**
+   * Gets the mean color over a rectangle, with each channel rounded to the nearest integer and
+   *   halves rounded up. The rectangle must be non-empty and lie within these tables.
+   * @param top the top row of the rectangle.
+   * @param left the left column of the rectangle.
+   * @param bottom the row just below the rectangle.
+   * @param right the column just past the rectangle.
+   * @return the mean color, as a packed color.
+   */
+  int mean(int top, int left, int bottom, int right) {
+    long count = (long) (bottom - top) * (right - left);
+    long half = count / 2;
+    return PackedRGB.pack((int) ((rectangle(this.red, top, left, bottom, right) + half) / count),
+            (int) ((rectangle(this.green, top, left, bottom, right) + half) / count),
+            (int) ((rectangle(this.blue, top, left, bottom, right) + half) / count));
+  }
+
+  //sums a table over rows [top, bottom) and columns [left, right) of the image
+  private long rectangle(long[] table, int top, int left, int bottom, int right) {
+    int stride = this.width + 1;
+    int upper = (top - this.firstRow) * stride;
+    int lower = (bottom - this.firstRow) * stride;
+    return table[lower + right] - table[lower + left] - table[upper + right] + table[upper + left];
+  }
+}
@@ -0,0 +1,566 @@
+package model;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a rectangular image with at least 1 pixel, which is too large to keep in memory.
+ *   Its colors are stored as packed RGB ints in square tiles inside a scratch file, and only a
+ *   bounded number of tiles (the tile budget) are resident in memory at any one time, each read
+ *   into one of a fixed pool of buffers which are reused as tiles are evicted. Every operation
+ *   runs one tile at a time and produces another tiled image with its own scratch file. Once
+ *   closed, the image deletes its scratch file and can no longer be used.
+ */
+public class TiledImage implements ColorMappable, AutoCloseable {
+
+  /**
+   * The width and height, in pixels, of the tiles used when no tile size is specified.
+   */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  /**
+   * The number of tiles which may be resident at once when no tile budget is specified.
+   */
+  public static final int DEFAULT_TILE_BUDGET = 64;
+
+  private static final int MAX_TILE_SIZE = 4096;
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  /**
+   * Invariant: the scratch file holds tilesAcross * tilesDown tiles, in row-major order, each
+   *   of which holds tileSize * tileSize colors of the form 0x00RRGGBB, in row-major order.
+   *   Parts of tiles which lie past the right or bottom edge of the image are never read.
+   * Invariant: the colors in the scratch file are never modified once the image is constructed.
+   * Invariant: resident never holds more than tileBudget tiles, each in its own buffer, in order
+   *   from the least to the most recently used, and each buffer holds the colors of its tile in
+   *   the scratch file.
+   */
+  private final int width;
+  private final int height;
+  private final int tileSize;
+  private final int tileBudget;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private final ScratchFile scratch;
+  private final Cleaner.Cleanable cleanable;
+  private final LinkedHashMap<Integer, ByteBuffer> resident;
+  private ByteBuffer transfer;
+  private boolean closed;
+
+  /**
+   * Constructs the image by streaming its rows from a source into a new scratch file, so that
+   *   no more than one row of the image is held in memory at once.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param tileSize the width and height of each tile, in pixels.
+   * @param tileBudget the maximum number of tiles which may be resident in memory at once.
+   * @param rows the source of the image's rows.
+   * @throws IllegalArgumentException if either dimension is not positive, if the tile size or
+   *                                  budget is out of range, if rows is null, or if rows
+   *                                  supplies a color which is not a valid packed color.
+   * @throws IOException if the scratch file can not be created, or a row can not be read.
+   */
+  public TiledImage(int width, int height, int tileSize, int tileBudget, RowSource rows)
+          throws IllegalArgumentException, IOException {
+    this(width, height, tileSize, tileBudget);
+
+    try {
+      if (rows == null) {
+        throw new IllegalArgumentException("Given source of rows was null.");
+      }
+      this.fill(rows);
+    } catch (IOException | RuntimeException e) {
+      this.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Constructs an image which has the same colors as another image, stored in tiles.
+   * @param other the image to copy.
+   * @param tileSize the width and height of each tile, in pixels.
+   * @param tileBudget the maximum number of tiles which may be resident in memory at once.
+   * @throws IllegalArgumentException if other is null, or the tile size or budget is out of
+   *                                  range.
+   * @throws IOException if the scratch file can not be created or written.
+   */
+  public TiledImage(Image other, int tileSize, int tileBudget)
+          throws IllegalArgumentException, IOException {
+    this(requireImage(other).getWidth(), other.getHeight(), tileSize, tileBudget,
+        other::copyRow);
+  }
+
+  //constructs an image with an empty scratch file, to be filled in by the caller
+  private TiledImage(int width, int height, int tileSize, int tileBudget)
+          throws IllegalArgumentException, IOException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Given dimensions were not positive.");
+    }
+
+    if (tileSize <= 0 || tileSize > MAX_TILE_SIZE) {
+      throw new IllegalArgumentException("Tile size must be within [1," + MAX_TILE_SIZE + "].");
+    }
+
+    if (tileBudget <= 0) {
+      throw new IllegalArgumentException("Tile budget must be positive.");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.tileSize = tileSize;
+    this.tileBudget = tileBudget;
+    this.tilesAcross = (width + tileSize - 1) / tileSize;
+    this.tilesDown = (height + tileSize - 1) / tileSize;
+    this.scratch = new ScratchFile();
+    this.cleanable = CLEANER.register(this, this.scratch);
+    this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    this.closed = false;
+  }
+
+  private static Image requireImage(Image other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
+    return other;
+  }
+
+  /**
+   * Owns the scratch file of one image. It is also the action which the cleaner runs if the
+   *   image becomes unreachable without being closed, so it must not refer to the image.
+   */
+  private static final class ScratchFile implements Runnable {
+    private final FileChannel channel;
+
+    ScratchFile() throws IOException {
+      Path file = Files.createTempFile("image-processor-", ".tiles");
+      file.toFile().deleteOnExit();
+      this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    @Override
+    public void run() {
+      try {
+        this.channel.close();
+      } catch (IOException e) {
+        // the file is also deleted on exit, so there is nothing more to do
+      }
+    }
+  }
+
+  /**
+   * Deletes this image's scratch file. Closing an image more than once has no effect.
+   */
+  @Override
+  public synchronized void close() {
+    this.closed = true;
+    this.resident.clear();
+    this.transfer = null;
+    this.cleanable.clean();
+  }
+
+  /**
+   * Determines whether this image has been closed.
+   * @return true if this image has deleted its scratch file.
+   */
+  public synchronized boolean isClosed() {
+    return this.closed;
+  }
+
+  /**
+   * Gets the width and height of the tiles of this image.
+   * @return the tile size, in pixels.
+   */
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  /**
+   * Gets the maximum number of tiles of this image which may be resident in memory at once.
+   * @return the tile budget.
+   */
+  public int getTileBudget() {
+    return this.tileBudget;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public synchronized Pixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.height || col < 0 || col >= this.width) {
+      throw new IllegalArgumentException("row or column out of range.");
+    }
+    int tile = (row / this.tileSize) * this.tilesAcross + col / this.tileSize;
+    return PackedRGB.toPixel(
+            this.tile(tile).get((row % this.tileSize) * this.tileSize + col % this.tileSize));
+  }
+
+  @Override
+  public void copyRegion(int row, int col, int rows, int cols, int[] dest, int offset,
+                         int stride) throws IllegalArgumentException {
+    PackedImage.checkRegion(this, row, col, rows, cols, dest == null ? -1 : dest.length,
+            offset, stride, 1);
+    this.copyTiles(row, col, rows, cols, dest, offset, stride);
+  }
+
+  @Override
+  public Image flipVertical() {
+    int[] in = new int[this.tileSize * this.tileSize];
+
+    return this.mapTiles((row0, col0, rows, cols, out) -> {
+      this.copyTiles(this.height - row0 - rows, col0, rows, cols, in, 0, this.tileSize);
+      for (int y = 0; y < rows; y++) {
+        System.arraycopy(in, (rows - 1 - y) * this.tileSize, out, y * this.tileSize, cols);
+      }
+    });
+  }
+
+  @Override
+  public Image flipHorizontal() {
+    int[] in = new int[this.tileSize * this.tileSize];
+
+    return this.mapTiles((row0, col0, rows, cols, out) -> {
+      this.copyTiles(row0, this.width - col0 - cols, rows, cols, in, 0, this.tileSize);
+      for (int y = 0; y < rows; y++) {
+        int start = y * this.tileSize;
+        for (int x = 0; x < cols; x++) {
+          out[start + x] = in[start + cols - 1 - x];
+        }
+      }
+    });
+  }
+
+  @Override
+  public Image adjustBrightness(int delta) {
+    return this.mapColors(ColorTables.brightness(delta));
+  }
+
+  @Override
+  public Image grayscale(ColorComponent comp) {
+    return this.mapColors(ColorTables.grayscale(comp));
+  }
+
+  @Override
+  public Image transformColor(double[][] matrix) throws IllegalArgumentException {
+    PackedImage.checkMatrix(matrix);
+    return this.mapColors(ColorTables.transform(matrix));
+  }
+
+  /**
+   * Applies a filter to this image based on a given kernel, one tile at a time. Each tile is
+   *   computed from a copy of the part of this image that the kernel reaches from that tile (the
+   *   tile and a halo of rows and columns around it, resolved by the edge policy where it lies
+   *   outside of the image), so that the kernel is anchored in the same way as SimpleImage. A
+   *   separable or large kernel is instead applied by a row filter, streaming one row of the
+   *   result at a time into the new image.
+   * @param kernel the transformation kernel.
+   * @param policy how neighbors outside of the image are treated.
+   * @return the new, separate image with the filter applied.
+   * @throws IllegalArgumentException if the array is not rectangular, or one of its dimensions
+   *                                  is not odd, or if the policy is null.
+   */
+  @Override
+  public Image filter(double[][] kernel, EdgePolicy policy) throws IllegalArgumentException {
+    Convolution.checkFilter(kernel, policy);
+
+    RowFilter fast = RowFilter.of(this::copyRow, this.width, this.height,
+            kernel, policy);
+    if (fast != null) {
+      try {
+        return new TiledImage(this.width, this.height, this.tileSize, this.tileBudget, fast);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not create scratch file: " + e.getMessage());
+      }
+    }
+
+    int kernelRows = kernel.length;
+    int kernelCols = kernel[0].length;
+    int rowRadius = kernelCols / 2;
+    int colRadius = kernelRows / 2;
+    int haloWidth = this.tileSize + kernelCols - 1;
+    int[] halo = new int[(this.tileSize + kernelRows - 1) * haloWidth];
+
+    return this.mapTiles((row0, col0, rows, cols, out) -> {
+      int haloRow0 = row0 - rowRadius;
+      int haloCol0 = col0 - colRadius;
+      int haloRows = rows + kernelRows - 1;
+      int haloCols = cols + kernelCols - 1;
+      int fromCol = Math.max(0, haloCol0);
+      int toCol = Math.min(this.width, haloCol0 + haloCols);
+
+      Arrays.fill(halo, 0);
+      for (int y = 0; y < haloRows; y++) {
+        int rowHere = policy.resolve(haloRow0 + y, this.height);
+        if (rowHere < 0) {
+          continue;
+        }
+        this.copyTiles(rowHere, fromCol, 1, toCol - fromCol, halo,
+                y * haloWidth + (fromCol - haloCol0), haloWidth);
+        for (int x = 0; x < haloCols; x++) {
+          int colHere = haloCol0 + x;
+          if (colHere < fromCol || colHere >= toCol) {
+            colHere = policy.resolve(colHere, this.width);
+            if (colHere >= 0) {
+              this.copyTiles(rowHere, colHere, 1, 1, halo, y * haloWidth + x, haloWidth);
+            }
+          }
+        }
+      }
+
+      for (int y = 0; y < rows; y++) {
+        for (int x = 0; x < cols; x++) {
+          double newR = 0.0;
+          double newG = 0.0;
+          double newB = 0.0;
+
+          for (int r = 0; r < kernelRows; r++) {
+            int start = (y + r) * haloWidth + x;
+            for (int c = 0; c < kernelCols; c++) {
+              double kernelFactor = kernel[r][c];
+              int color = halo[start + c];
+
+              newR += kernelFactor * PackedRGB.red(color);
+              newG += kernelFactor * PackedRGB.green(color);
+              newB += kernelFactor * PackedRGB.blue(color);
+            }
+          }
+
+          out[y * this.tileSize + x] = PackedRGB.pack(PackedRGB.clamp((int) Math.round(newR)),
+                  PackedRGB.clamp((int) Math.round(newG)),
+                  PackedRGB.clamp((int) Math.round(newB)));
+        }
+      }
+    });
+  }
+
+  /**
+   * Blurs this image by replacing each pixel with the mean color of the square of pixels within
+   *   a given radius of it, clipped to the image. The result is streamed one row at a time into
+   *   the new image, and the summed-area tables it is computed from only ever cover one band of
+   *   rows of this image.
+   * @param radius how far the square reaches from each pixel, in pixels.
+   * @return a new, blurred version of this image.
+   * @throws IllegalArgumentException if the radius is negative.
+   */
+  @Override
+  public Image boxBlur(int radius) throws IllegalArgumentException {
+    BoxBlurFilter.checkRadius(radius);
+
+    try {
+      return new TiledImage(this.width, this.height, this.tileSize, this.tileBudget,
+              new BoxBlurFilter(this::copyRow, this.width, this.height, radius));
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not create scratch file: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Computes one tile of the result of an operation.
+   */
+  private interface TileOperation {
+
+    /**
+     * Writes the colors of one tile of the result into out, in row-major order with a row
+     *   stride of the tile size.
+     * @param row0 the row of this image at which the tile starts.
+     * @param col0 the column of this image at which the tile starts.
+     * @param rows the number of rows of the tile which lie within the image.
+     * @param cols the number of columns of the tile which lie within the image.
+     * @param out the array to write the tile into.
+     */
+    void apply(int row0, int col0, int rows, int cols, int[] out);
+  }
+
+  //produces a new image of the same shape, one tile at a time
+  private Image mapTiles(TileOperation op) {
+    TiledImage result = this.emptyCopy();
+    int[] out = new int[this.tileSize * this.tileSize];
+
+    for (int tileRow = 0; tileRow < this.tilesDown; tileRow++) {
+      for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+        int row0 = tileRow * this.tileSize;
+        int col0 = tileCol * this.tileSize;
+        op.apply(row0, col0, Math.min(this.tileSize, this.height - row0),
+                Math.min(this.tileSize, this.width - col0), out);
+        result.writeTile(tileRow * this.tilesAcross + tileCol, out);
+      }
+    }
+
+    return result;
+  }
+
+  //maps every color one whole tile at a time
+  @Override
+  public Image mapColors(IntUnaryOperator op) {
+    TiledImage result = this.emptyCopy();
+    int[] colors = new int[this.tileSize * this.tileSize];
+
+    for (int tile = 0; tile < this.tilesAcross * this.tilesDown; tile++) {
+      this.readTile(tile, colors);
+      for (int i = 0; i < colors.length; i++) {
+        colors[i] = op.applyAsInt(colors[i]);
+      }
+      result.writeTile(tile, colors);
+    }
+
+    return result;
+  }
+
+  private TiledImage emptyCopy() {
+    try {
+      return new TiledImage(this.width, this.height, this.tileSize, this.tileBudget);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not create scratch file: " + e.getMessage());
+    }
+  }
+
+  //copies a rectangle of this image into dest, starting at offset, with the given row stride,
+  //holding the lock throughout so that no tile it reads from is evicted while it reads
+  private synchronized void copyTiles(int row, int col, int rows, int cols, int[] dest, int offset,
+                          int stride) {
+    for (int y = row; y < row + rows; ) {
+      int tileRow = y / this.tileSize;
+      int yInTile = y % this.tileSize;
+      int rowsHere = Math.min(this.tileSize - yInTile, row + rows - y);
+
+      for (int x = col; x < col + cols; ) {
+        int tileCol = x / this.tileSize;
+        int xInTile = x % this.tileSize;
+        int colsHere = Math.min(this.tileSize - xInTile, col + cols - x);
+        IntBuffer tile = this.tile(tileRow * this.tilesAcross + tileCol);
+
+        for (int i = 0; i < rowsHere; i++) {
+          tile.get((yInTile + i) * this.tileSize + xInTile, dest,
+                  offset + (y - row + i) * stride + (x - col), colsHere);
+        }
+        x += colsHere;
+      }
+      y += rowsHere;
+    }
+  }
+
+  //writes the rows of a source into the scratch file, one row segment per tile at a time
+  private void fill(RowSource rows) throws IOException {
+    int[] row = new int[this.width];
+    ByteBuffer bytes = ByteBuffer.allocateDirect(this.tileSize * Integer.BYTES)
+            .order(ByteOrder.nativeOrder());
+
+    for (int y = 0; y < this.height; y++) {
+      rows.readRow(y, row);
+
+      for (int x = 0; x < this.width; x++) {
+        if ((row[x] & 0xFF000000) != 0) {
+          throw new IllegalArgumentException("Invalid color present at " + y + "," + x + ".");
+        }
+      }
+
+      for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+        int col0 = tileCol * this.tileSize;
+        int cols = Math.min(this.tileSize, this.width - col0);
+        long position = this.tileOffset((y / this.tileSize) * this.tilesAcross + tileCol)
+                + (long) (y % this.tileSize) * this.tileSize * Integer.BYTES;
+
+        bytes.clear();
+        bytes.asIntBuffer().put(row, col0, cols);
+        bytes.limit(cols * Integer.BYTES);
+        while (bytes.hasRemaining()) {
+          position += this.scratch.channel.write(bytes, position);
+        }
+      }
+    }
+  }
+
+  private long tileOffset(int tile) {
+    return (long) tile * this.tileSize * this.tileSize * Integer.BYTES;
+  }
+
+  //copies a whole tile of this image into dest
+  private synchronized void readTile(int tile, int[] dest) {
+    this.tile(tile).get(0, dest);
+  }
+
+  //writes a whole tile of this image from src, straight to the scratch file, and into its
+  //buffer if it is resident
+  private synchronized void writeTile(int tile, int[] src) throws IllegalStateException {
+    if (this.closed) {
+      throw new IllegalStateException("Image has already been closed.");
+    }
+
+    ByteBuffer bytes = this.resident.get(tile);
+    if (bytes == null) {
+      if (this.transfer == null) {
+        this.transfer = ByteBuffer.allocateDirect(src.length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder());
+      }
+      bytes = this.transfer;
+    }
+    bytes.clear();
+    bytes.asIntBuffer().put(0, src);
+    try {
+      long position = this.tileOffset(tile);
+      while (bytes.hasRemaining()) {
+        position += this.scratch.channel.write(bytes, position);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write tile " + tile + ": " + e.getMessage());
+    }
+  }
+
+  //gets the buffer of a tile, reading the tile from the scratch file into the buffer of the
+  //least recently used tile if it is not already resident and the budget is spent. Callers must
+  //hold the lock for as long as they use the buffer.
+  private IntBuffer tile(int tile) throws IllegalStateException {
+    if (this.closed) {
+      throw new IllegalStateException("Image has already been closed.");
+    }
+
+    ByteBuffer bytes = this.resident.get(tile);
+    if (bytes == null) {
+      if (this.resident.size() < this.tileBudget) {
+        bytes = ByteBuffer.allocateDirect(this.tileSize * this.tileSize * Integer.BYTES)
+                .order(ByteOrder.nativeOrder());
+      } else {
+        Iterator<ByteBuffer> eldest = this.resident.values().iterator();
+        bytes = eldest.next();
+        eldest.remove();
+      }
+
+      //the end of the last tile may lie past the end of the file, and is never read
+      bytes.clear();
+      try {
+        long position = this.tileOffset(tile);
+        while (bytes.hasRemaining()) {
+          int read = this.scratch.channel.read(bytes, position);
+          if (read < 0) {
+            break;
+          }
+          position += read;
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not read tile " + tile + ": " + e.getMessage());
+      }
+      this.resident.put(tile, bytes);
+    }
+    return bytes.clear().asIntBuffer();
+  }
+}
@@ -0,0 +1,67 @@
+package model;
+
+/**
+ * Controls how filters divide an image into tiles so that the rows a kernel reads stay in
+ *   cache. A filter whose kernel is applied directly works through each band of rows one strip
+ *   of columns at a time, reading every row of the strip (along with the halo of columns the
+ *   kernel reaches past it) in storage order; the rows of the halo are shared with the strip's
+ *   previous row, and are still cached when they are read again. Unless a width is set, each
+ *   strip is as wide as lets the rows of the strip which the kernel reads at once fill half of
+ *   an estimated cache of 256KB, the size of the L2 cache of one core of most current
+ *   processors, so that they stay cached alongside the row being written. Every pixel is
+ *   computed in exactly the same way whatever the width, so the width never changes a result.
+ */
+public final class Tiling {
+
+  /**
+   * The tile width which asks for strips sized to the estimated cache.
+   */
+  public static final int AUTO = 0;
+
+  //the estimated size of the cache of one core, in bytes, half of which the rows a kernel
+  //reads may fill
+  private static final int CACHE_BYTES = 1 << 18;
+
+  //the narrowest strip chosen, below which the halo of the kernel costs more than it saves
+  private static final int MIN_COLUMNS = 64;
+
+  private static volatile int tileWidth = AUTO;
+
+  private Tiling() {
+    // static configuration only
+  }
+
+  /**
+   * Sets the number of columns in each tile.
+   * @param columns the width of the tiles, or {@link #AUTO} to size them to the estimated cache.
+   * @throws IllegalArgumentException if columns is negative.
+   */
+  public static void setTileWidth(int columns) throws IllegalArgumentException {
+    if (columns < 0) {
+      throw new IllegalArgumentException("Tile width must not be negative.");
+    }
+    tileWidth = columns;
+  }
+
+  /**
+   * Gets the number of columns in each tile.
+   * @return the width of the tiles if it was set, or else {@link #AUTO}.
+   */
+  public static int getTileWidth() {
+    return tileWidth;
+  }
+
+  /**
+   * Chooses the width of the strips of one filter.
+   * @param kernelRows the number of rows of the kernel, which the filter reads at once.
+   * @param sampleBytes the number of bytes of each pixel the filter reads.
+   * @return the number of columns in each strip, which may be more than the width of the image.
+   */
+  static int columns(int kernelRows, int sampleBytes) {
+    int columns = tileWidth;
+    if (columns != AUTO) {
+      return columns;
+    }
+    return Math.max(MIN_COLUMNS, CACHE_BYTES / 2 / (kernelRows * sampleBytes));
+  }
+}
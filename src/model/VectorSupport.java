@@ -0,0 +1,73 @@
+package model;
+
+/**
+ * Controls whether image operations use vector instructions for their per-pixel arithmetic.
+ *   Brightness changes and color transformations of packed and planar images, and the sums of
+ *   a filter over packed colors, are then computed several pixels at a time through the
+ *   incubating Java Vector API. The vector code is only used when the
+ *   {@code jdk.incubator.vector} module was added when the program was started
+ *   ({@code --add-modules jdk.incubator.vector}), its classes (built from src-vector) are on
+ *   the class path, and the hardware supports vectors; otherwise the scalar code is used. Both
+ *   produce exactly the same colors.
+ */
+public final class VectorSupport {
+
+  private static final String MODULE = "jdk.incubator.vector";
+  private static final String IMPLEMENTATION = "model.VectorPixelKernels";
+
+  private static final PixelKernels KERNELS = load();
+  private static volatile boolean enabled = KERNELS != null;
+
+  private VectorSupport() {
+    // static configuration only
+  }
+
+  //finds the vector implementation, without ever linking the Vector API when it is absent
+  private static PixelKernels load() {
+    if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+      return null;
+    }
+
+    try {
+      PixelKernels kernels = (PixelKernels) Class.forName(IMPLEMENTATION)
+              .getDeclaredConstructor().newInstance();
+      return kernels.lanes() > 1 ? kernels : null;
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Determines whether vector instructions can be used.
+   * @return true if the Vector API and its implementation are present, and the hardware
+   *         processes more than one pixel at a time.
+   */
+  public static boolean isAvailable() {
+    return KERNELS != null;
+  }
+
+  /**
+   * Determines whether vector instructions are being used.
+   * @return true if they are available and have not been turned off.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Turns the use of vector instructions on or off. Turning them on has no effect unless they
+   *   are available.
+   * @param enable whether to use vector instructions.
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable && KERNELS != null;
+  }
+
+  /**
+   * Gets the vector implementation of the per-pixel arithmetic, if it is in use.
+   * @return the implementation, or null if the scalar code should be used.
+   */
+  static PixelKernels kernels() {
+    return enabled ? KERNELS : null;
+  }
+}
@@ -0,0 +1,189 @@
+package utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Image;
+import model.PackedRGB;
+import model.Parallelism;
+import model.RasterImage;
+
+/**
+ * Reads and writes uncompressed BMP files with 24 or 32 bits to each pixel straight through a
+ *   {@link FileChannel}, copying whole rows of blue, green and red bytes between the file and
+ *   the colors of an image. The rows of a BMP file run from the bottom of the image up, unless
+ *   its height is negative, and each is padded to a multiple of 4 bytes. Files larger than a
+ *   threshold are mapped into memory rather than read. Other kinds of BMP file, such as those
+ *   with a palette or compressed rows, are left to ImageIO.
+ */
+final class BmpCodec {
+
+  private static final int FILE_HEADER_SIZE = 14;
+  private static final int INFO_HEADER_SIZE = 40;
+
+  //the largest header read: a file header, the largest (V5) info header, and three color masks
+  private static final int MAX_HEADER_SIZE = FILE_HEADER_SIZE + 124 + 12;
+
+  private static final int BI_RGB = 0;
+  private static final int BI_BITFIELDS = 3;
+
+  //files at least this large are mapped into memory rather than read
+  private static final long MAP_THRESHOLD = 1 << 24;
+
+  //the number of bytes of rows to aim for in each write
+  private static final int WRITE_BYTES = 1 << 20;
+
+  private BmpCodec() {
+    // static methods only
+  }
+
+  /**
+   * Reads an uncompressed BMP file with 24 or 32 bits to each pixel into an image.
+   * @param path the path of the file.
+   * @return the image, or null if the file is a kind of BMP file which this codec does not read.
+   * @throws EOFException if the file ends before its last row.
+   * @throws IOException if the file could not be read, its header is not valid, or it is too
+   *                     large to read into an image.
+   */
+  static Image read(Path path) throws IOException {
+    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate((int) Math.min(MAX_HEADER_SIZE, in.size()))
+              .order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (in.read(header, header.position()) < 0) {
+          break;
+        }
+      }
+      if (header.position() < FILE_HEADER_SIZE + INFO_HEADER_SIZE
+              || header.get(0) != 'B' || header.get(1) != 'M') {
+        return null;
+      }
+
+      long rasterOffset = header.getInt(10) & 0xFFFFFFFFL;
+      int infoSize = header.getInt(14);
+      int width = header.getInt(18);
+      int height = header.getInt(22);
+      int planes = header.getShort(26);
+      int bits = header.getShort(28);
+      int compression = header.getInt(30);
+      if (infoSize < INFO_HEADER_SIZE || (bits != 24 && bits != 32)
+              || (compression != BI_RGB && (bits != 32 || compression != BI_BITFIELDS))) {
+        return null;
+      }
+      if (compression == BI_BITFIELDS && !(header.position() >= FILE_HEADER_SIZE + 52
+              && header.getInt(54) == 0xFF0000 && header.getInt(58) == 0xFF00
+              && header.getInt(62) == 0xFF)) {
+        return null;
+      }
+      if (planes != 1 || width <= 0 || height == 0 || height == Integer.MIN_VALUE) {
+        throw new IOException("Header of " + path + " is not valid.");
+      }
+
+      boolean topDown = height < 0;
+      int rows = Math.abs(height);
+      int pixelBytes = bits / 8;
+      long stride = ((long) width * bits + 31) / 32 * 4;
+      long rasterSize = stride * rows;
+      if ((long) width * rows > Integer.MAX_VALUE || rasterSize > Integer.MAX_VALUE) {
+        throw new IOException(path + " is too large to read.");
+      }
+      if (rasterOffset + rasterSize > in.size()) {
+        throw new EOFException("The raster of " + path + " ended early.");
+      }
+
+      ByteBuffer raster;
+      if (rasterSize >= MAP_THRESHOLD) {
+        raster = in.map(FileChannel.MapMode.READ_ONLY, rasterOffset, rasterSize);
+      } else {
+        raster = ByteBuffer.allocate((int) rasterSize);
+        while (raster.hasRemaining()) {
+          if (in.read(raster, rasterOffset + raster.position()) < 0) {
+            throw new EOFException("The raster of " + path + " ended early.");
+          }
+        }
+      }
+
+      int[] rgb = new int[width * rows];
+      Parallelism.forEachBand(rows, width, (from, to) -> {
+        byte[] line = new byte[width * pixelBytes];
+        for (int row = from; row < to; row++) {
+          int fileRow = topDown ? row : rows - 1 - row;
+          raster.get((int) (fileRow * stride), line);
+          for (int col = 0, k = 0; col < width; col++, k += pixelBytes) {
+            rgb[row * width + col] = PackedRGB.pack(line[k + 2] & 0xFF, line[k + 1] & 0xFF,
+                    line[k] & 0xFF);
+          }
+        }
+      });
+      return new RasterImage(width, rows, rgb);
+    }
+  }
+
+  /**
+   * Writes an image to a 24-bit uncompressed BMP file, with its rows from the bottom up,
+   *   replacing the file if it exists. The file is written beside its path and moved into place,
+   *   so a failed write leaves the file as it was.
+   * @param image the image to write.
+   * @param path the path of the file.
+   * @throws IllegalArgumentException if the image is too large for a BMP file.
+   * @throws IOException if the file could not be written.
+   */
+  static void write(Image image, Path path) throws IllegalArgumentException, IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    long stride = ((long) width * 24 + 31) / 32 * 4;
+    long fileSize = FILE_HEADER_SIZE + INFO_HEADER_SIZE + stride * height;
+    if (fileSize > 0xFFFFFFFFL || stride > Integer.MAX_VALUE / 2) {
+      throw new IllegalArgumentException("Image is too large to save as a BMP file.");
+    }
+    ImageUtils.replaceFile(path, file -> writeTo(image, file));
+  }
+
+  private static void writeTo(Image image, Path path) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    long stride = ((long) width * 24 + 31) / 32 * 4;
+    long fileSize = FILE_HEADER_SIZE + INFO_HEADER_SIZE + stride * height;
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE + INFO_HEADER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .put((byte) 'B').put((byte) 'M').putInt((int) fileSize).putInt(0)
+            .putInt(FILE_HEADER_SIZE + INFO_HEADER_SIZE)
+            .putInt(INFO_HEADER_SIZE).putInt(width).putInt(height).putShort((short) 1)
+            .putShort((short) 24).putInt(BI_RGB).putInt((int) (stride * height))
+            .putInt(0).putInt(0).putInt(0).putInt(0)
+            .flip();
+
+    int batch = (int) Math.max(1, Math.min(height, WRITE_BYTES / stride));
+    byte[] rgb = new byte[batch * width * 3];
+    byte[] rows = new byte[(int) (batch * stride)];
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      writeFully(out, header);
+      for (int bottom = height; bottom > 0; bottom -= batch) {
+        int count = Math.min(batch, bottom);
+        int top = bottom - count;
+        image.copyRegion(top, 0, count, width, rgb, 0, width * 3);
+
+        //the bottom row of the batch comes first, and the padding after each row stays 0
+        for (int row = count - 1, i = 0; row >= 0; row--, i += (int) stride) {
+          for (int k = row * width * 3, j = i, end = k + width * 3; k < end; k += 3, j += 3) {
+            rows[j] = rgb[k + 2];
+            rows[j + 1] = rgb[k + 1];
+            rows[j + 2] = rgb[k];
+          }
+        }
+        writeFully(out, ByteBuffer.wrap(rows, 0, (int) (count * stride)));
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+}
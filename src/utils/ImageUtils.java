@@ -1,85 +1,373 @@
 package utils;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
-import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.swing.ImageIcon;
 
 import model.ColorComponent;
 import model.Image;
-import model.Pixel;
-import model.RGBPixel;
-import model.SimpleImage;
+import model.MappedImage;
+import model.PackedImage;
+import model.PackedRGB;
+import model.RasterImage;
+import model.RowSource;
+import model.ScanlinePipeline;
+import model.TiledImage;
 
 
 /**
  * This class contains utility methods to read a PPM image from file and record its contents as
- * an Image. It also contains a method to save an Image object as a PPM file.
+ * an Image. It also contains methods to save an Image object as a PPM file, either plain (P3) or
+ * binary (P6), or as a binary (P5) PGM file. Binary PPM and PGM files, with up to 16 bits to
+ * each sample, are read wherever plain PPM files are, and can also be mapped into memory rather
+ * than read. PPM files can also be streamed through a ScanlinePipeline, a row at a time, from
+ * one file to another. PNG files are written by a parallel encoder, and uncompressed BMP files
+ * are read and written directly. IPR files hold the colors of an Image exactly as they are held
+ * in memory, optionally compressed, and can be saved, read by bands of rows, or mapped into
+ * memory with little more work than a copy. Other formats are read and written through
+ * ImageIO, with the colors copied between the rasters of BufferedImages and Images in bulk.
  */
 public class ImageUtils {
 
+  //the largest maximum value of a binary netpbm file, and of a table of scaled values
+  private static final int MAX_SCALED_VALUE = 65535;
+
   /**
-   * Read an image file in the PPM format return it as an Image.
+   * Read an image file in the PPM format, plain or binary, or the binary PGM format, and return
+   * it as an Image. Images too large to comfortably hold in memory are streamed into a TiledImage
+   * instead.
    *
    * @param filename the path of the file.
    */
   public static Image readPPM(String filename)
           throws FileNotFoundException {
-    Scanner sc;
+    return readRows(openPPM(filename), filename);
+  }
+
+  /**
+   * Opens a binary PPM or PGM file with 8 bits to each sample as a MappedImage, which reads its
+   * colors straight out of the file mapped into memory, so that opening even a large image is
+   * nearly instant and copies nothing until the image is first operated on. Any other file
+   * which readPPM can read is read as readPPM reads it.
+   *
+   * @param filename the path of the file.
+   * @throws FileNotFoundException if the file can not be found, or is not a PPM or PGM file.
+   */
+  public static Image mapPPM(String filename)
+          throws FileNotFoundException {
+    PPMRows ppm = openPPM(filename);
+    long length = (long) ppm.width * ppm.height * (ppm.gray ? 1 : 3);
+    if (ppm.raster == null || ppm.maxValue != 255 || length > Integer.MAX_VALUE) {
+      return readRows(ppm, filename);
+    }
+
+    long offset = ppm.in.offset();
+    ppm.close();
+
+    try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+      if (offset + length > channel.size()) {
+        throw new IllegalStateException("Could not read " + filename + ".");
+      }
+      return new MappedImage(ppm.width, ppm.height,
+              channel.map(FileChannel.MapMode.READ_ONLY, offset, length), ppm.gray);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not map " + filename + ".");
+    }
+  }
 
+  //reads the rows of an open file into an image, and closes the file
+  private static Image readRows(PPMRows ppm, String filename) {
     try {
-      sc = new Scanner(new FileInputStream(filename));
-    } catch (FileNotFoundException e) {
-      throw new FileNotFoundException("File " + filename + " not found!");
+      if (tooLargeForHeap(ppm.width, ppm.height)) {
+        try {
+          return new TiledImage(ppm.width, ppm.height, TiledImage.DEFAULT_TILE_SIZE,
+                  TiledImage.DEFAULT_TILE_BUDGET, ppm);
+        } catch (IOException e) {
+          throw new IllegalStateException("Could not create tiles for " + filename + ".");
+        }
+      }
+
+      int[] rgb = new int[ppm.width * ppm.height];
+      int[] row = new int[ppm.width];
+
+      for (int i = 0; i < ppm.height; i++) {
+        ppm.readRow(i, row);
+        System.arraycopy(row, 0, rgb, i * ppm.width, ppm.width);
+      }
+
+      return new PackedImage(ppm.width, ppm.height, rgb);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read " + filename + ".");
+    } finally {
+      ppm.close();
     }
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
+  }
+
+  /**
+   * Read an image file in the PPM format and stream it into a TiledImage, so that no more than
+   * one row of it is held in memory at once.
+   *
+   * @param filename   the path of the file.
+   * @param tileSize   the width and height of each tile, in pixels.
+   * @param tileBudget the maximum number of tiles of the image to map into memory at once.
+   * @throws IOException if the file can not be found or read, or the tiles can not be created.
+   */
+  public static TiledImage readPPMTiled(String filename, int tileSize, int tileBudget)
+          throws IOException {
+    PPMRows ppm = openPPM(filename);
+
+    try {
+      return new TiledImage(ppm.width, ppm.height, tileSize, tileBudget, ppm);
+    } finally {
+      ppm.close();
+    }
+  }
+
+  /**
+   * Opens an image file in the PPM format as a pipeline which reads each row from the file as
+   * it is needed, so that the image can be processed and saved without ever being held in
+   * memory. The file stays open until the pipeline, or one made from it, is closed.
+   *
+   * @param filename the path of the file.
+   * @throws FileNotFoundException if the file can not be found, or is not a PPM file.
+   */
+  public static ScanlinePipeline streamPPM(String filename) throws FileNotFoundException {
+    PPMRows ppm = openPPM(filename);
+
+    try {
+      return new ScanlinePipeline(ppm.width, ppm.height, ppm);
+    } catch (RuntimeException e) {
+      ppm.close();
+      throw e;
+    }
+  }
+
+  //the rows of an open netpbm file, read in order, with each channel scaled to a maximum value
+  //of 255 through a table of every value up to the file's maximum. Plain (P3) files are read a
+  //number at a time, and binary (P6 and P5) files a row of bytes at a time, with two bytes to
+  //each sample when the maximum value is above 255
+  private static final class PPMRows implements RowSource, Closeable {
+
+    private final NetpbmReader in;
+    private final int width;
+    private final int height;
+    private final int maxValue;
+    private final int[] scale;
+    private final boolean gray;
+    private final byte[] raster;
+
+    //reads the header of the file, after its magic number
+    private PPMRows(NetpbmReader in, String magic) throws IOException {
+      this.in = in;
+      this.width = in.nextInt();
+      this.height = in.nextInt();
+      this.maxValue = in.nextInt();
+      this.gray = magic.equals("P5");
+
+      this.scale = new int[Math.min(this.maxValue, MAX_SCALED_VALUE) + 1];
+      for (int v = 0; v < this.scale.length; v++) {
+        this.scale[v] = (int) Math.round(v * (255.0 / this.maxValue));
+      }
+
+      if (magic.equals("P3")) {
+        this.raster = null;
+      } else {
+        if (this.maxValue < 1 || this.maxValue > MAX_SCALED_VALUE) {
+          throw new InputMismatchException("Maximum value of a binary file is out of range.");
+        }
+        in.skipRasterSeparator();
+        int samples = this.width * (this.gray ? 1 : 3);
+        this.raster = new byte[this.maxValue > 255 ? 2 * samples : samples];
       }
     }
 
-    //now set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
+    @Override
+    public void readRow(int row, int[] dest) throws IOException {
+      if (this.raster != null) {
+        this.readRawRow(dest);
+        return;
+      }
+      for (int j = 0; j < dest.length; j++) {
+        int r = this.scaled(this.in.nextInt());
+        int g = this.scaled(this.in.nextInt());
+        int b = this.scaled(this.in.nextInt());
+        dest[j] = PackedRGB.pack(r, g, b);
+      }
+    }
 
-    String token;
+    //unpacks a row of the raster, taking the bytes of a full-range color file as they are
+    private void readRawRow(int[] dest) throws IOException {
+      byte[] raster = this.raster;
+      this.in.readFully(raster);
 
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new FileNotFoundException("File found was not raw ppm");
+      if (this.maxValue == 255 && !this.gray) {
+        for (int j = 0, k = 0; j < dest.length; j++, k += 3) {
+          dest[j] = (raster[k] & 0xFF) << 16 | (raster[k + 1] & 0xFF) << 8 | raster[k + 2] & 0xFF;
+        }
+        return;
+      }
+
+      int step = this.maxValue > 255 ? 2 : 1;
+      for (int j = 0, k = 0; j < dest.length; j++) {
+        int r = this.scaled(this.sample(k));
+        k += step;
+        if (this.gray) {
+          dest[j] = PackedRGB.pack(r, r, r);
+          continue;
+        }
+        int g = this.scaled(this.sample(k));
+        k += step;
+        int b = this.scaled(this.sample(k));
+        k += step;
+        dest[j] = PackedRGB.pack(r, g, b);
+      }
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
 
-    Pixel[][] pixels = new Pixel[width][height];
+    //the sample starting at an index of the raster, whose bytes are in big-endian order
+    private int sample(int index) {
+      if (this.maxValue > 255) {
+        return (this.raster[index] & 0xFF) << 8 | this.raster[index + 1] & 0xFF;
+      }
+      return this.raster[index] & 0xFF;
+    }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = (int) Math.round(sc.nextInt() * (255.0 / maxValue));
-        int g = (int) Math.round(sc.nextInt() * (255.0 / maxValue));
-        int b = (int) Math.round(sc.nextInt() * (255.0 / maxValue));
-        pixels[j][i] = new RGBPixel(r, g, b);
+    //a sample scaled to a maximum of 255, which must not be above the file's maximum value
+    private int scaled(int value) {
+      if (value > this.maxValue) {
+        throw new InputMismatchException("Value " + value + " is above the maximum value "
+                + this.maxValue + ".");
       }
+      return value < this.scale.length
+              ? this.scale[value] : (int) Math.round(value * (255.0 / this.maxValue));
     }
 
-    return new SimpleImage(pixels);
+    @Override
+    public void close() {
+      closeQuietly(this.in);
+    }
+  }
+
+  //opens a netpbm file, checks that it is a PPM file or a binary PGM file, and reads its header
+  private static PPMRows openPPM(String filename) throws FileNotFoundException {
+    NetpbmReader in;
+
+    try {
+      in = new NetpbmReader(new FileInputStream(filename));
+    } catch (FileNotFoundException e) {
+      throw new FileNotFoundException("File " + filename + " not found!");
+    }
+
+    try {
+      String magic = in.next();
+      if (!magic.equals("P3") && !magic.equals("P6") && !magic.equals("P5")) {
+        closeQuietly(in);
+        throw new FileNotFoundException("File found was not raw ppm");
+      }
+      return new PPMRows(in, magic);
+    } catch (FileNotFoundException e) {
+      throw e;
+    } catch (IOException e) {
+      closeQuietly(in);
+      throw new IllegalStateException("Could not read " + filename + ".");
+    } catch (RuntimeException e) {
+      closeQuietly(in);
+      throw e;
+    }
+  }
+
+  //closes a file which was only read from, where failing to close it loses nothing
+  private static void closeQuietly(Closeable file) {
+    try {
+      file.close();
+    } catch (IOException e) {
+      // nothing was written to the file
+    }
+  }
+
+  //determines whether an image of these dimensions would take more than a quarter of the heap
+  private static boolean tooLargeForHeap(int width, int height) {
+    return (long) width * height * Integer.BYTES > Runtime.getRuntime().maxMemory() / 4;
+  }
+
+  /**
+   * Reads an IPR file, which holds the colors of an image as they are held in memory, into an
+   *   image. Its tiles are decompressed, if they were compressed, and checked against their
+   *   checksums on as many threads as Parallelism allows.
+   *
+   * @param filename the path of the file.
+   * @throws FileNotFoundException if the file can not be found.
+   * @throws IOException if the file could not be read, is not an IPR file, or fails its
+   *                     checksums.
+   */
+  public static Image readIPR(String filename) throws IOException {
+    return IprCodec.read(Path.of(filename), 0, -1);
+  }
+
+  /**
+   * Reads a band of rows of an IPR file into an image, as wide as the file's, reading only the
+   *   tiles of the file which cover the band.
+   *
+   * @param filename the path of the file.
+   * @param row the first row to read.
+   * @param rows the number of rows to read.
+   * @throws FileNotFoundException if the file can not be found.
+   * @throws IllegalArgumentException if the rows are not within the image.
+   * @throws IOException if the file could not be read, is not an IPR file, or fails its
+   *                     checksums.
+   */
+  public static Image readIPR(String filename, int row, int rows) throws IOException {
+    if (rows <= 0) {
+      throw new IllegalArgumentException("Given number of rows was not positive.");
+    }
+    return IprCodec.read(Path.of(filename), row, rows);
+  }
+
+  /**
+   * Maps an uncompressed IPR file into memory as an OffHeapImage, whose colors are read straight
+   *   out of the file, so that opening it copies nothing onto the heap. A compressed IPR file is
+   *   read as readIPR reads it.
+   *
+   * @param filename the path of the file.
+   * @throws FileNotFoundException if the file can not be found.
+   * @throws IOException if the file could not be read, is not an IPR file, or fails its
+   *                     checksums.
+   */
+  public static Image mapIPR(String filename) throws IOException {
+    return IprCodec.map(Path.of(filename));
   }
 
   /**
    * Read an image file in a java supported image format and returns it as an Image.
+   * Uncompressed BMP files with 24 or 32 bits to each pixel are read straight from the file.
    *
    * @param filename the path of the file.
    */
@@ -92,26 +380,155 @@ public class ImageUtils {
       throw new FileNotFoundException("File " + filename + " not found!");
     }
 
-    BufferedImage img = ImageIO.read(imageFile);
+    if (getFileType(filename).equals("bmp")) {
+      Image bmp = BmpCodec.read(imageFile.toPath());
+      if (bmp != null) {
+        return bmp;
+      }
+    }
+    return toImage(ImageIO.read(imageFile));
+  }
+
+  /**
+   * Copies the colors of a BufferedImage into an Image, ignoring any alpha. The common types
+   *   which image files are decoded into, with 8 bits to each channel in an int or in separate
+   *   bytes, or a single gray byte, are copied straight out of their rasters; any other type is
+   *   converted through its color model. Gray bytes are taken as the gray value of each channel,
+   *   as they are in a PGM file. The colors are copied into a RasterImage, which can be drawn
+   *   without converting them again.
+   *
+   * @param img the image to copy.
+   * @return an image with the same colors.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static Image toImage(BufferedImage img) throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
 
     int width = img.getWidth();
     int height = img.getHeight();
+    int[] rgb = new int[width * height];
+    WritableRaster raster = img.getRaster();
+    int x0 = -raster.getSampleModelTranslateX();
+    int y0 = -raster.getSampleModelTranslateY();
+
+    switch (img.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB: {
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = buffer.getData();
+        for (int i = 0; i < height; i++) {
+          int from = buffer.getOffset() + model.getOffset(x0, y0 + i);
+          for (int j = 0; j < width; j++) {
+            rgb[i * width + j] = data[from + j] & 0xFFFFFF;
+          }
+        }
+        break;
+      }
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+      case BufferedImage.TYPE_BYTE_GRAY: {
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = buffer.getData();
+        int[] bands = model.getBandOffsets();
+        int red = bands[0];
+        int green = bands[bands.length > 1 ? 1 : 0];
+        int blue = bands[bands.length > 1 ? 2 : 0];
+        int stride = model.getPixelStride();
+        for (int i = 0; i < height; i++) {
+          int from = buffer.getOffset() + (y0 + i) * model.getScanlineStride() + x0 * stride;
+          for (int j = 0, k = from; j < width; j++, k += stride) {
+            rgb[i * width + j] = PackedRGB.pack(data[k + red] & 0xFF, data[k + green] & 0xFF,
+                    data[k + blue] & 0xFF);
+          }
+        }
+        break;
+      }
+      default:
+        img.getRGB(0, 0, width, height, rgb, 0, width);
+        for (int i = 0; i < rgb.length; i++) {
+          rgb[i] &= 0xFFFFFF;
+        }
+        break;
+    }
 
-    Pixel[][] pixels = new Pixel[width][height];
+    return new RasterImage(width, height, rgb);
+  }
 
+  /**
+   * Copies the colors of an Image into a new BufferedImage of a given type. Images with 8 bits
+   *   to each channel in an int or in separate bytes are filled straight through their rasters,
+   *   and gray images are filled with the luma of each color, as a PGM file is. Any other type
+   *   is filled through its color model.
+   *
+   * @param image the image to copy.
+   * @param type the type of BufferedImage to make, such as BufferedImage.TYPE_INT_RGB.
+   * @return a BufferedImage with the same colors.
+   * @throws IllegalArgumentException if the image is null, or the type is not a predefined type
+   *                                  other than TYPE_CUSTOM.
+   */
+  public static BufferedImage toBufferedImage(Image image, int type)
+          throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Given image was null.");
+    }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int pixel = img.getRGB(j, i);
-        Color color = new Color(pixel, true);
-        int r = color.getRed();
-        int g = color.getGreen();
-        int b = color.getBlue();
-        pixels[j][i] = new RGBPixel(r, g, b);
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage img = new BufferedImage(width, height, type);
+    DataBuffer buffer = img.getRaster().getDataBuffer();
+    int[] row = new int[width];
+
+    switch (type) {
+      case BufferedImage.TYPE_INT_RGB:
+        image.copyColors(((DataBufferInt) buffer).getData());
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR: {
+        byte[] data = ((DataBufferByte) buffer).getData();
+        for (int i = 0, k = 0; i < height; i++) {
+          image.copyRow(i, row);
+          for (int j = 0; j < width; j++, k += 3) {
+            data[k] = (byte) PackedRGB.blue(row[j]);
+            data[k + 1] = (byte) PackedRGB.green(row[j]);
+            data[k + 2] = (byte) PackedRGB.red(row[j]);
+          }
+        }
+        break;
       }
+      case BufferedImage.TYPE_BYTE_GRAY: {
+        byte[] data = ((DataBufferByte) buffer).getData();
+        for (int i = 0, k = 0; i < height; i++) {
+          image.copyRow(i, row);
+          for (int j = 0; j < width; j++, k++) {
+            data[k] = (byte) PackedRGB.component(row[j], ColorComponent.Luma);
+          }
+        }
+        break;
+      }
+      default:
+        for (int i = 0; i < height; i++) {
+          image.copyRow(i, row);
+          img.setRGB(0, i, width, 1, row, 0, width);
+        }
+        break;
     }
+    return img;
+  }
 
-    return new SimpleImage(pixels);
+  /**
+   * Makes an icon which displays an Image. The icon draws a RasterImage, or the colors of a
+   *   PackedImage, straight from the array which holds them, so displaying the result of an
+   *   operation on either does not copy its colors. Any other image is copied.
+   *
+   * @param image the image to display.
+   * @return an icon which displays the image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static ImageIcon makeImageIcon(Image image) throws IllegalArgumentException {
+    return new ImageIcon(RasterImage.of(image).getBufferedImage());
   }
 
   /**
@@ -123,27 +540,237 @@ public class ImageUtils {
    */
   public static void savePPM(Image image, String name)
           throws IOException {
+    writePPM(image.getWidth(), image.getHeight(), image::copyRow, name);
+  }
+
+  /**
+   * Saves the rows of a pipeline as a PPM file, writing each row as soon as it is computed. The
+   * pipeline is read to its end, but is not closed.
+   *
+   * @param rows the pipeline to save, none of whose rows have been read yet.
+   * @param name the filepath to save the image to.
+   * @throws IOException if there is an error reading the pipeline or writing to the file.
+   */
+  public static void savePPM(ScanlinePipeline rows, String name)
+          throws IOException {
+    writePPM(rows.getWidth(), rows.getHeight(), rows, name);
+  }
+
+  //writes an image, a row at a time, as a PPM file, with the digits of each value of a row
+  //written into one block of bytes rather than into a string for each value
+  private static void writePPM(int width, int height, RowSource rows, String name)
+          throws IOException {
+    replaceFile(Path.of(name), temp -> writePPM(width, height, rows, temp));
+  }
+
+  private static void writePPM(int width, int height, RowSource rows, Path file)
+          throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+      String header = "P3\n#Created by Image Processor\n" + width + " " + height + "\n255\n";
+      out.write(header.getBytes(StandardCharsets.US_ASCII));
+
+      int[] row = new int[width];
+      byte[] text = new byte[3 * 4 * width];
+
+      for (int i = 0; i < height; i++) {
+        rows.readRow(i, row);
+        int length = 0;
+        for (int j = 0; j < width; j++) {
+          length = writeValue(PackedRGB.red(row[j]), text, length);
+          length = writeValue(PackedRGB.green(row[j]), text, length);
+          length = writeValue(PackedRGB.blue(row[j]), text, length);
+        }
+        out.write(text, 0, length);
+      }
+    }
+  }
+
+  //writes the digits of a value in [0,255], and a line break, into text at an index, and
+  //returns the index just past them
+  private static int writeValue(int value, byte[] text, int index) {
+    if (value >= 100) {
+      text[index++] = (byte) ('0' + value / 100);
+    }
+    if (value >= 10) {
+      text[index++] = (byte) ('0' + value / 10 % 10);
+    }
+    text[index++] = (byte) ('0' + value % 10);
+    text[index++] = '\n';
+    return index;
+  }
+
+  /**
+   * Saves the information in an Image object as a binary (P6) PPM file, whose colors are written
+   * as bytes rather than as text, which makes the file about a quarter of the size of a plain
+   * PPM file and much faster to read and write.
+   * Like every PPM and PGM file saved here, the file is written beside its path and then moved
+   * into place, so an image mapped from the file by mapPPM can be saved back to it.
+   *
+   * @param image the image to save.
+   * @param name  the filepath to save the image to.
+   * @throws IOException if there is an error writing to the file.
+   */
+  public static void saveRawPPM(Image image, String name)
+          throws IOException {
+    int width = image.getWidth();
+    writeRaw(width, image.getHeight(),
+        (row, raster) -> image.copyRegion(row, 0, 1, width, raster, 0, raster.length),
+        name, "P6");
+  }
+
+  /**
+   * Saves the rows of a pipeline as a binary (P6) PPM file, writing each row as soon as it is
+   * computed. The pipeline is read to its end, but is not closed.
+   *
+   * @param rows the pipeline to save, none of whose rows have been read yet.
+   * @param name the filepath to save the image to.
+   * @throws IOException if there is an error reading the pipeline or writing to the file.
+   */
+  public static void saveRawPPM(ScanlinePipeline rows, String name)
+          throws IOException {
+    writeRaw(rows.getWidth(), rows.getHeight(), rasterOf(rows, rows.getWidth(), false),
+            name, "P6");
+  }
+
+  /**
+   * Saves the luma of each pixel of an Image object as a binary (P5) PGM file.
+   *
+   * @param image the image to save.
+   * @param name  the filepath to save the image to.
+   * @throws IOException if there is an error writing to the file.
+   */
+  public static void savePGM(Image image, String name)
+          throws IOException {
+    writeRaw(image.getWidth(), image.getHeight(),
+            rasterOf(image::copyRow, image.getWidth(), true), name, "P5");
+  }
 
-    FileWriter ppmWriter = new FileWriter(name);
+  //fills a row of the raster of a binary netpbm file with the bytes of a row of an image
+  private interface RasterSource {
 
-    ppmWriter.write("P3\n#Created by Image Processor\n");
+    void readRaster(int row, byte[] raster) throws IOException;
+  }
 
-    ppmWriter.write(image.getWidth() + " " + image.getHeight() + "\n");
+  //the raster of a binary PPM file, or of a binary PGM file of the luma of each pixel, packed
+  //into bytes from the rows of an image
+  private static RasterSource rasterOf(RowSource rows, int width, boolean gray) {
+    int[] row = new int[width];
+    return (i, raster) -> {
+      rows.readRow(i, row);
+      if (gray) {
+        for (int j = 0; j < width; j++) {
+          raster[j] = (byte) PackedRGB.component(row[j], ColorComponent.Luma);
+        }
+      } else {
+        for (int j = 0, k = 0; j < width; j++, k += 3) {
+          raster[k] = (byte) (row[j] >> 16);
+          raster[k + 1] = (byte) (row[j] >> 8);
+          raster[k + 2] = (byte) row[j];
+        }
+      }
+    };
+  }
 
-    ppmWriter.write("255\n");
+  //writes an image, a row at a time, as a binary netpbm file with one or three bytes to each
+  //pixel, writing each row of the raster as one block
+  private static void writeRaw(int width, int height, RasterSource rows, String name,
+                               String magic) throws IOException {
+    replaceFile(Path.of(name), temp -> writeRaw(width, height, rows, temp, magic));
+  }
 
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        int r = image.getPixelAt(i, j).getComponent(ColorComponent.Red);
-        int g = image.getPixelAt(i, j).getComponent(ColorComponent.Green);
-        int b = image.getPixelAt(i, j).getComponent(ColorComponent.Blue);
-        ppmWriter.write(r + "\n");
-        ppmWriter.write(g + "\n");
-        ppmWriter.write(b + "\n");
+  private static void writeRaw(int width, int height, RasterSource rows, Path file,
+                               String magic) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+      String header = magic + "\n#Created by Image Processor\n"
+              + width + " " + height + "\n255\n";
+      out.write(header.getBytes(StandardCharsets.US_ASCII));
+
+      byte[] raster = new byte[magic.equals("P5") ? width : 3 * width];
+
+      for (int i = 0; i < height; i++) {
+        rows.readRaster(i, raster);
+        out.write(raster);
       }
     }
+  }
+
+  //writes the contents of a file into a new file
+  interface FileContents {
+
+    void writeTo(Path file) throws IOException;
+  }
+
+  /**
+   * Writes a file by writing its contents into a new file beside it, which is then moved over
+   *   it, atomically where the file system allows. The file is therefore never truncated, so
+   *   an image mapped from it, such as by mapPPM or mapIPR, can be saved back to the same path
+   *   while its colors are still being read from the file, and a failed write leaves the file
+   *   as it was.
+   *
+   * @param path the path of the file.
+   * @param contents writes the contents of the file into the new file.
+   * @throws FileNotFoundException if the directory of the file does not exist.
+   * @throws IOException if there is an error writing or moving the new file.
+   */
+  static void replaceFile(Path path, FileContents contents) throws IOException {
+    Path target = path.toAbsolutePath();
+    Path temp = target.resolveSibling("." + target.getFileName() + "."
+            + Long.toHexString(System.nanoTime()) + ".tmp");
+    try {
+      Files.createFile(temp);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("Directory of " + path + " not found!");
+    }
+
+    try {
+      contents.writeTo(temp);
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Saves an Image object as an 8-bit RGB PNG file, filtering and deflating its rows on as many
+   *   threads as Parallelism allows.
+   *
+   * @param image the image to save.
+   * @param name  the filepath to save the image to.
+   * @throws IOException if there is an error writing to the file.
+   */
+  public static void savePNG(Image image, String name) throws IOException {
+    PngEncoder.write(image, Path.of(name));
+  }
 
-    ppmWriter.close();
+  /**
+   * Saves an Image object as a 24-bit uncompressed BMP file, copying its rows straight to the
+   *   file.
+   *
+   * @param image the image to save.
+   * @param name  the filepath to save the image to.
+   * @throws IOException if there is an error writing to the file.
+   */
+  public static void saveBMP(Image image, String name) throws IOException {
+    BmpCodec.write(image, Path.of(name));
+  }
+
+  /**
+   * Saves an Image object as an IPR file, which holds its colors exactly as they are held in
+   *   memory, in tiles of whole rows, optionally compressing each tile in the LZ4 block format.
+   *   An uncompressed file can be mapped back into memory by mapIPR.
+   *
+   * @param image the image to save.
+   * @param name  the filepath to save the image to.
+   * @param compressed whether to compress the tiles.
+   * @throws IOException if there is an error writing to the file.
+   */
+  public static void saveIPR(Image image, String name, boolean compressed) throws IOException {
+    IprCodec.write(image, Path.of(name), compressed);
   }
 
   /**
@@ -153,25 +780,23 @@ public class ImageUtils {
    * @throws IOException If there is an error writing to the image file.
    */
   public static void saveOther(Image image, String name) throws IOException {
-    BufferedImage bufferedImage = new BufferedImage(image.getWidth(),
-            image.getHeight(),
-            BufferedImage.TYPE_INT_RGB);
-
-    for (int i = 0; i < bufferedImage.getHeight(); i++) {
-      for (int j = 0; j < bufferedImage.getWidth(); j++) {
-        Color c = new Color(image.getPixelAt(i, j).getComponent(ColorComponent.Red),
-                image.getPixelAt(i, j).getComponent(ColorComponent.Green),
-                image.getPixelAt(i, j).getComponent(ColorComponent.Blue));
-        bufferedImage.setRGB(j, i, c.getRGB());
-      }
-    }
-
     File outputFile = new File(name);
 
-    FileWriter fw = new FileWriter(outputFile);
-
     String fileType = getFileType(name);
 
+    if (fileType.equals("png")) {
+      savePNG(image, name);
+      return;
+    }
+    if (fileType.equals("bmp")) {
+      saveBMP(image, name);
+      return;
+    }
+
+    //the JPEG writer encodes separate bytes more quickly than packed ints
+    BufferedImage bufferedImage = toBufferedImage(image, fileType.equals("jpg")
+            || fileType.equals("jpeg") ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_RGB);
+
     switch (fileType) {
       case "jpg":
       case "jpeg": //special case to write jpeg w/o compression
@@ -180,15 +805,18 @@ public class ImageUtils {
         param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
         param.setCompressionType("JPEG");
         param.setCompressionQuality(1.0f); //retain best quality
-        writer.setOutput(new FileImageOutputStream(outputFile));
-        writer.write(null, new IIOImage(bufferedImage, null, null), param);
+        try (OutputStream out = new FileOutputStream(outputFile);
+             ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+          writer.setOutput(stream);
+          writer.write(null, new IIOImage(bufferedImage, null, null), param);
+        } finally {
+          writer.dispose();
+        }
         break;
       default:
         ImageIO.write(bufferedImage, fileType, outputFile);
         break;
     }
-
-
   }
 
   private static String getFileType(String fileName) {
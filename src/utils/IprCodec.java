@@ -0,0 +1,373 @@
+package utils;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import model.Image;
+import model.OffHeapImage;
+import model.Parallelism;
+import model.RasterImage;
+
+/**
+ * Reads and writes IPR files, which hold the colors of an image exactly as images hold them in
+ *   memory: packed 0x00RRGGBB ints in row-major order, each stored little-endian. A file starts
+ *   with a 24-byte header, all little-endian:
+ *   <ul>
+ *     <li>bytes 0-3: the magic number "IPR1"</li>
+ *     <li>bytes 4-11: the width and height of the image</li>
+ *     <li>byte 12: the number of channels (3), byte 13: the layout (1, packed ints), byte 14:
+ *     the compression (0 for none, 1 for LZ4), and byte 15: reserved (0)</li>
+ *     <li>bytes 16-19: the number of rows in each tile</li>
+ *     <li>bytes 20-23: the CRC-32C of the rest of the header and the tile table</li>
+ *   </ul>
+ *   The header is followed by a table with an entry of 16 bytes for each tile, the file offset of
+ *   its data, the length of its data, and the CRC-32C of its colors as bytes, then by the data of
+ *   the tiles, from the first 64-byte boundary after the table. Each tile is a band of whole
+ *   rows, so any band of rows can be read by reading only the tiles which cover it. In a
+ *   compressed file, each tile is compressed by itself in the LZ4 block format, unless it would
+ *   not get smaller, in which case it is stored as it is, with the length of its colors. An
+ *   uncompressed file is therefore the colors of the image, one after another, and can be mapped
+ *   into memory as an image.
+ */
+final class IprCodec {
+
+  private static final byte[] MAGIC = {'I', 'P', 'R', '1'};
+  private static final int HEADER_SIZE = 24;
+  private static final int CHECKSUM_OFFSET = 20;
+  private static final int ENTRY_SIZE = 16;
+  private static final int ALIGNMENT = 64;
+
+  private static final int CHANNELS = 3;
+  private static final int LAYOUT_PACKED_RGB = 1;
+  private static final int STORED = 0;
+  private static final int LZ4 = 1;
+
+  //the number of bytes of colors to aim for in each tile
+  private static final int TILE_BYTES = 1 << 18;
+
+  //tiles in each wave written for each thread, so that a thread which finishes early can take
+  //another
+  private static final int TILES_PER_THREAD = 4;
+
+  //the most colors copied out of an image at once while writing
+  private static final int WAVE_COLORS = 1 << 24;
+
+  private IprCodec() {
+    // static methods only
+  }
+
+  /**
+   * Writes an image to an IPR file, replacing the file if it exists. The file is written beside
+   *   its path and moved into place, so an image mapped from it can be saved back to it.
+   * @param image the image to write.
+   * @param path the path of the file.
+   * @param compressed whether to compress each tile.
+   * @throws IOException if the file could not be written.
+   */
+  static void write(Image image, Path path, boolean compressed) throws IOException {
+    ImageUtils.replaceFile(path, file -> writeTo(image, file, compressed));
+  }
+
+  private static void writeTo(Image image, Path path, boolean compressed) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int tileRows = (int) Math.max(1, Math.min(height, TILE_BYTES / (4L * width)));
+    int tiles = (height + tileRows - 1) / tileRows;
+    int tileColors = tileRows * width;
+    int waveTiles = (int) Math.max(1, Math.min(
+            (long) TILES_PER_THREAD * Parallelism.getParallelism(),
+            WAVE_COLORS / ((long) tileColors)));
+
+    ByteBuffer table = ByteBuffer.allocate(tiles * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    long position = align(HEADER_SIZE + (long) tiles * ENTRY_SIZE);
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      int[] colors = new int[Math.min(waveTiles, tiles) * tileColors];
+      for (int first = 0; first < tiles; first += waveTiles) {
+        int count = Math.min(waveTiles, tiles - first);
+        int top = first * tileRows;
+        int rows = Math.min(count * tileRows, height - top);
+        image.copyRegion(top, 0, rows, width, colors, 0, width);
+
+        ByteBuffer[] data = new ByteBuffer[count];
+        int[] checksums = new int[count];
+        Parallelism.forEachBand(count, tileColors, (from, to) -> {
+          for (int t = from; t < to; t++) {
+            int length = Math.min(tileRows, rows - t * tileRows) * width * 4;
+            ByteBuffer bytes = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asIntBuffer().put(colors, t * tileColors, length / 4);
+            checksums[t] = checksum(bytes);
+            data[t] = compressed ? compress(bytes.array()) : bytes;
+          }
+        });
+
+        out.position(position);
+        for (int t = 0; t < count; t++) {
+          table.putLong(position).putInt(data[t].remaining()).putInt(checksums[t]);
+          position += data[t].remaining();
+        }
+        writeFully(out, data);
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+              .put(MAGIC).putInt(width).putInt(height).put((byte) CHANNELS)
+              .put((byte) LAYOUT_PACKED_RGB).put((byte) (compressed ? LZ4 : STORED)).put((byte) 0)
+              .putInt(tileRows);
+      header.putInt(checksum(header.array(), CHECKSUM_OFFSET, table.flip()));
+      out.position(0);
+      writeFully(out, header.flip(), table);
+    }
+  }
+
+  /**
+   * Reads a band of rows of an IPR file into an image, reading and checking only the tiles
+   *   which cover the band.
+   * @param path the path of the file.
+   * @param row the first row to read, or 0 to read the whole image.
+   * @param rows the number of rows to read, or -1 for every row from the first.
+   * @return the rows, as an image as wide as the file's.
+   * @throws FileNotFoundException if the file can not be found.
+   * @throws IllegalArgumentException if the band is not within the image.
+   * @throws IOException if the file could not be read, is not an IPR file, fails its checksums,
+   *                     or is too large to read into an image.
+   */
+  static Image read(Path path, int row, int rows) throws IOException {
+    try (FileChannel in = open(path)) {
+      Header header = readHeader(in, path);
+      if (rows == -1) {
+        rows = header.height - row;
+      }
+      if (row < 0 || rows <= 0 || row > header.height - rows) {
+        throw new IllegalArgumentException("Given rows were not within the image.");
+      }
+      return readRows(in, header, row, rows, path);
+    }
+  }
+
+  /**
+   * Maps an uncompressed IPR file into memory as an image whose colors are read straight out of
+   *   the file. Every tile is checked against its checksum first. A compressed file, or one too
+   *   large to map, is read as read reads it.
+   * @param path the path of the file.
+   * @return the image.
+   * @throws FileNotFoundException if the file can not be found.
+   * @throws IOException if the file could not be read, is not an IPR file, or fails its
+   *                     checksums.
+   */
+  static Image map(Path path) throws IOException {
+    try (FileChannel in = open(path)) {
+      Header header = readHeader(in, path);
+      long length = 4L * header.width * header.height;
+      if (header.compression != STORED || length > Integer.MAX_VALUE) {
+        return readRows(in, header, 0, header.height, path);
+      }
+
+      ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, header.offsets[0], length)
+              .order(ByteOrder.LITTLE_ENDIAN);
+      int tileBytes = header.tileRows * header.width * 4;
+      for (int t = 0; t < header.tiles; t++) {
+        if (header.offsets[t] != header.offsets[0] + (long) t * tileBytes) {
+          throw new IOException("Tiles of " + path + " are not in order.");
+        }
+      }
+      run(() -> Parallelism.forEachBand(header.tiles, header.tileRows * header.width,
+          (from, to) -> {
+            for (int t = from; t < to; t++) {
+              ByteBuffer tile = data.slice(t * tileBytes, header.lengths[t]);
+              verify(header, t, tile, path);
+            }
+          }));
+      try {
+        return new OffHeapImage(header.width, header.height, data.asIntBuffer());
+      } catch (IllegalArgumentException e) {
+        throw new IOException(path + " holds colors which are not valid.");
+      }
+    }
+  }
+
+  //reads the tiles which cover a band of rows, decompressing and checking them in parallel
+  private static Image readRows(FileChannel in, Header header, int row, int rows, Path path)
+          throws IOException {
+    int width = header.width;
+    if ((long) width * rows > Integer.MAX_VALUE) {
+      throw new IOException(path + " is too large to read.");
+    }
+
+    int first = row / header.tileRows;
+    int last = (row + rows - 1) / header.tileRows;
+    int[] rgb = new int[width * rows];
+    run(() -> Parallelism.forEachBand(last - first + 1, header.tileRows * width, (from, to) -> {
+      for (int t = first + from; t < first + to; t++) {
+        int top = t * header.tileRows;
+        int tileRows = Math.min(header.tileRows, header.height - top);
+        byte[] stored = new byte[header.lengths[t]];
+        byte[] bytes = stored;
+        try {
+          readFully(in, ByteBuffer.wrap(stored), header.offsets[t], path);
+          if (stored.length != tileRows * width * 4) {
+            bytes = new byte[tileRows * width * 4];
+            Lz4.decompress(stored, 0, stored.length, bytes);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        verify(header, t, ByteBuffer.wrap(bytes), path);
+
+        //only the rows of the tile within the band
+        int start = Math.max(top, row);
+        int end = Math.min(top + tileRows, row + rows);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+                .get((start - top) * width, rgb, (start - row) * width, (end - start) * width);
+      }
+    }));
+
+    try {
+      return new RasterImage(width, rows, rgb);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(path + " holds colors which are not valid.");
+    }
+  }
+
+  private static FileChannel open(Path path) throws IOException {
+    try {
+      return FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("File " + path + " not found!");
+    }
+  }
+
+  private static Header readHeader(FileChannel in, Path path) throws IOException {
+    long size = in.size();
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    if (size < HEADER_SIZE) {
+      throw new IOException(path + " is not an IPR file.");
+    }
+    readFully(in, header, 0, path);
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (header.get(i) != MAGIC[i]) {
+        throw new IOException(path + " is not an IPR file.");
+      }
+    }
+
+    Header result = new Header();
+    result.width = header.getInt(4);
+    result.height = header.getInt(8);
+    result.compression = header.get(14);
+    result.tileRows = header.getInt(16);
+    if (result.width <= 0 || result.height <= 0 || header.get(12) != CHANNELS
+            || header.get(13) != LAYOUT_PACKED_RGB
+            || (result.compression != STORED && result.compression != LZ4)
+            || result.tileRows <= 0
+            || (long) result.tileRows * result.width * 4 > Integer.MAX_VALUE) {
+      throw new IOException("Header of " + path + " is not valid.");
+    }
+
+    result.tiles = (int) (((long) result.height + result.tileRows - 1) / result.tileRows);
+    long tableEnd = HEADER_SIZE + (long) result.tiles * ENTRY_SIZE;
+    if (tableEnd > size) {
+      throw new EOFException("The tile table of " + path + " ended early.");
+    }
+    ByteBuffer table = ByteBuffer.allocate(result.tiles * ENTRY_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    readFully(in, table, HEADER_SIZE, path);
+    table.flip();
+    if (checksum(header.array(), CHECKSUM_OFFSET, table) != header.getInt(CHECKSUM_OFFSET)) {
+      throw new IOException("Header of " + path + " does not match its checksum.");
+    }
+
+    result.offsets = new long[result.tiles];
+    result.lengths = new int[result.tiles];
+    result.checksums = new int[result.tiles];
+    for (int t = 0; t < result.tiles; t++) {
+      long offset = table.getLong();
+      int length = table.getInt();
+      int rows = Math.min(result.tileRows, result.height - t * result.tileRows);
+      if (offset < tableEnd || length <= 0 || length > rows * result.width * 4
+              || (result.compression == STORED && length != rows * result.width * 4)) {
+        throw new IOException("Header of " + path + " is not valid.");
+      }
+      if (offset + length > size) {
+        throw new EOFException("The tiles of " + path + " ended early.");
+      }
+      result.offsets[t] = offset;
+      result.lengths[t] = length;
+      result.checksums[t] = table.getInt();
+    }
+    return result;
+  }
+
+  //the compressed bytes of a tile, or the bytes themselves if they would not get smaller
+  private static ByteBuffer compress(byte[] bytes) {
+    byte[] packed = new byte[Lz4.maxCompressedLength(bytes.length)];
+    int length = Lz4.compress(bytes, 0, bytes.length, packed);
+    return length < bytes.length ? ByteBuffer.wrap(packed, 0, length) : ByteBuffer.wrap(bytes);
+  }
+
+  private static void verify(Header header, int tile, ByteBuffer bytes, Path path) {
+    if (checksum(bytes) != header.checksums[tile]) {
+      throw new UncheckedIOException(
+              new IOException("A tile of " + path + " does not match its checksum."));
+    }
+  }
+
+  //runs work which may throw an IOException from a band, as an unchecked exception
+  private static void run(Runnable work) throws IOException {
+    try {
+      work.run();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static int checksum(ByteBuffer bytes) {
+    CRC32C crc = new CRC32C();
+    crc.update(bytes.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private static int checksum(byte[] header, int length, ByteBuffer table) {
+    CRC32C crc = new CRC32C();
+    crc.update(header, 0, length);
+    crc.update(table.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private static long align(long position) {
+    return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+  private static void readFully(FileChannel in, ByteBuffer buffer, long position, Path path)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (in.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException(path + " ended early.");
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer... buffers) throws IOException {
+    while (buffers[buffers.length - 1].hasRemaining()) {
+      out.write(buffers);
+    }
+  }
+
+  //the fields of a header and its tile table
+  private static final class Header {
+    private int width;
+    private int height;
+    private int compression;
+    private int tileRows;
+    private int tiles;
+    private long[] offsets;
+    private int[] lengths;
+    private int[] checksums;
+  }
+}
@@ -0,0 +1,204 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Compresses and decompresses blocks of bytes in the LZ4 block format, which trades ratio for
+ *   speed: matches are found through a single hash table of 4-byte sequences, with no search for
+ *   a longer match, and decompression only copies literals and earlier bytes. Each block is
+ *   a series of sequences, each a token, a run of literal bytes, and a match of at least 4 bytes
+ *   up to 64KB back, ending with a run of literals. Blocks are independent of each other.
+ */
+final class Lz4 {
+
+  private static final int MIN_MATCH = 4;
+
+  //the last bytes of a block are always literals, and no match starts this near the end
+  private static final int LAST_LITERALS = 5;
+  private static final int MATCH_FIND_LIMIT = 12;
+
+  private static final int MAX_OFFSET = 0xFFFF;
+  private static final int HASH_BITS = 14;
+
+  //once this many positions in a row find no match, the search starts to skip ahead
+  private static final int SKIP_SHIFT = 6;
+
+  private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class,
+          ByteOrder.LITTLE_ENDIAN);
+
+  private Lz4() {
+    // static methods only
+  }
+
+  /**
+   * Gets the most bytes a block of some length could compress to.
+   * @param length the length of the block.
+   * @return the size of destination array that compress always has room in.
+   */
+  static int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  /**
+   * Compresses a block of bytes.
+   * @param src the array holding the block.
+   * @param offset the index of the block in src.
+   * @param length the length of the block.
+   * @param dest the array to write the compressed block into, from index 0, with room for at
+   *             least maxCompressedLength(length) bytes.
+   * @return the length of the compressed block.
+   */
+  static int compress(byte[] src, int offset, int length, byte[] dest) {
+    int end = offset + length;
+    int anchor = offset;
+    int out = 0;
+
+    if (length > MATCH_FIND_LIMIT) {
+      int matchLimit = end - LAST_LITERALS;
+      int findLimit = end - MATCH_FIND_LIMIT;
+      //positions of earlier sequences by their hash, each plus 1 so that 0 means none
+      int[] table = new int[1 << HASH_BITS];
+      int in = offset + 1;
+      int misses = 1 << SKIP_SHIFT;
+      while (in < findLimit) {
+        int sequence = (int) INT.get(src, in);
+        int slot = hash(sequence);
+        int match = table[slot] - 1;
+        table[slot] = in + 1;
+        if (match < 0 || in - match > MAX_OFFSET || (int) INT.get(src, match) != sequence) {
+          in += misses++ >>> SKIP_SHIFT;
+          continue;
+        }
+        misses = 1 << SKIP_SHIFT;
+
+        //the match may also cover literals just before it
+        while (in > anchor && match > offset && src[in - 1] == src[match - 1]) {
+          in--;
+          match--;
+        }
+        int matched = MIN_MATCH;
+        while (in + matched < matchLimit && src[in + matched] == src[match + matched]) {
+          matched++;
+        }
+
+        out = writeLiterals(src, anchor, in - anchor, matched - MIN_MATCH, dest, out);
+        dest[out++] = (byte) (in - match);
+        dest[out++] = (byte) ((in - match) >>> 8);
+        if (matched - MIN_MATCH >= 15) {
+          out = writeLength(matched - MIN_MATCH - 15, dest, out);
+        }
+
+        in += matched;
+        anchor = in;
+        if (in - 2 >= offset && in < findLimit) {
+          table[hash((int) INT.get(src, in - 2))] = in - 2 + 1;
+        }
+      }
+    }
+    return writeLiterals(src, anchor, end - anchor, 0, dest, out);
+  }
+
+  /**
+   * Decompresses a block of bytes, which must fill its destination exactly.
+   * @param src the array holding the compressed block.
+   * @param offset the index of the block in src.
+   * @param length the length of the compressed block.
+   * @param dest the array to decompress into, from index 0, as long as the block decompresses to.
+   * @throws IOException if the block is not valid, or does not decompress to exactly the length
+   *                     of dest.
+   */
+  static void decompress(byte[] src, int offset, int length, byte[] dest) throws IOException {
+    int in = offset;
+    int end = offset + length;
+    int out = 0;
+    while (in < end) {
+      int token = src[in++] & 0xFF;
+      int literals = token >>> 4;
+      if (literals == 15) {
+        int b;
+        do {
+          if (in == end) {
+            throw corrupt();
+          }
+          b = src[in++] & 0xFF;
+          literals += b;
+        } while (b == 255);
+      }
+      if (literals > end - in || literals > dest.length - out) {
+        throw corrupt();
+      }
+      System.arraycopy(src, in, dest, out, literals);
+      in += literals;
+      out += literals;
+      if (in == end) {
+        break;
+      }
+
+      if (end - in < 2) {
+        throw corrupt();
+      }
+      int distance = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+      in += 2;
+      int matched = token & 15;
+      if (matched == 15) {
+        int b;
+        do {
+          if (in == end) {
+            throw corrupt();
+          }
+          b = src[in++] & 0xFF;
+          matched += b;
+        } while (b == 255);
+      }
+      matched += MIN_MATCH;
+      if (distance == 0 || distance > out || matched > dest.length - out) {
+        throw corrupt();
+      }
+
+      if (distance >= matched) {
+        System.arraycopy(dest, out - distance, dest, out, matched);
+      } else {
+        //the match overlaps the bytes it writes, repeating the last distance bytes
+        for (int i = 0; i < matched; i++) {
+          dest[out + i] = dest[out - distance + i];
+        }
+      }
+      out += matched;
+    }
+    if (out != dest.length) {
+      throw corrupt();
+    }
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_BITS);
+  }
+
+  //writes the token of a sequence and its literals, leaving the match for the caller
+  private static int writeLiterals(byte[] src, int from, int count, int matchLength, byte[] dest,
+                                   int out) {
+    dest[out++] = (byte) (Math.min(count, 15) << 4 | Math.min(matchLength, 15));
+    if (count >= 15) {
+      out = writeLength(count - 15, dest, out);
+    }
+    System.arraycopy(src, from, dest, out, count);
+    return out + count;
+  }
+
+  //writes the part of a length which does not fit in a token, in bytes of up to 255
+  private static int writeLength(int remainder, byte[] dest, int out) {
+    while (remainder >= 255) {
+      dest[out++] = (byte) 255;
+      remainder -= 255;
+    }
+    dest[out++] = (byte) remainder;
+    return out;
+  }
+
+  private static IOException corrupt() {
+    return new IOException("Compressed block is not valid.");
+  }
+}
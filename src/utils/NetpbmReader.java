@@ -0,0 +1,191 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the tokens of a netpbm file straight from its bytes, through a buffer, so that numbers
+ *   are parsed without making a string for each one. As in the netpbm formats, tokens are
+ *   separated by whitespace, and a comment runs from a # to the end of its line and counts as
+ *   whitespace, wherever it appears. The raster of a binary file, which follows its header, is
+ *   read as blocks of bytes.
+ */
+final class NetpbmReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final InputStream in;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+
+  //the offset in the stream of the first byte in the buffer
+  private long start;
+
+  /**
+   * Constructs a reader over a stream, which is closed along with the reader.
+   * @param in the stream to read.
+   */
+  NetpbmReader(InputStream in) {
+    this.in = in;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Reads the next token as a string, for the magic number at the start of a file.
+   * @return the token.
+   * @throws NoSuchElementException if there are no more tokens.
+   * @throws IOException if the stream could not be read.
+   */
+  String next() throws IOException {
+    if (this.skipWhitespace() < 0) {
+      throw new NoSuchElementException();
+    }
+    StringBuilder token = new StringBuilder();
+    for (int b = this.peek(); b >= 0 && !isDelimiter(b); b = this.peek()) {
+      token.append((char) b);
+      this.position++;
+    }
+    return token.toString();
+  }
+
+  /**
+   * Reads the next token as a non-negative integer.
+   * @return the integer.
+   * @throws NoSuchElementException if there are no more tokens.
+   * @throws InputMismatchException if the token is not a non-negative integer which fits in an
+   *                                int.
+   * @throws IOException if the stream could not be read.
+   */
+  int nextInt() throws IOException {
+    int b = this.skipWhitespace();
+    if (b < 0) {
+      throw new NoSuchElementException();
+    }
+
+    int value = 0;
+    int digits = 0;
+    while (b >= '0' && b <= '9') {
+      if (value > (Integer.MAX_VALUE - (b - '0')) / 10) {
+        throw new InputMismatchException("Value is too large.");
+      }
+      value = value * 10 + (b - '0');
+      digits++;
+      this.position++;
+      b = this.peek();
+    }
+
+    if (digits == 0 || (b >= 0 && !isDelimiter(b))) {
+      throw new InputMismatchException("Expected a non-negative integer.");
+    }
+    return value;
+  }
+
+  //skips whitespace and comments, and returns the first byte after them without consuming it,
+  //or -1 at the end of the stream
+  private int skipWhitespace() throws IOException {
+    int b = this.peek();
+    while (b >= 0 && isDelimiter(b)) {
+      if (b == '#') {
+        while (b >= 0 && b != '\n' && b != '\r') {
+          this.position++;
+          b = this.peek();
+        }
+      } else {
+        this.position++;
+        b = this.peek();
+      }
+    }
+    return b;
+  }
+
+  /**
+   * Reads the single whitespace byte which separates the header of a binary file from its
+   *   raster.
+   * @throws InputMismatchException if the next byte is not whitespace.
+   * @throws IOException if the stream could not be read.
+   */
+  void skipRasterSeparator() throws IOException {
+    int b = this.peek();
+    if (b < 0 || b == '#' || !isDelimiter(b)) {
+      throw new InputMismatchException("Expected whitespace before the raster.");
+    }
+    this.position++;
+  }
+
+  /**
+   * Reads bytes of a binary raster, copying whatever is left in the buffer and then reading the
+   *   rest straight into the array when it is at least as large as the buffer.
+   * @param dest the array to fill.
+   * @throws EOFException if the stream ends before the array is full.
+   * @throws IOException if the stream could not be read.
+   */
+  void readFully(byte[] dest) throws IOException {
+    int offset = 0;
+    while (offset < dest.length) {
+      if (this.position == this.limit) {
+        if (dest.length - offset >= this.buffer.length) {
+          int read = this.in.read(dest, offset, dest.length - offset);
+          if (read < 0) {
+            throw new EOFException("The raster ended early.");
+          }
+          this.start += this.limit + read;
+          this.position = 0;
+          this.limit = 0;
+          offset += read;
+          continue;
+        }
+        if (!this.fill()) {
+          throw new EOFException("The raster ended early.");
+        }
+      }
+      int count = Math.min(this.limit - this.position, dest.length - offset);
+      System.arraycopy(this.buffer, this.position, dest, offset, count);
+      this.position += count;
+      offset += count;
+    }
+  }
+
+  /**
+   * Gets the offset in the stream of the next byte to be read, such as the first byte of the
+   *   raster once the header has been read.
+   * @return the number of bytes read so far.
+   */
+  long offset() {
+    return this.start + this.position;
+  }
+
+  //the next byte, without consuming it, or -1 at the end of the stream
+  private int peek() throws IOException {
+    if (this.position == this.limit && !this.fill()) {
+      return -1;
+    }
+    return this.buffer[this.position] & 0xFF;
+  }
+
+  //refills the empty buffer, and returns whether any bytes were left in the stream
+  private boolean fill() throws IOException {
+    int read = this.in.read(this.buffer);
+    if (read <= 0) {
+      return false;
+    }
+    this.start += this.limit;
+    this.position = 0;
+    this.limit = read;
+    return true;
+  }
+
+  //whether a byte ends a token: whitespace, or the start of a comment
+  private static boolean isDelimiter(int b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == 0x0B || b == '\f' || b == '#';
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
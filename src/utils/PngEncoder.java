@@ -0,0 +1,262 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import model.Image;
+import model.Parallelism;
+
+/**
+ * Writes images as 8-bit RGB PNG files, dividing the work between threads as
+ *   {@link Parallelism} allows. Each row is filtered by whichever of the five PNG filters gives
+ *   the smallest sum of its bytes as signed values, as most encoders choose them. The filtered
+ *   rows are split into blocks which are deflated separately, in parallel, each primed with the
+ *   32KB of filtered bytes before it as a dictionary, so that together they compress nearly as
+ *   well as a single stream. Every block but the last ends on a byte boundary with a sync flush,
+ *   so the blocks join into one zlib stream, and each is written as an IDAT chunk. The image is
+ *   encoded a wave of blocks at a time, so memory does not grow with the size of the image.
+ */
+final class PngEncoder {
+
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+  //the compression level, the same as ImageIO's PNG writer uses, and the zlib header which
+  //declares a 32KB window and a fast level
+  private static final int LEVEL = 4;
+  private static final byte[] ZLIB_HEADER = {0x78, 0x5E};
+
+  //the size of a deflate window, and so of the dictionary each block is primed with
+  private static final int WINDOW = 1 << 15;
+
+  //the number of filtered bytes to aim for in each block
+  private static final int BLOCK_BYTES = 1 << 17;
+
+  //blocks in each wave for each thread, so that a thread which finishes early can take another
+  private static final int BLOCKS_PER_THREAD = 4;
+
+  private static final int BYTES_PER_PIXEL = 3;
+
+  private PngEncoder() {
+    // static methods only
+  }
+
+  /**
+   * Writes an image to a PNG file, replacing the file if it exists. The file is written beside
+   *   its path and moved into place, so a failed write leaves the file as it was.
+   * @param image the image to write.
+   * @param path the path of the file.
+   * @throws IllegalArgumentException if the image is too wide for a row of it to fit in an array.
+   * @throws IOException if the file could not be written.
+   */
+  static void write(Image image, Path path) throws IllegalArgumentException, IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if ((long) width * BYTES_PER_PIXEL + 1 > Integer.MAX_VALUE / 4) {
+      throw new IllegalArgumentException("Image is too wide to save as a PNG file.");
+    }
+    ImageUtils.replaceFile(path, file -> writeTo(image, file));
+  }
+
+  private static void writeTo(Image image, Path path) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int rowBytes = width * BYTES_PER_PIXEL;
+    int line = rowBytes + 1;
+    int blockRows = Math.max(1, BLOCK_BYTES / line);
+    int waveRows = (int) Math.min(height, Math.min(
+            (long) blockRows * BLOCKS_PER_THREAD * Parallelism.getParallelism(),
+            Math.max(blockRows, (Integer.MAX_VALUE / 4) / line)));
+
+    try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      writeFully(out, ByteBuffer.wrap(SIGNATURE));
+      writeChunk(out, IHDR, ByteBuffer.allocate(13).putInt(width).putInt(height)
+              .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0).flip());
+
+      Adler32 adler = new Adler32();
+      //the unfiltered row above the wave, which is black above the image, and the filtered bytes
+      //before the wave which prime its first block
+      byte[] above = new byte[rowBytes];
+      byte[] tail = new byte[0];
+      for (int top = 0; top < height; top += waveRows) {
+        int rows = Math.min(waveRows, height - top);
+        byte[] raw = new byte[(rows + 1) * rowBytes];
+        System.arraycopy(above, 0, raw, 0, rowBytes);
+        image.copyRegion(top, 0, rows, width, raw, rowBytes, rowBytes);
+
+        byte[] filtered = Arrays.copyOf(tail, tail.length + rows * line);
+        int start = tail.length;
+        Parallelism.forEachBand(rows, width, (from, to) -> {
+          for (int r = from; r < to; r++) {
+            filterRow(raw, r * rowBytes, rowBytes, filtered, start + r * line);
+          }
+        });
+
+        int blocks = (rows + blockRows - 1) / blockRows;
+        boolean end = top + rows == height;
+        ByteBuffer[] deflated = new ByteBuffer[blocks];
+        Parallelism.forEachBand(blocks, blockRows * width, (from, to) -> {
+          for (int b = from; b < to; b++) {
+            int length = Math.min(blockRows, rows - b * blockRows) * line;
+            deflated[b] = deflate(filtered, start + b * blockRows * line, length,
+                    end && b == blocks - 1);
+          }
+        });
+
+        adler.update(filtered, start, rows * line);
+        for (int b = 0; b < blocks; b++) {
+          ByteBuffer header = ByteBuffer.wrap(top == 0 && b == 0 ? ZLIB_HEADER : new byte[0]);
+          ByteBuffer checksum = end && b == blocks - 1
+                  ? ByteBuffer.allocate(4).putInt((int) adler.getValue()).flip()
+                  : ByteBuffer.allocate(0);
+          writeChunk(out, IDAT, header, deflated[b], checksum);
+        }
+
+        above = Arrays.copyOfRange(raw, rows * rowBytes, (rows + 1) * rowBytes);
+        tail = Arrays.copyOfRange(filtered, Math.max(0, filtered.length - WINDOW),
+                filtered.length);
+      }
+      writeChunk(out, IEND);
+    }
+  }
+
+  //filters the row of raw bytes which follows the row at an index, and writes its filter type
+  //and filtered bytes into dest at an index. Every filter is scored in a single pass over the
+  //row, which also writes the row filtered by Paeth, the filter most rows of photographs take,
+  //so that the row is only filtered again when another filter scores lower.
+  private static void filterRow(byte[] raw, int above, int length, byte[] dest, int at) {
+    int row = above + length;
+    int out = at + 1;
+    long none = 0;
+    long sub = 0;
+    long up = 0;
+    long average = 0;
+    long paeth = 0;
+    for (int i = 0; i < length; i++) {
+      //the first pixel has no neighbors to its left, which count as 0
+      int x = raw[row + i] & 0xFF;
+      int left = i - BYTES_PER_PIXEL;
+      int a = left >= 0 ? raw[row + left] & 0xFF : 0;
+      int b = raw[above + i] & 0xFF;
+      int c = left >= 0 ? raw[above + left] & 0xFF : 0;
+      byte predicted = (byte) (x - paeth(a, b, c));
+      dest[out + i] = predicted;
+      none += Math.abs((byte) x);
+      sub += Math.abs((byte) (x - a));
+      up += Math.abs((byte) (x - b));
+      average += Math.abs((byte) (x - ((a + b) >> 1)));
+      paeth += Math.abs(predicted);
+    }
+
+    long[] scores = {none, sub, up, average, paeth};
+    int best = 0;
+    for (int type = 1; type < scores.length; type++) {
+      if (scores[type] < scores[best]) {
+        best = type;
+      }
+    }
+
+    dest[at] = (byte) best;
+    switch (best) {
+      case 0:
+        System.arraycopy(raw, row, dest, out, length);
+        break;
+      case 1:
+        for (int i = 0; i < length; i++) {
+          int a = i >= BYTES_PER_PIXEL ? raw[row + i - BYTES_PER_PIXEL] : 0;
+          dest[out + i] = (byte) (raw[row + i] - a);
+        }
+        break;
+      case 2:
+        for (int i = 0; i < length; i++) {
+          dest[out + i] = (byte) (raw[row + i] - raw[above + i]);
+        }
+        break;
+      case 3:
+        for (int i = 0; i < length; i++) {
+          int a = i >= BYTES_PER_PIXEL ? raw[row + i - BYTES_PER_PIXEL] & 0xFF : 0;
+          dest[out + i] = (byte) (raw[row + i] - ((a + (raw[above + i] & 0xFF)) >> 1));
+        }
+        break;
+      default:
+        //already written while scoring
+        break;
+    }
+  }
+
+  //whichever of the bytes to the left, above, and above and to the left is closest to
+  //left + above - above left, as the Paeth filter predicts each byte
+  private static int paeth(int a, int b, int c) {
+    int pa = Math.abs(b - c);
+    int pb = Math.abs(a - c);
+    int pc = Math.abs(a + b - 2 * c);
+    //chosen as a pair first, which compiles to conditional moves rather than branches
+    int closer = pa <= pb ? a : b;
+    return Math.min(pa, pb) <= pc ? closer : c;
+  }
+
+  //deflates a block of filtered bytes without a zlib header, primed with the bytes before it,
+  //and either finishes the stream or flushes to a byte boundary so another block can follow
+  private static ByteBuffer deflate(byte[] filtered, int offset, int length, boolean last) {
+    Deflater deflater = new Deflater(LEVEL, true);
+    try {
+      int dictionary = Math.min(offset, WINDOW);
+      if (dictionary > 0) {
+        deflater.setDictionary(filtered, offset - dictionary, dictionary);
+      }
+      deflater.setInput(filtered, offset, length);
+      if (last) {
+        deflater.finish();
+      }
+
+      byte[] out = new byte[length + length / 8 + 64];
+      int count = 0;
+      while (true) {
+        count += deflater.deflate(out, count, out.length - count,
+                last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+        if (last ? deflater.finished() : count < out.length) {
+          return ByteBuffer.wrap(out, 0, count);
+        }
+        if (count == out.length) {
+          out = Arrays.copyOf(out, 2 * out.length);
+        }
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
+  //writes a chunk of a type whose data is the given buffers, one after another
+  private static void writeChunk(FileChannel out, byte[] type, ByteBuffer... data)
+          throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(type);
+    int length = 0;
+    for (ByteBuffer buffer : data) {
+      length += buffer.remaining();
+      crc.update(buffer.duplicate());
+    }
+
+    ByteBuffer[] buffers = new ByteBuffer[data.length + 2];
+    buffers[0] = ByteBuffer.allocate(8).putInt(length).put(type).flip();
+    System.arraycopy(data, 0, buffers, 1, data.length);
+    buffers[data.length + 1] = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+    writeFully(out, buffers);
+  }
+
+  private static void writeFully(FileChannel out, ByteBuffer... buffers) throws IOException {
+    while (buffers[buffers.length - 1].hasRemaining()) {
+      out.write(buffers);
+    }
+  }
+}
@@ -37,6 +37,7 @@ public class ImageProcessorGraphicsView extends JFrame implements ActionListener
   private JButton visualizeButton;
   private JButton horzflipButton;
   private JButton blurButton;
+  private JButton boxBlurButton;
   private JButton sharpenButton;
   private JButton loadButton;
   private JButton inputButton;
@@ -162,6 +163,15 @@ public class ImageProcessorGraphicsView extends JFrame implements ActionListener
     blurButton.addActionListener(this);
     blurPanel.add(blurButton);
 
+    //box blur
+    JPanel boxBlurPanel = new JPanel();
+    boxBlurPanel.setLayout(new FlowLayout());
+    editPanel.add(boxBlurPanel);
+    boxBlurButton = new JButton("Box Blur");
+    boxBlurButton.setActionCommand("box-blur");
+    boxBlurButton.addActionListener(this);
+    boxBlurPanel.add(boxBlurButton);
+
     //sharpen
     JPanel sharpenPanel = new JPanel();
     sharpenPanel.setLayout(new FlowLayout());
@@ -310,6 +320,24 @@ public class ImageProcessorGraphicsView extends JFrame implements ActionListener
         this.controller.runCommand(command.toString());
 
         break;
+      case "box-blur": {
+        String radius = JOptionPane.showInputDialog("Blur radius: ");
+        if (radius != null) {
+          int r = -1;
+          try {
+            r = Integer.parseInt(radius.trim());
+          } catch (NumberFormatException nfe) {
+            //left negative, and so rejected below
+          }
+          if (r >= 0) {
+            this.controller.runCommand("box-blur " + r);
+          } else {
+            showMessage("Blur radius must be a whole number from 0 to " + Integer.MAX_VALUE + ".",
+                    "Invalid radius");
+          }
+        }
+      }
+      break;
     }
   }
 
@@ -0,0 +1,129 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import model.ColorComponent;
+import model.Image;
+import model.MappedImage;
+import model.OffHeapImage;
+import model.PackedRGB;
+import model.Pixel;
+import model.PlanarImage;
+import model.SimpleImage;
+import model.TiledImage;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.toPixels;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that every kind of image copies the same colors in bulk, into arrays of ints and of
+ *   bytes, as it gives pixel by pixel.
+ */
+public class CopyRegionTest {
+
+  /**
+   * Tests rectangles at each corner and in the middle of each kind of image, and of flipped
+   *   views of them, copied into the middle of arrays with rows further apart than the
+   *   rectangle is wide.
+   */
+  @Test
+  public void testRegionsMatchPixels() throws IOException {
+    Image packed = gradient(13, 11);
+    byte[] raster = new byte[3 * 13 * 11];
+    packed.copyRegion(0, 0, 11, 13, raster, 0, 3 * 13);
+
+    try (TiledImage tiled = new TiledImage(packed, 4, 2);
+         OffHeapImage offHeap = new OffHeapImage(packed)) {
+      Image[] images = {packed, new SimpleImage(toPixels(packed)), new PlanarImage(packed),
+          offHeap, tiled, new MappedImage(13, 11, ByteBuffer.wrap(raster), false),
+          packed.flipHorizontal(), new PlanarImage(packed).flipVertical().flipHorizontal()};
+      int[][] regions = {{0, 0, 3, 4}, {8, 9, 3, 4}, {5, 2, 1, 9}, {2, 0, 9, 13}, {4, 4, 0, 2}};
+
+      for (Image image : images) {
+        for (int[] region : regions) {
+          assertRegion(image, region[0], region[1], region[2], region[3]);
+        }
+        int[] all = new int[13 * 11];
+        image.copyColors(all);
+        for (int r = 0; r < 11; r++) {
+          int[] row = new int[13];
+          image.copyRow(r, row);
+          for (int c = 0; c < 13; c++) {
+            assertEquals(PackedRGB.fromPixel(image.getPixelAt(r, c)), all[r * 13 + c]);
+            assertEquals(all[r * 13 + c], row[c]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGrayRaster() {
+    Image gray = new MappedImage(2, 1, ByteBuffer.wrap(new byte[]{7, (byte) 200}), true);
+    byte[] bytes = new byte[6];
+    gray.copyRegion(0, 0, 1, 2, bytes, 0, 6);
+    assertEquals(7, bytes[2]);
+    assertEquals(200, bytes[3] & 0xFF);
+    assertEquals(200, bytes[5] & 0xFF);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionOutOfRangeException() {
+    gradient(4, 4).copyRegion(2, 2, 3, 1, new int[16], 0, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testArrayTooShortException() {
+    gradient(4, 4).copyRegion(0, 0, 4, 4, new int[16], 1, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRowsOverlapException() {
+    new SimpleImage(toPixels(gradient(4, 4))).copyRegion(0, 0, 2, 4, new int[16], 0, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullArrayException() {
+    new PlanarImage(gradient(4, 4)).copyRegion(0, 0, 1, 1, (byte[]) null, 0, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRowTooShortException() {
+    gradient(4, 4).flipVertical().copyRow(0, new int[3]);
+  }
+
+  //copies a rectangle into the middle of larger arrays, and checks it against its pixels and
+  //that nothing around it was written
+  private void assertRegion(Image image, int row, int col, int rows, int cols) {
+    int stride = cols + 3;
+    int offset = 5;
+    int[] colors = new int[offset + rows * stride];
+    byte[] bytes = new byte[offset + rows * 3 * stride];
+    Arrays.fill(colors, -1);
+    Arrays.fill(bytes, (byte) 1);
+
+    image.copyRegion(row, col, rows, cols, colors, offset, stride);
+    image.copyRegion(row, col, rows, cols, bytes, offset, 3 * stride);
+
+    for (int i = 0; i < colors.length; i++) {
+      int y = (i - offset) / stride;
+      int x = (i - offset) % stride;
+      if (i < offset || x >= cols) {
+        assertEquals(-1, colors[i]);
+      } else {
+        Pixel pixel = image.getPixelAt(row + y, col + x);
+        assertEquals(PackedRGB.fromPixel(pixel), colors[i]);
+        int k = offset + y * 3 * stride + 3 * x;
+        assertEquals(pixel.getComponent(ColorComponent.Red), bytes[k] & 0xFF);
+        assertEquals(pixel.getComponent(ColorComponent.Green), bytes[k + 1] & 0xFF);
+        assertEquals(pixel.getComponent(ColorComponent.Blue), bytes[k + 2] & 0xFF);
+      }
+    }
+    for (int i = 0; i < offset; i++) {
+      assertEquals(1, bytes[i]);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+import org.junit.Test;
+
+import model.ColorComponent;
+import model.Image;
+import model.OffHeapImage;
+import model.PackedImage;
+import model.PlanarImage;
+
+import static fixtures.ImageFixtures.simpleGradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the flipped views produced by the in-memory image implementations, against the copying
+ *   flips of OffHeapImage.
+ */
+public class FlippedImageTest {
+
+  /**
+   * Tests that flipping twice the same way gives back the original image, without copying.
+   */
+  @Test
+  public void testFlipTwiceIsOriginal() {
+    Image simple = simpleGradient(4, 3);
+    Image packed = new PackedImage(simple);
+    Image planar = new PlanarImage(simple);
+
+    assertSame(simple, simple.flipVertical().flipVertical());
+    assertSame(packed, packed.flipHorizontal().flipHorizontal());
+    assertSame(planar, planar.flipVertical().flipHorizontal().flipVertical().flipHorizontal());
+  }
+
+  /**
+   * Tests that views of each in-memory implementation, and every operation on those views,
+   *   produce the same colors as copying flips followed by the same operation.
+   */
+  @Test
+  public void testViewsMatchCopiedFlips() {
+    Image simple = simpleGradient(6, 5);
+    Image offHeap = new OffHeapImage(simple);
+    Image[] images = {simple, new PackedImage(simple), new PlanarImage(simple)};
+    double[][] blur = new double[][]{{0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}};
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+    double[][] sepia = new double[][]{{0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+
+    Image both = offHeap.flipHorizontal().flipVertical();
+    for (Image image : images) {
+      Image view = image.flipHorizontal().flipVertical();
+
+      assertTrue(sameColorPixelsInImage(image.flipVertical(), offHeap.flipVertical()));
+      assertTrue(sameColorPixelsInImage(image.flipHorizontal(), offHeap.flipHorizontal()));
+      assertTrue(sameColorPixelsInImage(view, both));
+      assertTrue(sameColorPixelsInImage(view.flipVertical(), offHeap.flipHorizontal()));
+      assertTrue(sameColorPixelsInImage(view.adjustBrightness(-70), both.adjustBrightness(-70)));
+      assertTrue(sameColorPixelsInImage(view.grayscale(ColorComponent.Luma),
+              both.grayscale(ColorComponent.Luma)));
+      assertTrue(sameColorPixelsInImage(view.transformColor(sepia), both.transformColor(sepia)));
+      assertTrue(sameColorPixelsInImage(view.filter(blur), both.filter(blur)));
+      assertTrue(sameColorPixelsInImage(view.filter(wide), both.filter(wide)));
+      assertTrue(sameColorPixelsInImage(view.boxBlur(2), both.boxBlur(2)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPixelOutOfRangeException() {
+    new PackedImage(simpleGradient(2, 2)).flipVertical().getPixelAt(2, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterEvenException() {
+    simpleGradient(2, 2).flipHorizontal().filter(new double[][]{{0.5, 0.5}});
+  }
+}
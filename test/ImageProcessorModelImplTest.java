@@ -5,12 +5,18 @@ import model.ColorComponent;
 import model.Image;
 import model.ImageProcessorModel;
 import model.ImageProcessorModelImpl;
+import model.OffHeapImage;
+import model.PackedImage;
 import model.Pixel;
+import model.PlanarImage;
 import model.RGBPixel;
 import model.SimpleImage;
 
+import static fixtures.ImageFixtures.simpleGradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for the ImageProcessorModelImpl.
@@ -397,23 +403,98 @@ public class ImageProcessorModelImplTest {
             new double[][]{{0.0,-0.25,0.0},{-0.25,2.0,-0.25},{0.0,-0.25,0.0}});
   }
 
-  private boolean sameColorPixelsInImage(Image im1, Image im2) {
-    if (im1.getHeight() != im2.getHeight() || im1.getWidth() != im2.getWidth()) {
-      return false;
-    }
+  @Test
+  public void testBoxBlurImage() {
+    model.boxBlurImage("im32", "im32b", 1);
+    model.boxBlurImage("im32b", "im32bb", 0);
+
+    assertTrue(sameColorPixelsInImage(model.returnImage("im32b"), image32.boxBlur(1)));
+    assertTrue(sameColorPixelsInImage(model.returnImage("im32bb"), image32.boxBlur(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoxBlurNegativeRadiusException() {
+    model.boxBlurImage("im22", "im22b", -2);
+  }
+
+  /**
+   * Tests that an off-heap image is closed once it is no longer stored under any name, and not
+   * before.
+   */
+  @Test
+  public void testOverwrittenOffHeapImageClosed() {
+    OffHeapImage offHeap = new OffHeapImage(image22);
+
+    model.addImage("off", offHeap);
+    model.addImage("off-too", offHeap);
+    model.adjustImageBrightness("off", "off", 10);
+
+    assertFalse(offHeap.isClosed());
+
+    model.flipImageVertical("im22", "off-too");
+
+    assertTrue(offHeap.isClosed());
+    assertTrue(sameColorPixelsInImage(model.returnImage("off"), image22.adjustBrightness(10)));
+  }
+
+  /**
+   * Tests that derived images are only computed once they are returned, from the images their
+   *   names referred to when they were derived.
+   */
+  @Test
+  public void testDerivedImagesDeferred() {
+    OffHeapImage offHeap = new OffHeapImage(image22);
+    model.addImage("off", offHeap);
+    offHeap.close();
 
-    boolean sameSoFar = true;
+    model.adjustImageBrightness("off", "bright", 10);
+    model.grayscaleImage("bright", "gray", ColorComponent.Luma);
 
-    for (int r = 0; r < im1.getHeight() && sameSoFar; r++) {
-      for (int c = 0; c < im1.getWidth() && sameSoFar; c++) {
-        Pixel p1 = im1.getPixelAt(r,c);
-        Pixel p2 = im2.getPixelAt(r,c);
-        sameSoFar &= p1.getComponent(ColorComponent.Red) == p2.getComponent(ColorComponent.Red) &&
-                p1.getComponent(ColorComponent.Green) == p2.getComponent(ColorComponent.Green) &&
-                p1.getComponent(ColorComponent.Blue) == p2.getComponent(ColorComponent.Blue);
-      }
+    try {
+      model.returnImage("gray");
+      fail("Derived image of a closed image was computed.");
+    } catch (IllegalStateException e) {
+      // expected, only now that the image is needed
     }
 
-    return sameSoFar;
+    model.adjustImageBrightness("im22", "bright", 10);
+    model.addImage("im22", image32);
+    model.grayscaleImage("bright", "gray", ColorComponent.Luma);
+    assertTrue(sameColorPixelsInImage(model.returnImage("gray"),
+            image22.adjustBrightness(10).grayscale(ColorComponent.Luma)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDeferredFilterEvenException() {
+    model.filterImage("im22", "blurred", new double[][]{{0.5, 0.5}});
+  }
+
+  /**
+   * Tests that a chain of operations on colors alone, which is computed in one pass, produces
+   *   the same colors as applying each operation in turn, and that the images in between can
+   *   still be returned afterwards.
+   */
+  @Test
+  public void testFusedChainMatchesSequence() {
+    Image simple = simpleGradient(7, 4);
+    double[][] sepia = new double[][]{{0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+    model.addImage("packed", new PackedImage(simple));
+    model.addImage("planar", new PlanarImage(simple));
+    model.addImage("flipped", new PackedImage(simple).flipVertical());
+
+    for (String name : new String[]{"packed", "planar", "flipped"}) {
+      model.adjustImageBrightness(name, "bright", -40);
+      model.grayscaleImage("bright", "gray", ColorComponent.Luma);
+      model.transformImageColor("gray", "sepia", sepia);
+      model.adjustImageBrightness("sepia", "sepia", 25);
+
+      Image source = name.equals("flipped") ? simple.flipVertical() : simple;
+      Image bright = source.adjustBrightness(-40);
+      Image sepiaExpected = bright.grayscale(ColorComponent.Luma).transformColor(sepia)
+              .adjustBrightness(25);
+      assertTrue(sameColorPixelsInImage(model.returnImage("sepia"), sepiaExpected));
+      assertTrue(sameColorPixelsInImage(model.returnImage("bright"), bright));
+    }
   }
 }
@@ -0,0 +1,103 @@
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.MappedImage;
+import model.PackedRGB;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the MappedImage class, which reads its colors out of a buffer of bytes, against the same
+ *   colors held in a PackedImage.
+ */
+public class MappedImageTest {
+
+  @Test
+  public void testReadsRaster() {
+    Image packed = gradient(7, 5);
+    assertTrue(sameColorPixelsInImage(packed, mapped(packed)));
+
+    ByteBuffer gray = ByteBuffer.wrap(new byte[]{9, 0, (byte) 200, (byte) 255, 17, 64});
+    Image grayImage = new MappedImage(3, 2, gray, true);
+    assertEquals(200, grayImage.getPixelAt(0, 2).getComponent(ColorComponent.Green));
+    assertEquals(255, grayImage.getPixelAt(1, 0).getComponent(ColorComponent.Blue));
+  }
+
+  /**
+   * Tests that the raster is read from the position of the buffer given, not from its start.
+   */
+  @Test
+  public void testReadsFromPosition() {
+    ByteBuffer raster = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6});
+    raster.position(3);
+    Image image = new MappedImage(1, 1, raster, false);
+    assertEquals(4, image.getPixelAt(0, 0).getComponent(ColorComponent.Red));
+    assertEquals(6, image.getPixelAt(0, 0).getComponent(ColorComponent.Blue));
+  }
+
+  @Test
+  public void testOperationsMatchPacked() {
+    Image packed = gradient(23, 19);
+    Image mapped = mapped(packed);
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+
+    assertTrue(sameColorPixelsInImage(packed.flipVertical(), mapped.flipVertical()));
+    assertTrue(sameColorPixelsInImage(packed.flipHorizontal().filter(sharpen),
+            mapped.flipHorizontal().filter(sharpen)));
+    assertTrue(sameColorPixelsInImage(packed.adjustBrightness(-30),
+            mapped.adjustBrightness(-30)));
+    assertTrue(sameColorPixelsInImage(packed.grayscale(ColorComponent.Luma),
+            mapped.grayscale(ColorComponent.Luma)));
+    assertTrue(sameColorPixelsInImage(packed.filter(sharpen, EdgePolicy.Clamp),
+            mapped.filter(sharpen, EdgePolicy.Clamp)));
+    assertTrue(sameColorPixelsInImage(packed.boxBlur(2), mapped.boxBlur(2)));
+    assertTrue(sameColorPixelsInImage(packed, mapped));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRasterSizeException() {
+    new MappedImage(2, 2, ByteBuffer.allocate(11), false);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullRasterException() {
+    new MappedImage(2, 2, null, true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveDimensionException() {
+    new MappedImage(0, 2, ByteBuffer.allocate(0), true);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelOutOfRangeException() {
+    mapped(gradient(3, 3)).getPixelAt(3, 0);
+  }
+
+  //the colors of an image as a read-only raster of bytes
+  private Image mapped(Image image) {
+    byte[] raster = new byte[3 * image.getWidth() * image.getHeight()];
+    for (int r = 0, k = 0; r < image.getHeight(); r++) {
+      for (int c = 0; c < image.getWidth(); c++, k += 3) {
+        int color = PackedRGB.fromPixel(image.getPixelAt(r, c));
+        raster[k] = (byte) PackedRGB.red(color);
+        raster[k + 1] = (byte) PackedRGB.green(color);
+        raster[k + 2] = (byte) PackedRGB.blue(color);
+      }
+    }
+    return new MappedImage(image.getWidth(), image.getHeight(),
+            ByteBuffer.wrap(raster).asReadOnlyBuffer(), false);
+  }
+}
@@ -0,0 +1,127 @@
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.OffHeapImage;
+import model.SimpleImage;
+
+import static fixtures.ImageFixtures.simpleGradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the OffHeapImage class.
+ */
+public class OffHeapImageTest {
+
+  /**
+   * Tests that the OffHeapImage constructors hold the same colors as were given.
+   */
+  @Test
+  public void testOffHeapImageConstructor() {
+    Image simple = simpleGradient(3, 2);
+    Image copied = new OffHeapImage(simple);
+    Image fromArray = new OffHeapImage(2, 1, new int[]{0xFF0000, 0x00FF80});
+    IntBuffer buffer = ByteBuffer.allocateDirect(12).asIntBuffer()
+            .put(new int[]{7, 0xFF0000, 0x00FF80});
+    Image fromBuffer = new OffHeapImage(2, 1, buffer.position(1));
+
+    assertTrue(sameColorPixelsInImage(copied, simple));
+    assertEquals(2, copied.getHeight());
+    assertEquals(3, copied.getWidth());
+    assertEquals(255, fromArray.getPixelAt(0, 0).getComponent(ColorComponent.Red));
+    assertEquals(128, fromArray.getPixelAt(0, 1).getComponent(ColorComponent.Blue));
+    assertTrue(sameColorPixelsInImage(fromArray, fromBuffer));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLengthException() {
+    new OffHeapImage(2, 2, new int[]{0, 0, 0});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHeapBufferException() {
+    new OffHeapImage(2, 1, IntBuffer.wrap(new int[]{0, 0}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImageException() {
+    new OffHeapImage(null);
+  }
+
+  /**
+   * Tests that every operation on an OffHeapImage produces the same colors as the same operation
+   *   on an equivalent SimpleImage, and is itself off-heap.
+   */
+  @Test
+  public void testOperationsMatchSimpleImage() {
+    Image simple = simpleGradient(6, 4);
+    Image offHeap = new OffHeapImage(simple);
+
+    assertTrue(offHeap.flipVertical() instanceof OffHeapImage);
+    assertTrue(sameColorPixelsInImage(offHeap.flipVertical(), simple.flipVertical()));
+    assertTrue(sameColorPixelsInImage(offHeap.flipHorizontal(), simple.flipHorizontal()));
+    assertTrue(sameColorPixelsInImage(offHeap.adjustBrightness(-45),
+            simple.adjustBrightness(-45)));
+
+    for (ColorComponent comp : ColorComponent.values()) {
+      assertTrue(sameColorPixelsInImage(offHeap.grayscale(comp), simple.grayscale(comp)));
+    }
+
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+    assertTrue(sameColorPixelsInImage(offHeap.transformColor(sepia),
+            simple.transformColor(sepia)));
+
+    double[][] blur = new double[][]{
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    assertTrue(sameColorPixelsInImage(offHeap.filter(blur), simple.filter(blur)));
+
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+
+    for (EdgePolicy policy : EdgePolicy.values()) {
+      assertTrue(sameColorPixelsInImage(offHeap.filter(blur, policy), simple.filter(blur, policy)));
+      assertTrue(sameColorPixelsInImage(offHeap.filter(wide, policy), simple.filter(wide, policy)));
+    }
+
+    assertTrue(sameColorPixelsInImage(offHeap.boxBlur(3), simple.boxBlur(3)));
+  }
+
+  /**
+   * Tests that a closed image reports that it is closed, and that closing twice is harmless.
+   */
+  @Test
+  public void testClose() {
+    OffHeapImage offHeap = new OffHeapImage(simpleGradient(2, 2));
+    assertFalse(offHeap.isClosed());
+    offHeap.close();
+    assertTrue(offHeap.isClosed());
+    offHeap.close();
+    assertTrue(offHeap.isClosed());
+    assertEquals(2, offHeap.getWidth());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUseAfterCloseException() {
+    OffHeapImage offHeap = new OffHeapImage(simpleGradient(2, 2));
+    offHeap.close();
+    offHeap.getPixelAt(0, 0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOperationAfterCloseException() {
+    OffHeapImage offHeap = new OffHeapImage(simpleGradient(2, 2));
+    offHeap.close();
+    offHeap.adjustBrightness(10);
+  }
+}
@@ -0,0 +1,332 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.PackedImage;
+import model.PackedRGB;
+import model.Pixel;
+import model.RGBPixel;
+import model.SimpleImage;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.toPixels;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PackedImage class.
+ */
+public class PackedImageTest {
+
+  Image image22;
+  Image image32;
+  Image simple22;
+  Image simple32;
+
+  /**
+   * Sets up test images, along with SimpleImage versions of them to check results against.
+   */
+  @Before
+  public void setup() {
+    image22 = new PackedImage(2, 2, new int[]{
+        PackedRGB.pack(255, 0, 0), PackedRGB.pack(180, 180, 0),
+        PackedRGB.pack(255, 0, 0), PackedRGB.pack(90, 90, 90)});
+    image32 = new PackedImage(2, 3, new int[]{
+        PackedRGB.pack(0, 100, 255), PackedRGB.pack(0, 100, 255),
+        PackedRGB.pack(0, 0, 255), PackedRGB.pack(0, 0, 255),
+        PackedRGB.pack(255, 222, 124), PackedRGB.pack(200, 175, 115)});
+    simple22 = new SimpleImage(
+            new Pixel[][]{{new RGBPixel(255,0,0), new RGBPixel(255,0,0)},
+                {new RGBPixel(180,180,0), new RGBPixel(90,90,90)}});
+    simple32 = new SimpleImage(
+            new Pixel[][]{{
+                    new RGBPixel(0,100,255),
+                    new RGBPixel(0,0,255),
+                    new RGBPixel(255,222,124)},{
+                    new RGBPixel(0,100,255),
+                    new RGBPixel(0,0,255),
+                    new RGBPixel(200,175,115)}});
+  }
+
+  /**
+   * Tests that the PackedImage constructors lay out colors in row-major order.
+   */
+  @Test
+  public void testPackedImageConstructor() {
+    assertTrue(sameColorPixelsInImage(image22, simple22));
+    assertTrue(sameColorPixelsInImage(image32, simple32));
+    assertFalse(sameColorPixelsInImage(image22, simple32));
+    assertTrue(sameColorPixelsInImage(new PackedImage(simple32), simple32));
+    assertEquals(3, image32.getHeight());
+    assertEquals(2, image32.getWidth());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullColorsException() {
+    new PackedImage(1, 1, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImageException() {
+    new PackedImage(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDimension0Exception() {
+    new PackedImage(0, 1, new int[]{});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLengthException() {
+    new PackedImage(2, 2, new int[]{0, 0, 0});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidColorException() {
+    new PackedImage(1, 1, new int[]{0xFF000000});
+  }
+
+  /**
+   * Tests the getPixelAt method in PackedImage.
+   */
+  @Test
+  public void testGetPixelAt() {
+    assertEquals(255, image22.getPixelAt(0,0).getComponent(ColorComponent.Red));
+    assertEquals(0, image22.getPixelAt(1,0).getComponent(ColorComponent.Green));
+    assertEquals(90, image22.getPixelAt(1,1).getComponent(ColorComponent.Intensity));
+
+    assertEquals(124, image32.getPixelAt(2,0).getComponent(ColorComponent.Blue));
+    assertEquals(90, image32.getPixelAt(0,0).getComponent(ColorComponent.Luma));
+    assertEquals(255, image32.getPixelAt(0,1).getComponent(ColorComponent.Value));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getPixelRowTooHigh() {
+    image32.getPixelAt(3,1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getPixelNegCol() {
+    image32.getPixelAt(0,-1);
+  }
+
+  /**
+   * Tests that every operation on a PackedImage produces the same colors as the same operation
+   *   on an equivalent SimpleImage.
+   */
+  @Test
+  public void testOperationsMatchSimpleImage() {
+    Image packed = gradient(7, 5);
+    Image simple = new SimpleImage(toPixels(packed));
+
+    assertTrue(sameColorPixelsInImage(packed.flipVertical(), simple.flipVertical()));
+    assertTrue(sameColorPixelsInImage(packed.flipHorizontal(), simple.flipHorizontal()));
+    assertTrue(sameColorPixelsInImage(packed.adjustBrightness(37), simple.adjustBrightness(37)));
+    assertTrue(sameColorPixelsInImage(packed.adjustBrightness(-90),
+            simple.adjustBrightness(-90)));
+
+    for (ColorComponent comp : ColorComponent.values()) {
+      assertTrue(sameColorPixelsInImage(packed.grayscale(comp), simple.grayscale(comp)));
+    }
+
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+    assertTrue(sameColorPixelsInImage(packed.transformColor(sepia),
+            simple.transformColor(sepia)));
+
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+    assertTrue(sameColorPixelsInImage(packed.filter(sharpen), simple.filter(sharpen)));
+
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+    assertTrue(sameColorPixelsInImage(packed.filter(wide), simple.filter(wide)));
+    assertTrue(sameColorPixelsInImage(image22.filter(wide), simple22.filter(wide)));
+
+    for (EdgePolicy policy : EdgePolicy.values()) {
+      assertTrue(sameColorPixelsInImage(packed.filter(sharpen, policy),
+              simple.filter(sharpen, policy)));
+      assertTrue(sameColorPixelsInImage(packed.filter(wide, policy), simple.filter(wide, policy)));
+    }
+
+    assertTrue(sameColorPixelsInImage(packed.boxBlur(2), simple.boxBlur(2)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransformColorException() {
+    image22.transformColor(new double[][]{{0.33, 0.33, 0.33}, {0.33, 0.33}, {0.33, 0.33, 0.33}});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterNullException() {
+    image22.filter(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterEvenException() {
+    image22.filter(new double[][]{{1.0},{2.0}});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterJaggedException() {
+    image22.filter(new double[][]{{1.0,0.5,0.6},{2.0},{-1.0}});
+  }
+
+  /**
+   * Tests that the lookup tables behind the color operations produce the same colors as
+   *   RGBPixel's arithmetic, over many colors, including matrices which need clamping.
+   */
+  @Test
+  public void testColorTablesMatchSimpleImage() {
+    Image simple = gradient(64, 64);
+    Image packed = new PackedImage(simple);
+    double[][][] matrices = new double[][][]{
+        {{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}},
+        {{0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}},
+        {{1.5, -0.25, 0.1}, {-0.7, 2.0, 0.35}, {0.5, 0.5, -1.0}}};
+
+    for (double[][] matrix : matrices) {
+      assertTrue(sameColorPixelsInImage(packed.transformColor(matrix),
+              simple.transformColor(matrix)));
+    }
+    for (ColorComponent comp : ColorComponent.values()) {
+      assertTrue(sameColorPixelsInImage(packed.grayscale(comp), simple.grayscale(comp)));
+    }
+    for (int delta : new int[]{-300, -17, 0, 99, 256}) {
+      assertTrue(sameColorPixelsInImage(packed.adjustBrightness(delta),
+              simple.adjustBrightness(delta)));
+    }
+  }
+
+  /**
+   * Tests that a kernel which is the outer product of a column and a row, and so is applied in
+   *   two passes, produces the same colors as summing over the whole kernel, up to rounding.
+   */
+  @Test
+  public void testSeparableKernelMatchesDirectSum() {
+    double[] column = new double[]{0.3, 0.45, 0.3};
+    double[] row = new double[]{0.1, 0.2, 0.35, 0.2, 0.1};
+    double[][] kernel = new double[column.length][row.length];
+    for (int r = 0; r < column.length; r++) {
+      for (int c = 0; c < row.length; c++) {
+        kernel[r][c] = column[r] * row[c];
+      }
+    }
+
+    assertMatchesDirectSum(new PackedImage(gradient(9, 8)), kernel, EdgePolicy.Zero);
+    assertMatchesDirectSum(new PackedImage(gradient(9, 8)), kernel, EdgePolicy.Wrap);
+  }
+
+  /**
+   * Tests that a large kernel, which is applied through Fourier transforms, produces the same
+   *   colors as summing over the whole kernel, up to rounding, including kernels larger than
+   *   the image.
+   */
+  @Test
+  public void testLargeKernelMatchesDirectSum() {
+    double[][] kernel = new double[9][11];
+    for (int r = 0; r < kernel.length; r++) {
+      for (int c = 0; c < kernel[r].length; c++) {
+        kernel[r][c] = ((r * 7 + c * 3) % 11 - 3) / 60.0;
+      }
+    }
+
+    assertMatchesDirectSum(new PackedImage(gradient(40, 27)), kernel, EdgePolicy.Zero);
+    assertMatchesDirectSum(new PackedImage(gradient(40, 27)), kernel, EdgePolicy.Mirror);
+    assertMatchesDirectSum(new PackedImage(gradient(6, 5)), kernel, EdgePolicy.Clamp);
+
+    //a kernel whose entries sum to 1, so that sums are not clamped, over three blocks of
+    //columns, the first two of which share the transform of their blues
+    double[][] average = new double[9][11];
+    for (int r = 0; r < average.length; r++) {
+      for (int c = 0; c < average[r].length; c++) {
+        average[r][c] = ((r * 7 + c * 3) % 11 + 1) / 594.0;
+      }
+    }
+    assertMatchesDirectSum(new PackedImage(gradient(150, 27)), average, EdgePolicy.Wrap);
+  }
+
+  /**
+   * Tests that a box blur matches the mean over the clipped square computed pixel by pixel,
+   *   for images tall enough that the summed-area tables are built one band at a time.
+   */
+  @Test
+  public void testBoxBlurMatchesMean() {
+    Image image = gradient(9, 150);
+    for (int radius : new int[]{1, 5, 40, 200}) {
+      Image blurred = image.boxBlur(radius);
+      for (int y = 0; y < image.getHeight(); y++) {
+        for (int x = 0; x < image.getWidth(); x++) {
+          int sum = 0;
+          int count = 0;
+          for (int r = Math.max(0, y - radius); r <= Math.min(149, y + radius); r++) {
+            for (int c = Math.max(0, x - radius); c <= Math.min(8, x + radius); c++) {
+              sum += image.getPixelAt(r, c).getComponent(ColorComponent.Blue);
+              count++;
+            }
+          }
+          assertEquals((sum + count / 2) / count,
+                  blurred.getPixelAt(y, x).getComponent(ColorComponent.Blue));
+        }
+      }
+    }
+  }
+
+  //checks each channel of the filtered image against summing over the whole kernel for each
+  //pixel
+  private void assertMatchesDirectSum(Image image, double[][] kernel, EdgePolicy policy) {
+    Image filtered = image.filter(kernel, policy);
+    int height = image.getHeight();
+    int width = image.getWidth();
+    ColorComponent[] channels = {ColorComponent.Red, ColorComponent.Green, ColorComponent.Blue};
+
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        double[] sums = new double[channels.length];
+        for (int r = 0; r < kernel.length; r++) {
+          for (int c = 0; c < kernel[r].length; c++) {
+            int rowHere = y - kernel[0].length / 2 + r;
+            int colHere = x - kernel.length / 2 + c;
+            if (policy == EdgePolicy.Wrap) {
+              rowHere = Math.floorMod(rowHere, height);
+              colHere = Math.floorMod(colHere, width);
+            } else if (policy == EdgePolicy.Clamp) {
+              rowHere = Math.max(0, Math.min(height - 1, rowHere));
+              colHere = Math.max(0, Math.min(width - 1, colHere));
+            } else if (policy == EdgePolicy.Mirror) {
+              rowHere = mirror(rowHere, height);
+              colHere = mirror(colHere, width);
+            } else if (rowHere < 0 || rowHere >= height || colHere < 0 || colHere >= width) {
+              continue;
+            }
+            Pixel here = image.getPixelAt(rowHere, colHere);
+            for (int i = 0; i < channels.length; i++) {
+              sums[i] += kernel[r][c] * here.getComponent(channels[i]);
+            }
+          }
+        }
+        Pixel actual = filtered.getPixelAt(y, x);
+        for (int i = 0; i < channels.length; i++) {
+          int expected = (int) Math.max(0, Math.min(255, Math.round(sums[i])));
+          assertTrue(Math.abs(expected - actual.getComponent(channels[i])) <= 1);
+        }
+      }
+    }
+  }
+
+  private int mirror(int index, int length) {
+    while (index < 0 || index >= length) {
+      index = index < 0 ? -index : 2 * (length - 1) - index;
+    }
+    return index;
+  }
+}
@@ -0,0 +1,105 @@
+import org.junit.After;
+import org.junit.Test;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.OffHeapImage;
+import model.Parallelism;
+import model.PlanarImage;
+import model.SimpleImage;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.toPixels;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the Parallelism class, and that operations split between threads produce exactly the
+ *   same colors as on one thread.
+ */
+public class ParallelismTest {
+
+  private final int defaultParallelism = Parallelism.getParallelism();
+
+  /**
+   * Restores the default configuration for the other tests.
+   */
+  @After
+  public void restore() {
+    Parallelism.setParallelism(this.defaultParallelism);
+    Parallelism.setThreshold(Parallelism.DEFAULT_THRESHOLD);
+  }
+
+  @Test
+  public void testConfiguration() {
+    Parallelism.setParallelism(3);
+    Parallelism.setThreshold(0);
+    assertEquals(3, Parallelism.getParallelism());
+    assertEquals(0, Parallelism.getThreshold());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveParallelismException() {
+    Parallelism.setParallelism(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeThresholdException() {
+    Parallelism.setThreshold(-1);
+  }
+
+  /**
+   * Tests that every operation on every in-memory image produces the same colors whether it
+   *   runs on one thread or is split into bands across several.
+   */
+  @Test
+  public void testParallelMatchesSequential() {
+    Image packed = gradient(45, 130);
+    Image[] images = {new SimpleImage(toPixels(packed)), packed, new PlanarImage(packed),
+        new OffHeapImage(packed)};
+
+    for (Image image : images) {
+      Parallelism.setParallelism(1);
+      Image[] sequential = operations(image);
+      Parallelism.setParallelism(4);
+      Parallelism.setThreshold(0);
+      Image[] parallel = operations(image);
+      Parallelism.setThreshold(Parallelism.DEFAULT_THRESHOLD);
+
+      for (int i = 0; i < sequential.length; i++) {
+        assertTrue(sameColorPixelsInImage(sequential[i], parallel[i]));
+      }
+    }
+  }
+
+  //applies every kind of operation, including kernels which take each path of the filter
+  private Image[] operations(Image image) {
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+    double[][] blur = new double[][]{
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+    double[][] large = new double[9][9];
+    for (int r = 0; r < large.length; r++) {
+      for (int c = 0; c < large[r].length; c++) {
+        large[r][c] = ((r * 5 + c * 3) % 7 - 2) / 40.0;
+      }
+    }
+
+    return new Image[]{
+        image.flipHorizontal().flipVertical().filter(blur),
+        image.adjustBrightness(-30),
+        image.grayscale(ColorComponent.Luma),
+        image.transformColor(sepia),
+        image.filter(blur, EdgePolicy.Mirror),
+        image.filter(wide),
+        image.filter(large, EdgePolicy.Wrap),
+        image.boxBlur(3)};
+  }
+}
@@ -0,0 +1,128 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.PlanarImage;
+import model.Pixel;
+import model.RGBPixel;
+import model.SimpleImage;
+
+import static fixtures.ImageFixtures.simpleGradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PlanarImage class.
+ */
+public class PlanarImageTest {
+
+  Image image32;
+  Image simple32;
+
+  /**
+   * Sets up a test image, along with a SimpleImage version of it to check results against.
+   */
+  @Before
+  public void setup() {
+    image32 = new PlanarImage(2, 3,
+            new byte[]{0, 0, 0, 0, (byte) 255, (byte) 200},
+            new byte[]{100, 100, 0, 0, (byte) 222, (byte) 175},
+            new byte[]{(byte) 255, (byte) 255, (byte) 255, (byte) 255, 124, 115});
+    simple32 = new SimpleImage(
+            new Pixel[][]{{
+                    new RGBPixel(0,100,255),
+                    new RGBPixel(0,0,255),
+                    new RGBPixel(255,222,124)},{
+                    new RGBPixel(0,100,255),
+                    new RGBPixel(0,0,255),
+                    new RGBPixel(200,175,115)}});
+  }
+
+  /**
+   * Tests that the PlanarImage constructors lay out each plane in row-major order.
+   */
+  @Test
+  public void testPlanarImageConstructor() {
+    assertTrue(sameColorPixelsInImage(image32, simple32));
+    assertTrue(sameColorPixelsInImage(new PlanarImage(simple32), simple32));
+    assertEquals(3, image32.getHeight());
+    assertEquals(2, image32.getWidth());
+    assertEquals(200, image32.getPixelAt(2, 1).getComponent(ColorComponent.Red));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullPlaneException() {
+    new PlanarImage(1, 1, new byte[1], null, new byte[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLengthException() {
+    new PlanarImage(2, 1, new byte[2], new byte[2], new byte[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getPixelColTooHigh() {
+    image32.getPixelAt(0,2);
+  }
+
+  /**
+   * Tests that every operation on a PlanarImage produces the same colors as the same operation
+   *   on an equivalent SimpleImage, including chains through grayscale images whose channels
+   *   share a plane.
+   */
+  @Test
+  public void testOperationsMatchSimpleImage() {
+    Image planar = new PlanarImage(simpleGradient(6, 5));
+    Image simple = simpleGradient(6, 5);
+
+    assertTrue(sameColorPixelsInImage(planar.flipVertical(), simple.flipVertical()));
+    assertTrue(sameColorPixelsInImage(planar.flipHorizontal(), simple.flipHorizontal()));
+    assertTrue(sameColorPixelsInImage(planar.adjustBrightness(60), simple.adjustBrightness(60)));
+
+    for (ColorComponent comp : ColorComponent.values()) {
+      assertTrue(sameColorPixelsInImage(planar.grayscale(comp), simple.grayscale(comp)));
+      assertTrue(sameColorPixelsInImage(planar.grayscale(comp).adjustBrightness(-20),
+              simple.grayscale(comp).adjustBrightness(-20)));
+    }
+
+    double[][] matrix = new double[][]{
+        {0.1, 0.8, 0.1},
+        {0.33, 0.33, 0.34},
+        {1.0, -1.0, 1.0}};
+    assertTrue(sameColorPixelsInImage(planar.transformColor(matrix),
+            simple.transformColor(matrix)));
+
+    double[][] blur = new double[][]{
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    assertTrue(sameColorPixelsInImage(planar.filter(blur), simple.filter(blur)));
+    assertTrue(sameColorPixelsInImage(planar.grayscale(ColorComponent.Luma).filter(blur),
+            simple.grayscale(ColorComponent.Luma).filter(blur)));
+
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+    assertTrue(sameColorPixelsInImage(planar.filter(wide), simple.filter(wide)));
+
+    for (EdgePolicy policy : EdgePolicy.values()) {
+      assertTrue(sameColorPixelsInImage(planar.filter(blur, policy), simple.filter(blur, policy)));
+      assertTrue(sameColorPixelsInImage(planar.filter(wide, policy), simple.filter(wide, policy)));
+    }
+
+    assertTrue(sameColorPixelsInImage(planar.boxBlur(2), simple.boxBlur(2)));
+    assertTrue(sameColorPixelsInImage(planar.grayscale(ColorComponent.Value).boxBlur(1),
+            simple.grayscale(ColorComponent.Value).boxBlur(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransformColorException() {
+    image32.transformColor(new double[][]{{0.33, 0.33, 0.33}, {0.33, 0.33, 0.33}});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterEvenException() {
+    image32.filter(new double[][]{{0.5,0.5,0.5},{-0.5,0.5,-0.5}});
+  }
+}
@@ -0,0 +1,121 @@
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.PackedImage;
+import model.PackedRGB;
+import model.RasterImage;
+
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the RasterImage class, which keeps its colors in the raster of a BufferedImage, against
+ *   the same colors held in a PackedImage.
+ */
+public class RasterImageTest {
+
+  @Test
+  public void testSharesRaster() {
+    int[] rgb = colors(6, 4);
+    RasterImage image = new RasterImage(6, 4, rgb);
+    BufferedImage buffered = image.getBufferedImage();
+    assertEquals(BufferedImage.TYPE_INT_RGB, buffered.getType());
+    assertSame(rgb, ((DataBufferInt) buffered.getRaster().getDataBuffer()).getData());
+    for (int r = 0; r < 4; r++) {
+      for (int c = 0; c < 6; c++) {
+        assertEquals(rgb[r * 6 + c], buffered.getRGB(c, r) & 0xFFFFFF);
+      }
+    }
+
+    assertSame(buffered, new RasterImage(buffered).getBufferedImage());
+    assertSame(image, RasterImage.of(image));
+  }
+
+  /**
+   * Tests that a PackedImage is drawn from its own array, and any other image from a copy.
+   */
+  @Test
+  public void testOf() {
+    int[] rgb = colors(5, 3);
+    RasterImage packed = RasterImage.of(new PackedImage(5, 3, rgb));
+    assertSame(rgb, ((DataBufferInt) packed.getBufferedImage().getRaster().getDataBuffer())
+            .getData());
+
+    Image flipped = new PackedImage(5, 3, rgb).flipHorizontal();
+    assertTrue(sameColorPixelsInImage(flipped, RasterImage.of(flipped)));
+  }
+
+  /**
+   * Tests that every operation produces another image backed by a BufferedImage, with the same
+   *   colors a PackedImage produces.
+   */
+  @Test
+  public void testOperationsMatchPacked() {
+    Image packed = new PackedImage(23, 19, colors(23, 19));
+    Image raster = new RasterImage(23, 19, colors(23, 19));
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+
+    Image[] expected = {packed.flipVertical(), packed.flipHorizontal(),
+        packed.adjustBrightness(-30), packed.grayscale(ColorComponent.Luma),
+        packed.transformColor(sepia), packed.filter(sharpen, EdgePolicy.Clamp),
+        packed.boxBlur(2)};
+    Image[] actual = {raster.flipVertical(), raster.flipHorizontal(),
+        raster.adjustBrightness(-30), raster.grayscale(ColorComponent.Luma),
+        raster.transformColor(sepia), raster.filter(sharpen, EdgePolicy.Clamp),
+        raster.boxBlur(2)};
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue(actual[i] instanceof RasterImage);
+      assertTrue(sameColorPixelsInImage(expected[i], actual[i]));
+    }
+    assertTrue(sameColorPixelsInImage(packed, raster));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongTypeException() {
+    new RasterImage(new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSubimageException() {
+    new RasterImage(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB).getSubimage(1, 1, 2, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImageException() {
+    new RasterImage(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidColorException() {
+    new RasterImage(1, 2, new int[]{0x00FFFFFF, 0xFF000000});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelOutOfRangeException() {
+    new RasterImage(3, 3, colors(3, 3)).getPixelAt(3, 0);
+  }
+
+  private int[] colors(int width, int height) {
+    int[] rgb = new int[width * height];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = PackedRGB.pack((i * 37) % 256, (i * 101 + 13) % 256, 255 - (i * 53) % 256);
+    }
+    return rgb;
+  }
+}
@@ -0,0 +1,160 @@
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.PackedImage;
+import model.RowSource;
+import model.ScanlinePipeline;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the ScanlinePipeline class, and that streamed operations produce exactly the same colors
+ *   as the same operations on a whole image.
+ */
+public class ScanlinePipelineTest {
+
+  private final double[][] sharpen = new double[][]{
+      {-0.125, -0.125, -0.125, -0.125, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, 0.25, 1.0, 0.25, -0.125},
+      {-0.125, 0.25, 0.25, 0.25, -0.125},
+      {-0.125, -0.125, -0.125, -0.125, -0.125}};
+
+  @Test
+  public void testPointwiseMatchesImage() throws IOException {
+    Image image = gradient(29, 17);
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+
+    assertTrue(sameColorPixelsInImage(image.adjustBrightness(-40),
+            drain(stream(image).adjustBrightness(-40))));
+    assertTrue(sameColorPixelsInImage(image.grayscale(ColorComponent.Luma),
+            drain(stream(image).grayscale(ColorComponent.Luma))));
+    assertTrue(sameColorPixelsInImage(image.transformColor(sepia),
+            drain(stream(image).transformColor(sepia))));
+    assertTrue(sameColorPixelsInImage(image.flipHorizontal(),
+            drain(stream(image).flipHorizontal())));
+  }
+
+  /**
+   * Tests kernels which take each path of the filter (summed directly, separated, and through
+   *   transforms), with every edge policy which can be streamed, on images both larger and
+   *   smaller than the kernels.
+   */
+  @Test
+  public void testFiltersMatchImage() throws IOException {
+    double[][] blur = new double[][]{
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    double[][] tall = new double[][]{{0.25}, {0.5}, {-0.25}, {0.75}, {-0.25}};
+    double[][] large = new double[9][9];
+    for (int r = 0; r < large.length; r++) {
+      for (int c = 0; c < large[r].length; c++) {
+        large[r][c] = ((r * 5 + c * 3) % 7 - 2) / 40.0;
+      }
+    }
+    double[][][] kernels = {this.sharpen, blur, tall, large};
+    EdgePolicy[] policies = {EdgePolicy.Zero, EdgePolicy.Clamp, EdgePolicy.Mirror};
+
+    for (Image image : new Image[]{gradient(37, 61), gradient(6, 4)}) {
+      for (double[][] kernel : kernels) {
+        for (EdgePolicy policy : policies) {
+          assertTrue(sameColorPixelsInImage(image.filter(kernel, policy),
+                  drain(stream(image).filter(kernel, policy))));
+        }
+      }
+      assertTrue(sameColorPixelsInImage(image.boxBlur(3), drain(stream(image).boxBlur(3))));
+    }
+  }
+
+  @Test
+  public void testChainedMatchesImage() throws IOException {
+    Image image = gradient(40, 33);
+    Image expected = image.adjustBrightness(25).filter(this.sharpen).boxBlur(2)
+            .grayscale(ColorComponent.Value).filter(this.sharpen, EdgePolicy.Mirror);
+    assertTrue(sameColorPixelsInImage(expected, drain(stream(image).adjustBrightness(25)
+            .filter(this.sharpen).boxBlur(2).grayscale(ColorComponent.Value)
+            .filter(this.sharpen, EdgePolicy.Mirror))));
+  }
+
+  @Test
+  public void testClosesSource() throws IOException {
+    boolean[] closed = new boolean[1];
+    ScanlinePipeline source = new ScanlinePipeline(2, 2, new ClosingRows(closed));
+    ScanlinePipeline sharpened = source.filter(this.sharpen);
+    sharpened.close();
+    assertTrue(closed[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrapException() {
+    stream(gradient(5, 5)).filter(this.sharpen, EdgePolicy.Wrap);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonPositiveDimensionException() {
+    new ScanlinePipeline(0, 3, (row, dest) -> { });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullSourceException() {
+    new ScanlinePipeline(3, 3, null);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRowOutOfOrderException() throws IOException {
+    stream(gradient(5, 5)).readRow(1, new int[5]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFeedsTwoOperationsException() {
+    ScanlinePipeline pipeline = stream(gradient(5, 5));
+    pipeline.adjustBrightness(10);
+    pipeline.adjustBrightness(20);
+  }
+
+  //a source of black rows which records whether it was closed
+  private static final class ClosingRows implements RowSource, Closeable {
+
+    private final boolean[] closed;
+
+    private ClosingRows(boolean[] closed) {
+      this.closed = closed;
+    }
+
+    @Override
+    public void readRow(int row, int[] dest) {
+      // rows are black
+    }
+
+    @Override
+    public void close() {
+      this.closed[0] = true;
+    }
+  }
+
+  private ScanlinePipeline stream(Image image) {
+    return new ScanlinePipeline(image.getWidth(), image.getHeight(), image::copyRow);
+  }
+
+  private Image drain(ScanlinePipeline pipeline) throws IOException {
+    int width = pipeline.getWidth();
+    int[] rgb = new int[width * pipeline.getHeight()];
+    int[] row = new int[width];
+    for (int r = 0; r < pipeline.getHeight(); r++) {
+      pipeline.readRow(r, row);
+      System.arraycopy(row, 0, rgb, r * width, width);
+    }
+    return new PackedImage(width, pipeline.getHeight(), rgb);
+  }
+}
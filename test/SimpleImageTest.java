@@ -2,11 +2,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import model.ColorComponent;
+import model.EdgePolicy;
 import model.Image;
 import model.Pixel;
 import model.RGBPixel;
 import model.SimpleImage;
 
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
@@ -63,6 +65,26 @@ public class SimpleImageTest {
     assertEquals(2,test2.getWidth());
   }
 
+  /**
+   * Tests that an image constructed from packed colors matches the image they were copied from.
+   */
+  @Test
+  public void testPackedColorsConstructor() {
+    int[] colors = new int[6];
+    image32.copyColors(colors);
+    assertTrue(sameColorPixelsInImage(image32, new SimpleImage(2, 3, colors)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPackedColorsMismatchException() {
+    new SimpleImage(2, 3, new int[5]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPackedColorException() {
+    new SimpleImage(1, 1, new int[]{0x01000000});
+  }
+
   /**
    * Tests that SimpleImage constructor throws exception if given pixels are null.
    */
@@ -406,25 +428,58 @@ public class SimpleImageTest {
     image22.filter(new double[][]{{0.5,0.5,0.5},{-0.5,0.5,-0.5}});
   }
 
-  private boolean sameColorPixelsInImage(Image im1, Image im2) {
-    if (im1.getHeight() != im2.getHeight() || im1.getWidth() != im2.getWidth()) {
-      return false;
+  /**
+   * Tests that each edge policy treats the neighbors of border pixels which lie outside of the
+   *   image as expected, and leaves pixels whose neighbors are all inside the image alone.
+   */
+  @Test
+  public void testFilterEdgePolicies() {
+    Image row = new SimpleImage(new Pixel[][]{
+        {new RGBPixel(10, 0, 0)}, {new RGBPixel(20, 0, 0)}, {new RGBPixel(30, 0, 0)}});
+    double[][] kernel = new double[][]{{0, 0, 0}, {1, 2, 4}, {0, 0, 0}};
+    int[][] expected = new int[][]{{100, 170, 80}, {110, 170, 200}, {120, 170, 160},
+        {130, 170, 120}};
+    EdgePolicy[] policies = new EdgePolicy[]{EdgePolicy.Zero, EdgePolicy.Clamp,
+        EdgePolicy.Mirror, EdgePolicy.Wrap};
+
+    for (int i = 0; i < policies.length; i++) {
+      Image filtered = row.filter(kernel, policies[i]);
+      for (int col = 0; col < 3; col++) {
+        assertEquals(expected[i][col],
+                filtered.getPixelAt(0, col).getComponent(ColorComponent.Red));
+      }
     }
 
-    boolean sameSoFar = true;
+    assertTrue(sameColorPixelsInImage(row.filter(kernel), row.filter(kernel, EdgePolicy.Zero)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFilterNullPolicyException() {
+    image22.filter(new double[][]{{1.0}}, null);
+  }
 
-    for (int r = 0; r < im1.getHeight() && sameSoFar; r++) {
-      for (int c = 0; c < im1.getWidth() && sameSoFar; c++) {
-        Pixel p1 = im1.getPixelAt(r,c);
-        Pixel p2 = im2.getPixelAt(r,c);
-        sameSoFar &= p1.getComponent(ColorComponent.Red) == p2.getComponent(ColorComponent.Red) &&
-                p1.getComponent(ColorComponent.Green) == p2.getComponent(ColorComponent.Green) &&
-                p1.getComponent(ColorComponent.Blue) == p2.getComponent(ColorComponent.Blue);
+  /**
+   * Tests that a box blur takes the mean over the square clipped to the image, rounding halves
+   *   up, and that a radius of 0 leaves the image unchanged.
+   */
+  @Test
+  public void testBoxBlur() {
+    Image blurred = image22.boxBlur(1);
+    for (int row = 0; row < 2; row++) {
+      for (int col = 0; col < 2; col++) {
+        Pixel p = blurred.getPixelAt(row, col);
+        assertEquals(195, p.getComponent(ColorComponent.Red));
+        assertEquals(68, p.getComponent(ColorComponent.Green));
+        assertEquals(23, p.getComponent(ColorComponent.Blue));
       }
     }
 
+    assertTrue(sameColorPixelsInImage(image22.boxBlur(Integer.MAX_VALUE), blurred));
+    assertTrue(sameColorPixelsInImage(image32.boxBlur(0), image32));
+  }
 
-
-    return sameSoFar;
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoxBlurNegativeRadiusException() {
+    image22.boxBlur(-1);
   }
 }
@@ -0,0 +1,57 @@
+import org.junit.Test;
+
+import model.ColorComponent;
+import model.Image;
+import model.SummedAreaTable;
+
+import static fixtures.ImageFixtures.gradient;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the SummedAreaTable class.
+ */
+public class SummedAreaTableTest {
+
+  /**
+   * Tests that the sum over every rectangle of an image matches adding up its pixels.
+   */
+  @Test
+  public void testSumMatchesPixels() {
+    Image image = gradient(5, 4);
+    SummedAreaTable table = new SummedAreaTable(image);
+    ColorComponent[] channels = {ColorComponent.Red, ColorComponent.Green, ColorComponent.Blue};
+
+    for (int row = 0; row <= 4; row++) {
+      for (int col = 0; col <= 5; col++) {
+        for (int rows = 0; row + rows <= 4; rows++) {
+          for (int cols = 0; col + cols <= 5; cols++) {
+            for (ColorComponent channel : channels) {
+              long expected = 0;
+              for (int r = row; r < row + rows; r++) {
+                for (int c = col; c < col + cols; c++) {
+                  expected += image.getPixelAt(r, c).getComponent(channel);
+                }
+              }
+              assertEquals(expected, table.sum(channel, row, col, rows, cols));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImageException() {
+    new SummedAreaTable(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRectangleOutOfRangeException() {
+    new SummedAreaTable(gradient(3, 3)).sum(ColorComponent.Red, 1, 1, 3, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDerivedChannelException() {
+    new SummedAreaTable(gradient(3, 3)).sum(ColorComponent.Luma, 0, 0, 1, 1);
+  }
+}
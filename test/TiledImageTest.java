@@ -0,0 +1,160 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import model.ColorComponent;
+import model.EdgePolicy;
+import model.Image;
+import model.SimpleImage;
+import model.TiledImage;
+
+import static fixtures.ImageFixtures.simpleGradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the TiledImage class. Uses tiles which do not evenly divide the test images, and a tile
+ *   budget smaller than the number of tiles, so that partial tiles, halos which cross tiles, and
+ *   eviction of tiles are all exercised.
+ */
+public class TiledImageTest {
+
+  /**
+   * Tests that the TiledImage constructors hold the same colors as were given.
+   */
+  @Test
+  public void testTiledImageConstructor() throws IOException {
+    Image simple = simpleGradient(7, 5);
+    TiledImage tiled = new TiledImage(simple, 3, 2);
+    TiledImage streamed = new TiledImage(2, 1, 1, 1, (row, dest) -> {
+      dest[0] = 0xFF0000;
+      dest[1] = 0x00FF80;
+    });
+
+    assertTrue(sameColorPixelsInImage(tiled, simple));
+    assertEquals(5, tiled.getHeight());
+    assertEquals(7, tiled.getWidth());
+    assertEquals(3, tiled.getTileSize());
+    assertEquals(2, tiled.getTileBudget());
+    assertEquals(255, streamed.getPixelAt(0, 0).getComponent(ColorComponent.Red));
+    assertEquals(128, streamed.getPixelAt(0, 1).getComponent(ColorComponent.Blue));
+
+    int[] row = new int[7];
+    tiled.copyRow(4, row);
+    for (int col = 0; col < 7; col++) {
+      assertEquals(simple.getPixelAt(4, col).getComponent(ColorComponent.Green),
+              (row[col] >> 8) & 0xFF);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTileSizeException() throws IOException {
+    new TiledImage(simpleGradient(2, 2), 0, 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTileBudgetException() throws IOException {
+    new TiledImage(simpleGradient(2, 2), 4, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidColorException() throws IOException {
+    new TiledImage(1, 1, 4, 4, (row, dest) -> dest[0] = 0xFF000000);
+  }
+
+  /**
+   * Tests that every operation on a TiledImage produces the same colors as the same operation
+   *   on an equivalent SimpleImage, and is itself tiled.
+   */
+  @Test
+  public void testOperationsMatchSimpleImage() throws IOException {
+    Image simple = simpleGradient(7, 5);
+    Image tiled = new TiledImage(simple, 3, 2);
+
+    assertTrue(tiled.flipVertical() instanceof TiledImage);
+    assertTrue(sameColorPixelsInImage(tiled.flipVertical(), simple.flipVertical()));
+    assertTrue(sameColorPixelsInImage(tiled.flipHorizontal(), simple.flipHorizontal()));
+    assertTrue(sameColorPixelsInImage(tiled.flipHorizontal().flipVertical(),
+            simple.flipHorizontal().flipVertical()));
+    assertTrue(sameColorPixelsInImage(tiled.adjustBrightness(25), simple.adjustBrightness(25)));
+
+    for (ColorComponent comp : ColorComponent.values()) {
+      assertTrue(sameColorPixelsInImage(tiled.grayscale(comp), simple.grayscale(comp)));
+    }
+
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+    assertTrue(sameColorPixelsInImage(tiled.transformColor(sepia), simple.transformColor(sepia)));
+
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+    assertTrue(sameColorPixelsInImage(tiled.filter(sharpen), simple.filter(sharpen)));
+
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+    assertTrue(sameColorPixelsInImage(tiled.filter(wide), simple.filter(wide)));
+
+    for (EdgePolicy policy : EdgePolicy.values()) {
+      assertTrue(sameColorPixelsInImage(tiled.filter(sharpen, policy),
+              simple.filter(sharpen, policy)));
+      assertTrue(sameColorPixelsInImage(tiled.filter(wide, policy), simple.filter(wide, policy)));
+    }
+
+    assertTrue(sameColorPixelsInImage(tiled.boxBlur(2), simple.boxBlur(2)));
+    assertTrue(sameColorPixelsInImage(tiled.boxBlur(100), simple.boxBlur(100)));
+  }
+
+  /**
+   * Tests passes which cycle through many more tiles than the budget, a row at a time as saving
+   *   reads an image and through the halos of a filter, which must hold no more than the budget
+   *   of tiles in memory however many tiles they visit.
+   */
+  @Test
+  public void testManyMoreTilesThanBudget() throws IOException {
+    Image image = simpleGradient(2000, 500);
+    TiledImage tiled = new TiledImage(image, 32, 4);
+    int[] expected = new int[2000];
+    int[] actual = new int[2000];
+    for (int pass = 0; pass < 3; pass++) {
+      for (int row = 0; row < 500; row++) {
+        image.copyRow(row, expected);
+        tiled.copyRow(row, actual);
+        assertTrue(Arrays.equals(expected, actual));
+      }
+    }
+
+    double[][] edges = new double[][]{{0, -1, 0}, {-1, 4, -1}, {0, -1, 0}};
+    assertTrue(sameColorPixelsInImage(image.filter(edges, EdgePolicy.Mirror),
+            tiled.filter(edges, EdgePolicy.Mirror)));
+    assertTrue(sameColorPixelsInImage(image.adjustBrightness(30), tiled.adjustBrightness(30)));
+    tiled.close();
+  }
+
+  /**
+   * Tests that closing a tiled image is harmless to repeat, and prevents further use.
+   */
+  @Test
+  public void testClose() throws IOException {
+    TiledImage tiled = new TiledImage(simpleGradient(4, 4), 2, 1);
+    assertFalse(tiled.isClosed());
+    tiled.close();
+    assertTrue(tiled.isClosed());
+    tiled.close();
+    assertTrue(tiled.isClosed());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUseAfterCloseException() throws IOException {
+    TiledImage tiled = new TiledImage(simpleGradient(4, 4), 2, 1);
+    tiled.close();
+    tiled.grayscale(ColorComponent.Luma);
+  }
+}
@@ -0,0 +1,104 @@
+import org.junit.After;
+import org.junit.Test;
+
+import model.EdgePolicy;
+import model.Image;
+import model.PlanarImage;
+import model.SimpleImage;
+import model.Tiling;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.toPixels;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the Tiling class, and that filters worked through in strips of columns produce exactly
+ *   the same colors as when whole rows are filtered at once.
+ */
+public class TilingTest {
+
+  /**
+   * Restores the default configuration for the other tests.
+   */
+  @After
+  public void restore() {
+    Tiling.setTileWidth(Tiling.AUTO);
+  }
+
+  @Test
+  public void testConfiguration() {
+    Tiling.setTileWidth(48);
+    assertEquals(48, Tiling.getTileWidth());
+    Tiling.setTileWidth(Integer.MAX_VALUE);
+    assertEquals(Integer.MAX_VALUE, Tiling.getTileWidth());
+    Tiling.setTileWidth(Tiling.AUTO);
+    assertEquals(Tiling.AUTO, Tiling.getTileWidth());
+  }
+
+  /**
+   * Tests that strips sized to the estimated cache, on an image wider than one strip, produce
+   *   the same colors as whole rows.
+   */
+  @Test
+  public void testCacheSizedMatchesWholeRows() {
+    Image image = gradient(7000, 6);
+    Tiling.setTileWidth(Integer.MAX_VALUE);
+    Image[] whole = filters(image);
+    Tiling.setTileWidth(Tiling.AUTO);
+    Image[] tiled = filters(image);
+    for (int i = 0; i < whole.length; i++) {
+      assertTrue(sameColorPixelsInImage(whole[i], tiled[i]));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeTileWidthException() {
+    Tiling.setTileWidth(-1);
+  }
+
+  /**
+   * Tests that filters on every in-memory image produce the same colors with strips narrower
+   *   than the kernel, narrower than the image, and as wide as a row.
+   */
+  @Test
+  public void testTiledMatchesWholeRows() {
+    Image packed = gradient(150, 23);
+    Image[] images = {new SimpleImage(toPixels(packed)), packed, new PlanarImage(packed)};
+
+    for (Image image : images) {
+      Tiling.setTileWidth(Integer.MAX_VALUE);
+      Image[] whole = filters(image);
+      for (int columns : new int[]{1, 3, 7, 64}) {
+        Tiling.setTileWidth(columns);
+        Image[] tiled = filters(image);
+        for (int i = 0; i < whole.length; i++) {
+          assertTrue(sameColorPixelsInImage(whole[i], tiled[i]));
+        }
+      }
+    }
+  }
+
+  //applies kernels which are applied directly, including one taller than it is wide
+  private Image[] filters(Image image) {
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+    double[][] tall = new double[][]{
+        {0.1, -0.2, 0.3},
+        {0.05, 0.6, 0.05},
+        {0.3, -0.2, 0.1},
+        {0.0, 0.2, 0.0},
+        {-0.1, 0.0, -0.1}};
+
+    return new Image[]{
+        image.filter(sharpen),
+        image.filter(sharpen, EdgePolicy.Mirror),
+        image.filter(tall, EdgePolicy.Wrap),
+        image.filter(tall, EdgePolicy.Clamp)};
+  }
+}
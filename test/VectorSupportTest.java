@@ -0,0 +1,87 @@
+import org.junit.After;
+import org.junit.Test;
+
+import model.EdgePolicy;
+import model.Image;
+import model.PlanarImage;
+import model.VectorSupport;
+
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the VectorSupport class, and that operations computed with vector instructions produce
+ *   exactly the same colors as the scalar code. Without the Vector API both runs are scalar.
+ */
+public class VectorSupportTest {
+
+  private final boolean defaultEnabled = VectorSupport.isEnabled();
+
+  /**
+   * Restores the default configuration for the other tests.
+   */
+  @After
+  public void restore() {
+    VectorSupport.setEnabled(this.defaultEnabled);
+  }
+
+  @Test
+  public void testEnabledOnlyIfAvailable() {
+    VectorSupport.setEnabled(true);
+    assertEquals(VectorSupport.isAvailable(), VectorSupport.isEnabled());
+    VectorSupport.setEnabled(false);
+    assertFalse(VectorSupport.isEnabled());
+  }
+
+  /**
+   * Tests that brightness changes, color transformations and filters produce the same colors
+   *   with and without vector instructions, including runs which do not fill a whole vector and
+   *   sums which fall on a half.
+   */
+  @Test
+  public void testVectorMatchesScalar() {
+    Image packed = gradient(43, 11);
+    Image[] images = {packed, new PlanarImage(packed)};
+
+    for (Image image : images) {
+      VectorSupport.setEnabled(false);
+      Image[] scalar = operations(image);
+      VectorSupport.setEnabled(true);
+      Image[] vector = operations(image);
+
+      for (int i = 0; i < scalar.length; i++) {
+        assertTrue(sameColorPixelsInImage(scalar[i], vector[i]));
+      }
+    }
+  }
+
+  private Image[] operations(Image image) {
+    double[][] sepia = new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+    double[][] halves = new double[][]{
+        {0.5, 0.0, 0.0},
+        {-0.5, 0.5, 0.0},
+        {1.5, -2.0, 0.5}};
+    double[][] sharpen = new double[][]{
+        {-0.125, -0.125, -0.125, -0.125, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, 0.25, 1.0, 0.25, -0.125},
+        {-0.125, 0.25, 0.25, 0.25, -0.125},
+        {-0.125, -0.125, -0.125, -0.125, -0.125}};
+    double[][] wide = new double[][]{{-0.5, 2.0, -0.5}};
+
+    return new Image[]{
+        image.adjustBrightness(77),
+        image.adjustBrightness(-200),
+        image.transformColor(sepia),
+        image.transformColor(halves),
+        image.filter(sharpen),
+        image.filter(sharpen, EdgePolicy.Wrap),
+        image.filter(wide)};
+  }
+}
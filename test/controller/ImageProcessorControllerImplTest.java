@@ -127,7 +127,10 @@ public class ImageProcessorControllerImplTest {
             "  Command: q, quit\n" +
             "  Command: menu\n" +
             "  Command: load  |  Arguments: file-name image-name\n" +
+            "  Command: load-mapped  |  Arguments: file-name image-name\n" +
             "  Command: save  |  Arguments: image-name file-name\n" +
+            "  Command: save-binary  |  Arguments: image-name file-name\n" +
+            "  Command: save-compressed  |  Arguments: image-name file-name\n" +
             "  Command: red-component  |  Arguments: image-name new-image-name\n" +
             "  Command: green-component  |  Arguments: image-name new-image-name\n" +
             "  Command: blue-component  |  Arguments: image-name new-image-name\n" +
@@ -140,6 +143,7 @@ public class ImageProcessorControllerImplTest {
             "  Command: grayscale  |  Arguments: image-name new-image-name\n" +
             "  Command: sepia  |  Arguments: image-name new-image-name\n" +
             "  Command: blur  |  Arguments: image-name new-image-name\n" +
+            "  Command: box-blur  |  Arguments: radius image-name new-image-name\n" +
             "  Command: sharpen  |  Arguments: image-name new-image-name\n" +
             "Command:\n" +
             "Arguments:\n" +
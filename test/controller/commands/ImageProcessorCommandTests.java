@@ -36,6 +36,9 @@ public class ImageProcessorCommandTests {
     new File("test/controller/commands/saveTo/a.jpg").delete();
     new File("test/controller/commands/saveTo/a.bmp").delete();
     new File("test/controller/commands/saveTo/a.png").delete();
+    new File("test/controller/commands/saveTo/a.pgm").delete();
+    new File("test/controller/commands/saveTo/a.ipr").delete();
+    new File("test/controller/commands/saveTo/b.ipr").delete();
 
   }
 
@@ -198,6 +201,56 @@ public class ImageProcessorCommandTests {
             "returnImage a\n", s.toString());
   }
 
+  @Test
+  public void testSaveBinaryRunCommand() {
+    ImageProcessorCommand save1 =
+            new SaveImageCommand("a", "test/controller/commands/saveTo/a.ppm", true);
+    ImageProcessorCommand save2 =
+            new SaveImageCommand("a", "test/controller/commands/saveTo/a.pgm");
+
+    ImageProcessorModel m = new ImageProcessorModelImpl();
+    Image a = new SimpleImage(new Pixel[][]{{new RGBPixel(255,255,255), new RGBPixel(0,0,0)}});
+    m.addImage("a", a);
+
+    try {
+      save1.runCommand(m);
+      save2.runCommand(m);
+      new LoadImageCommand("test/controller/commands/saveTo/a.ppm", "appm").runCommand(mock);
+      new LoadImageCommand("test/controller/commands/saveTo/a.pgm", "apgm").runCommand(mock);
+    } catch (IOException e) {
+      fail("Could not save or load binary files.");
+    }
+
+    assertEquals("addImage appm 1x2 image\n" +
+            "addImage apgm 1x2 image\n", s.toString());
+  }
+
+  @Test
+  public void testSaveIPRRunCommand() {
+    ImageProcessorCommand save1 =
+            new SaveImageCommand("a", "test/controller/commands/saveTo/a.ipr");
+    ImageProcessorCommand save2 =
+            new SaveImageCommand("a", "test/controller/commands/saveTo/b.ipr", false, true);
+
+    ImageProcessorModel m = new ImageProcessorModelImpl();
+    Image a = new SimpleImage(new Pixel[][]{{new RGBPixel(255,255,255), new RGBPixel(0,0,0)}});
+    m.addImage("a", a);
+
+    try {
+      save1.runCommand(m);
+      save2.runCommand(m);
+      new LoadImageCommand("test/controller/commands/saveTo/a.ipr", "a1").runCommand(mock);
+      new LoadImageCommand("test/controller/commands/saveTo/a.ipr", "a2", true).runCommand(mock);
+      new LoadImageCommand("test/controller/commands/saveTo/b.ipr", "b1", true).runCommand(mock);
+    } catch (IOException e) {
+      fail("Could not save or load ipr files.");
+    }
+
+    assertEquals("addImage a1 1x2 image\n" +
+            "addImage a2 1x2 image\n" +
+            "addImage b1 1x2 image\n", s.toString());
+  }
+
   @Test
   public void testBlurRunCommand() {
     ImageProcessorCommand cmd = new BlurCommand("a", "a1");
@@ -212,6 +265,19 @@ public class ImageProcessorCommandTests {
             "0.0625 0.125 0.0625 / 0.125 0.25 0.125 / 0.0625 0.125 0.0625 /\n", s.toString());
   }
 
+  @Test
+  public void testBoxBlurRunCommand() {
+    ImageProcessorCommand cmd = new BoxBlurCommand(4, "a", "a1");
+
+    try {
+      cmd.runCommand(mock);
+    } catch (IOException io) {
+      fail("Unable to run command.");
+    }
+
+    assertEquals("boxBlurImage a a1 4\n", s.toString());
+  }
+
   @Test
   public void testSharpenRunCommand() {
     ImageProcessorCommand cmd = new SharpenCommand("a", "a1");
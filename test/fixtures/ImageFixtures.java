@@ -0,0 +1,76 @@
+package fixtures;
+
+import java.util.Arrays;
+
+import model.Image;
+import model.PackedImage;
+import model.PackedRGB;
+import model.Pixel;
+import model.SimpleImage;
+
+/**
+ * Images and comparisons shared by the tests of the model and of ImageUtils.
+ */
+public final class ImageFixtures {
+
+  private ImageFixtures() {
+    // static methods only
+  }
+
+  /**
+   * Builds an image whose colors vary over every channel, to exercise clamping and rounding.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the image, stored as packed colors.
+   */
+  public static Image gradient(int width, int height) {
+    int[] rgb = new int[width * height];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = PackedRGB.pack((i * 37) % 256, (i * 101 + 13) % 256, 255 - (i * 53) % 256);
+    }
+    return new PackedImage(width, height, rgb);
+  }
+
+  /**
+   * Builds the same image as {@link #gradient}, stored as a SimpleImage.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the image, stored as pixels.
+   */
+  public static Image simpleGradient(int width, int height) {
+    return new SimpleImage(toPixels(gradient(width, height)));
+  }
+
+  /**
+   * Copies the pixels of an image into the column-major array a SimpleImage is built from.
+   * @param im the image to copy.
+   * @return the pixels of the image, indexed by column and then by row.
+   */
+  public static Pixel[][] toPixels(Image im) {
+    Pixel[][] pixels = new Pixel[im.getWidth()][im.getHeight()];
+    for (int r = 0; r < im.getHeight(); r++) {
+      for (int c = 0; c < im.getWidth(); c++) {
+        pixels[c][r] = im.getPixelAt(r, c);
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Determines whether two images have the same dimensions and the same color at every pixel.
+   * @param im1 one image.
+   * @param im2 the other image.
+   * @return true if the images have the same colors.
+   */
+  public static boolean sameColorPixelsInImage(Image im1, Image im2) {
+    if (im1.getHeight() != im2.getHeight() || im1.getWidth() != im2.getWidth()) {
+      return false;
+    }
+
+    int[] colors1 = new int[im1.getWidth() * im1.getHeight()];
+    int[] colors2 = new int[colors1.length];
+    im1.copyColors(colors1);
+    im2.copyColors(colors2);
+    return Arrays.equals(colors1, colors2);
+  }
+}
@@ -141,5 +141,14 @@ public class MockImageProcessorModel implements ImageProcessorModel {
       throw new IllegalStateException("Writing to log failed.");
     }
   }
-}
 
+  @Override
+  public void boxBlurImage(String name, String newName, int radius)
+          throws IllegalArgumentException {
+    try {
+      log.append("boxBlurImage " + name + " " + newName + " " + radius + "\n");
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to log failed.");
+    }
+  }
+}
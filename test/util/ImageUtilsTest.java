@@ -3,17 +3,38 @@ package util;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
 
 import model.ColorComponent;
 import model.Image;
+import model.MappedImage;
+import model.OffHeapImage;
+import model.PackedImage;
+import model.PackedRGB;
+import model.Parallelism;
 import model.Pixel;
 import model.RGBPixel;
+import model.RasterImage;
+import model.ScanlinePipeline;
 import model.SimpleImage;
+import model.TiledImage;
 import utils.ImageUtils;
 
+import static fixtures.ImageFixtures.gradient;
+import static fixtures.ImageFixtures.sameColorPixelsInImage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -48,6 +69,8 @@ public class ImageUtilsTest {
     new File("test/util/saveTo/im32.bmp").delete();
     new File("test/util/saveTo/im22.png").delete();
     new File("test/util/saveTo/im32.png").delete();
+    new File("test/util/saveTo/im22.ipr").delete();
+    new File("test/util/saveTo/im32.ipr").delete();
 
   }
 
@@ -89,6 +112,181 @@ public class ImageUtilsTest {
     }
   }
 
+  @Test
+  public void testReadPPMComments() {
+    try {
+      assertTrue(sameColorPixelsInImage(im22,
+              ImageUtils.readPPM("test/util/readFrom/comments.ppm")));
+    } catch (FileNotFoundException fnfE) {
+      fail("Didn't find comments.ppm");
+    }
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testReadErrorBadToken() throws FileNotFoundException {
+    ImageUtils.readPPM("test/util/readFrom/badToken.ppm");
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testReadErrorAboveMax() throws FileNotFoundException {
+    ImageUtils.readPPM("test/util/readFrom/aboveMax.ppm");
+  }
+
+  @Test(expected = InputMismatchException.class)
+  public void testReadErrorAboveMaxBinary() throws IOException {
+    Files.write(Path.of("test/util/saveTo/im22.ppm"),
+            new byte[]{'P', '6', '\n', '1', ' ', '1', '\n', '1', '0', '0', '\n',
+                50, (byte) 200, 0});
+    ImageUtils.readPPM("test/util/saveTo/im22.ppm");
+  }
+
+  /**
+   * Tests an image whose file is many times larger than the buffer it is read through, so that
+   *   tokens are split across the ends of the buffer.
+   */
+  @Test
+  public void testReadPPMLarge() {
+    Pixel[][] pixels = new Pixel[211][97];
+    for (int c = 0; c < pixels.length; c++) {
+      for (int r = 0; r < pixels[c].length; r++) {
+        int i = r * pixels.length + c;
+        pixels[c][r] = new RGBPixel((i * 37) % 256, (i * 101 + 13) % 256, 255 - (i * 53) % 256);
+      }
+    }
+    Image large = new SimpleImage(pixels);
+
+    try {
+      ImageUtils.savePPM(large, "test/util/saveTo/im22.ppm");
+      assertTrue(sameColorPixelsInImage(large, ImageUtils.readPPM("test/util/saveTo/im22.ppm")));
+    } catch (IOException ioE) {
+      fail("Could not save and read a large image.");
+    }
+  }
+
+  @Test
+  public void testReadBinary() {
+    try {
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.readPPM("test/util/readFrom/im32raw.ppm")));
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.readPPM("test/util/readFrom/im32wide.ppm")));
+      assertTrue(sameColorPixelsInImage(
+              ImageUtils.readPPM("test/util/readFrom/gray.pgm"),
+              new SimpleImage(new Pixel[][]{
+                      {new RGBPixel(0, 0, 0), new RGBPixel(128, 128, 128)},
+                      {new RGBPixel(64, 64, 64), new RGBPixel(255, 255, 255)}})));
+    } catch (FileNotFoundException fnfE) {
+      fail("Didn't find im32raw.ppm, im32wide.ppm or gray.pgm");
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadErrorTruncated() throws FileNotFoundException {
+    ImageUtils.readPPM("test/util/readFrom/truncated.ppm");
+  }
+
+  @Test
+  public void testSaveBinary() {
+    try {
+      ImageUtils.saveRawPPM(im32, "test/util/saveTo/im32.ppm");
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.readPPM("test/util/saveTo/im32.ppm")));
+      try (ScanlinePipeline rows = ImageUtils.streamPPM("test/util/saveTo/im32.ppm")) {
+        ImageUtils.saveRawPPM(rows.adjustBrightness(50), "test/util/saveTo/im22.ppm");
+      }
+      assertTrue(sameColorPixelsInImage(im32.adjustBrightness(50),
+              ImageUtils.readPPM("test/util/saveTo/im22.ppm")));
+
+      ImageUtils.savePGM(im32, "test/util/saveTo/im32.pgm");
+      assertTrue(sameColorPixelsInImage(im32.grayscale(ColorComponent.Luma),
+              ImageUtils.readPPM("test/util/saveTo/im32.pgm")));
+    } catch (IOException ioE) {
+      fail("Could not save or read binary files.");
+    } finally {
+      new File("test/util/saveTo/im32.pgm").delete();
+    }
+  }
+
+  @Test
+  public void testMapPPM() {
+    try {
+      Image mapped = ImageUtils.mapPPM("test/util/readFrom/im32raw.ppm");
+      assertTrue(mapped instanceof MappedImage);
+      assertTrue(sameColorPixelsInImage(im32, mapped));
+      assertTrue(sameColorPixelsInImage(im32.adjustBrightness(20),
+              mapped.adjustBrightness(20)));
+
+      ImageUtils.saveRawPPM(im22, "test/util/saveTo/im22.ppm");
+      assertTrue(sameColorPixelsInImage(im22, ImageUtils.mapPPM("test/util/saveTo/im22.ppm")));
+
+      //files which can not be mapped are read instead
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.mapPPM("test/util/readFrom/im32wide.ppm")));
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.mapPPM("test/util/readFrom/im32.ppm")));
+    } catch (IOException ioE) {
+      fail("Could not map or read im32 or im22.");
+    }
+  }
+
+  /**
+   * Tests saving an image mapped from a file back to that file, which must not truncate the file
+   *   while its colors are still being read from it.
+   */
+  @Test
+  public void testSaveMappedPPMToItself() throws IOException {
+    Image image = gradient(600, 500);
+    ImageUtils.saveRawPPM(image, "test/util/saveTo/im22.ppm");
+    Image mapped = ImageUtils.mapPPM("test/util/saveTo/im22.ppm");
+    ImageUtils.saveRawPPM(mapped, "test/util/saveTo/im22.ppm");
+    assertTrue(sameColorPixelsInImage(image, ImageUtils.readPPM("test/util/saveTo/im22.ppm")));
+    ImageUtils.savePPM(mapped, "test/util/saveTo/im22.ppm");
+    assertTrue(sameColorPixelsInImage(image, mapped));
+    assertTrue(sameColorPixelsInImage(image, ImageUtils.readPPM("test/util/saveTo/im22.ppm")));
+
+    String[] left = new File("test/util/saveTo").list((dir, file) -> file.endsWith(".tmp"));
+    assertEquals(0, left.length);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMapErrorTruncated() throws FileNotFoundException {
+    ImageUtils.mapPPM("test/util/readFrom/truncated.ppm");
+  }
+
+  @Test
+  public void testReadPPMTiled() {
+    try {
+      TiledImage tiled = ImageUtils.readPPMTiled("test/util/readFrom/im32.ppm", 2, 1);
+      assertTrue(sameColorPixelsInImage(im32, tiled));
+
+      ImageUtils.savePPM(tiled, "test/util/saveTo/im32.ppm");
+      assertTrue(sameColorPixelsInImage(im32,
+              ImageUtils.readPPM("test/util/saveTo/im32.ppm")));
+      tiled.close();
+    } catch (IOException ioE) {
+      fail("Could not stream im32 through tiles.");
+    }
+  }
+
+  @Test
+  public void testStreamPPM() {
+    try (ScanlinePipeline rows = ImageUtils.streamPPM("test/util/readFrom/im32.ppm")) {
+      assertEquals(2, rows.getWidth());
+      assertEquals(3, rows.getHeight());
+      ImageUtils.savePPM(rows.adjustBrightness(50).flipHorizontal(),
+              "test/util/saveTo/im32.ppm");
+    } catch (IOException ioE) {
+      fail("Could not stream im32.");
+    }
+
+    try {
+      assertTrue(sameColorPixelsInImage(im32.adjustBrightness(50).flipHorizontal(),
+              ImageUtils.readPPM("test/util/saveTo/im32.ppm")));
+    } catch (FileNotFoundException fnfE) {
+      fail("im32 not streamed to correct path.");
+    }
+  }
+
   @Test
   public void testSavePPM() {
     File file22 = new File("test/util/saveTo/im22.ppm");
@@ -261,23 +459,342 @@ public class ImageUtilsTest {
     }
   }
 
-  private boolean sameColorPixelsInImage(Image im1, Image im2) {
-    if (im1.getHeight() != im2.getHeight() || im1.getWidth() != im2.getWidth()) {
-      return false;
+  /**
+   * Tests that colors are copied exactly through each type of BufferedImage, both through their
+   *   rasters and through their color models, and out of a subimage, whose raster starts partway
+   *   through its buffer.
+   */
+  @Test
+  public void testBufferedImageTypes() {
+    Image image = gradient(23, 11);
+    int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_BGR};
+    for (int type : types) {
+      BufferedImage img = ImageUtils.toBufferedImage(image, type);
+      assertEquals(type, img.getType());
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(PackedRGB.fromPixel(image.getPixelAt(i, j)), img.getRGB(j, i) & 0xFFFFFF);
+        }
+      }
+      assertTrue(sameColorPixelsInImage(image, ImageUtils.toImage(img)));
+
+      BufferedImage sub = img.getSubimage(4, 3, 9, 5);
+      Image copied = ImageUtils.toImage(sub);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 9; j++) {
+          assertEquals(PackedRGB.fromPixel(image.getPixelAt(i + 3, j + 4)),
+                  PackedRGB.fromPixel(copied.getPixelAt(i, j)));
+        }
+      }
     }
+  }
 
-    boolean sameSoFar = true;
+  @Test
+  public void testBufferedImageGray() {
+    Image image = gradient(17, 9);
+    BufferedImage gray = ImageUtils.toBufferedImage(image, BufferedImage.TYPE_BYTE_GRAY);
+    assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+    assertTrue(sameColorPixelsInImage(image.grayscale(ColorComponent.Luma),
+            ImageUtils.toImage(gray)));
+  }
 
-    for (int r = 0; r < im1.getHeight() && sameSoFar; r++) {
-      for (int c = 0; c < im1.getWidth() && sameSoFar; c++) {
-        Pixel p1 = im1.getPixelAt(r,c);
-        Pixel p2 = im2.getPixelAt(r,c);
-        sameSoFar &= p1.getComponent(ColorComponent.Red) == p2.getComponent(ColorComponent.Red) &&
-                p1.getComponent(ColorComponent.Green) == p2.getComponent(ColorComponent.Green) &&
-                p1.getComponent(ColorComponent.Blue) == p2.getComponent(ColorComponent.Blue);
+  /**
+   * Tests that saving over a larger file leaves only the new image in it.
+   */
+  @Test
+  public void testSaveOtherOverwrites() throws IOException {
+    File file = new File("test/util/saveTo/im22.jpg");
+    ImageUtils.saveOther(gradient(64, 48), "test/util/saveTo/im22.jpg");
+    long larger = file.length();
+    ImageUtils.saveOther(im22, "test/util/saveTo/im22.jpg");
+    assertTrue(file.length() < larger);
+    assertEquals(im22.getWidth(), ImageUtils.readOther("test/util/saveTo/im22.jpg").getWidth());
+
+    file.delete();
+    ImageUtils.saveOther(im22, "test/util/saveTo/im22.jpg");
+    assertEquals(file.length(), new File("test/util/saveTo/im22.jpg").length());
+  }
+
+  /**
+   * Tests that PNG files are read back with exactly the colors saved, and that splitting the
+   *   rows between threads, and into more than one wave of blocks, writes exactly the same file.
+   */
+  @Test
+  public void testSavePNG() throws IOException {
+    int parallelism = Parallelism.getParallelism();
+    try {
+      Image image = gradient(300, 700);
+      Parallelism.setParallelism(1);
+      ImageUtils.savePNG(image, "test/util/saveTo/im22.png");
+      Parallelism.setParallelism(3);
+      Parallelism.setThreshold(0);
+      ImageUtils.savePNG(image, "test/util/saveTo/im32.png");
+
+      assertTrue(sameColorPixelsInImage(image,
+              ImageUtils.readOther("test/util/saveTo/im22.png")));
+      assertTrue(Arrays.equals(Files.readAllBytes(Path.of("test/util/saveTo/im22.png")),
+              Files.readAllBytes(Path.of("test/util/saveTo/im32.png"))));
+
+      for (Image small : new Image[]{gradient(1, 1), gradient(1, 40), gradient(2, 2)}) {
+        ImageUtils.saveOther(small, "test/util/saveTo/im22.png");
+        assertTrue(sameColorPixelsInImage(small,
+                ImageUtils.readOther("test/util/saveTo/im22.png")));
       }
+    } finally {
+      Parallelism.setParallelism(parallelism);
+      Parallelism.setThreshold(Parallelism.DEFAULT_THRESHOLD);
+    }
+  }
+
+  /**
+   * Tests that BMP files are written exactly as ImageIO writes them, with padded rows, and read
+   *   back with the colors saved, both from small files and from files large enough to map.
+   */
+  @Test
+  public void testSaveBMP() throws IOException {
+    Image image = gradient(7, 5);
+    ImageUtils.saveBMP(image, "test/util/saveTo/im22.bmp");
+    ImageIO.write(ImageUtils.toBufferedImage(image, BufferedImage.TYPE_INT_RGB), "bmp",
+            new File("test/util/saveTo/im32.bmp"));
+    assertTrue(Arrays.equals(Files.readAllBytes(Path.of("test/util/saveTo/im22.bmp")),
+            Files.readAllBytes(Path.of("test/util/saveTo/im32.bmp"))));
+    assertTrue(sameColorPixelsInImage(image, ImageUtils.readOther("test/util/saveTo/im22.bmp")));
+
+    Image large = gradient(2400, 2400);
+    ImageUtils.saveOther(large, "test/util/saveTo/im32.bmp");
+    assertTrue(sameColorPixelsInImage(large, ImageUtils.readOther("test/util/saveTo/im32.bmp")));
+  }
+
+  /**
+   * Tests reading BMP files with 32 bits to each pixel, with and without color masks, and with
+   *   rows from the top down, as well as files with a palette, which ImageIO reads.
+   */
+  @Test
+  public void testReadBMPVariants() throws IOException {
+    Image image = gradient(5, 3);
+    int[][] variants = {{24, 0, 1}, {32, 0, 0}, {32, 3, 1}, {32, 3, 0}};
+    for (int[] variant : variants) {
+      Files.write(Path.of("test/util/saveTo/im22.bmp"),
+              bmp(image, variant[0], variant[1], variant[2] == 1));
+      assertTrue(sameColorPixelsInImage(image,
+              ImageUtils.readOther("test/util/saveTo/im22.bmp")));
     }
 
-    return sameSoFar;
+    ImageIO.write(ImageUtils.toBufferedImage(image, BufferedImage.TYPE_BYTE_GRAY), "bmp",
+            new File("test/util/saveTo/im32.bmp"));
+    assertTrue(sameColorPixelsInImage(image.grayscale(ColorComponent.Luma),
+            ImageUtils.readOther("test/util/saveTo/im32.bmp")));
+  }
+
+  @Test(expected = EOFException.class)
+  public void testReadBMPTruncatedException() throws IOException {
+    byte[] file = bmp(gradient(5, 3), 24, 0, false);
+    Files.write(Path.of("test/util/saveTo/im22.bmp"), Arrays.copyOf(file, file.length - 1));
+    ImageUtils.readOther("test/util/saveTo/im22.bmp");
+  }
+
+  /**
+   * Tests that IPR files are read and mapped back with the colors saved, compressed or not, for
+   *   images of one tile and of many, with repeating and flat colors which compress, and that an
+   *   uncompressed file holds the colors as they are held in memory.
+   */
+  @Test
+  public void testSaveIPR() throws IOException {
+    Image flat = new PackedImage(900, 700, new int[900 * 700]).adjustBrightness(90);
+    for (Image image : new Image[]{gradient(7, 5), gradient(1000, 700), flat}) {
+      ImageUtils.saveIPR(image, "test/util/saveTo/im22.ipr", false);
+      ImageUtils.saveIPR(image, "test/util/saveTo/im32.ipr", true);
+      assertTrue(sameColorPixelsInImage(image, ImageUtils.readIPR("test/util/saveTo/im22.ipr")));
+      assertTrue(sameColorPixelsInImage(image, ImageUtils.readIPR("test/util/saveTo/im32.ipr")));
+      assertTrue(sameColorPixelsInImage(image, ImageUtils.mapIPR("test/util/saveTo/im22.ipr")));
+      assertTrue(sameColorPixelsInImage(image, ImageUtils.mapIPR("test/util/saveTo/im32.ipr")));
+      assertTrue(ImageUtils.mapIPR("test/util/saveTo/im22.ipr") instanceof OffHeapImage);
+    }
+    assertTrue(Files.size(Path.of("test/util/saveTo/im32.ipr")) * 50
+            < Files.size(Path.of("test/util/saveTo/im22.ipr")));
+
+    Image image = gradient(3, 2);
+    ImageUtils.saveIPR(image, "test/util/saveTo/im22.ipr", false);
+    ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(Path.of("test/util/saveTo/im22.ipr")))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals("IPR1", new String(file.array(), 0, 4));
+    assertEquals(3, file.getInt(4));
+    assertEquals(2, file.getInt(8));
+    int[] colors = new int[6];
+    image.copyColors(colors);
+    for (int i = 0; i < colors.length; i++) {
+      assertEquals(colors[i], file.getInt(64 + 4 * i));
+    }
+  }
+
+  /**
+   * Tests reading bands of rows of IPR files, within one tile and across several, and that the
+   *   same file is written whatever the number of threads.
+   */
+  @Test
+  public void testReadIPRRows() throws IOException {
+    Image image = gradient(1000, 700);
+    int parallelism = Parallelism.getParallelism();
+    try {
+      Parallelism.setParallelism(1);
+      ImageUtils.saveIPR(image, "test/util/saveTo/im22.ipr", true);
+      Parallelism.setParallelism(3);
+      Parallelism.setThreshold(1);
+      ImageUtils.saveIPR(image, "test/util/saveTo/im32.ipr", true);
+      assertTrue(Arrays.equals(Files.readAllBytes(Path.of("test/util/saveTo/im22.ipr")),
+              Files.readAllBytes(Path.of("test/util/saveTo/im32.ipr"))));
+
+      int[][] bands = {{0, 1}, {10, 20}, {60, 200}, {699, 1}, {0, 700}};
+      for (int[] band : bands) {
+        int[] expected = new int[1000 * band[1]];
+        image.copyRegion(band[0], 0, band[1], 1000, expected, 0, 1000);
+        Image rows = ImageUtils.readIPR("test/util/saveTo/im32.ipr", band[0], band[1]);
+        assertTrue(sameColorPixelsInImage(new PackedImage(1000, band[1], expected), rows));
+      }
+    } finally {
+      Parallelism.setParallelism(parallelism);
+      Parallelism.setThreshold(Parallelism.DEFAULT_THRESHOLD);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadIPRRowsException() throws IOException {
+    ImageUtils.saveIPR(gradient(5, 3), "test/util/saveTo/im22.ipr", false);
+    ImageUtils.readIPR("test/util/saveTo/im22.ipr", 2, 2);
+  }
+
+  @Test
+  public void testReadIPRChecksumException() throws IOException {
+    ImageUtils.saveIPR(gradient(40, 30), "test/util/saveTo/im22.ipr", true);
+    byte[] file = Files.readAllBytes(Path.of("test/util/saveTo/im22.ipr"));
+    //a color in the first tile, then the width in the header
+    for (int at : new int[]{file.length - 7, 4}) {
+      byte[] corrupted = file.clone();
+      corrupted[at] ^= 1;
+      Files.write(Path.of("test/util/saveTo/im32.ipr"), corrupted);
+      try {
+        ImageUtils.readIPR("test/util/saveTo/im32.ipr");
+        fail("Corrupted file was read.");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Tests saving an image mapped from an IPR file back to that file, which must not truncate the
+   *   file while its colors are still being read from it.
+   */
+  @Test
+  public void testSaveMappedIPRToItself() throws IOException {
+    Image image = gradient(600, 500);
+    ImageUtils.saveIPR(image, "test/util/saveTo/im22.ipr", false);
+    Image mapped = ImageUtils.mapIPR("test/util/saveTo/im22.ipr");
+    ImageUtils.saveIPR(mapped, "test/util/saveTo/im22.ipr", false);
+    assertTrue(sameColorPixelsInImage(image, mapped));
+    ImageUtils.saveIPR(mapped, "test/util/saveTo/im22.ipr", true);
+    assertTrue(sameColorPixelsInImage(image, ImageUtils.readIPR("test/util/saveTo/im22.ipr")));
+
+    String[] left = new File("test/util/saveTo").list((dir, file) -> file.endsWith(".tmp"));
+    assertEquals(0, left.length);
+  }
+
+  /**
+   * Tests that a PNG save which fails partway, here because the image was closed, leaves the
+   *   file it would have replaced as it was.
+   */
+  @Test
+  public void testFailedSavePNGKeepsFile() throws IOException {
+    ImageUtils.savePNG(im22, "test/util/saveTo/im22.png");
+    byte[] saved = Files.readAllBytes(Path.of("test/util/saveTo/im22.png"));
+    OffHeapImage closed = new OffHeapImage(im22);
+    closed.close();
+    try {
+      ImageUtils.savePNG(closed, "test/util/saveTo/im22.png");
+      fail("Saved a closed image.");
+    } catch (IllegalStateException e) {
+      assertTrue(Arrays.equals(saved, Files.readAllBytes(Path.of("test/util/saveTo/im22.png"))));
+    }
+
+    String[] left = new File("test/util/saveTo").list((dir, file) -> file.endsWith(".tmp"));
+    assertEquals(0, left.length);
+  }
+
+  /**
+   * Tests that a BMP save which fails partway, here because the image was closed, leaves the
+   *   file it would have replaced as it was.
+   */
+  @Test
+  public void testFailedSaveBMPKeepsFile() throws IOException {
+    ImageUtils.saveBMP(im22, "test/util/saveTo/im22.bmp");
+    byte[] saved = Files.readAllBytes(Path.of("test/util/saveTo/im22.bmp"));
+    OffHeapImage closed = new OffHeapImage(im22);
+    closed.close();
+    try {
+      ImageUtils.saveBMP(closed, "test/util/saveTo/im22.bmp");
+      fail("Saved a closed image.");
+    } catch (IllegalStateException e) {
+      assertTrue(Arrays.equals(saved, Files.readAllBytes(Path.of("test/util/saveTo/im22.bmp"))));
+    }
+
+    String[] left = new File("test/util/saveTo").list((dir, file) -> file.endsWith(".tmp"));
+    assertEquals(0, left.length);
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testReadIPRMissingException() throws IOException {
+    ImageUtils.mapIPR("test/util/saveTo/missing.ipr");
+  }
+
+  //the bytes of a BMP file with 24 or 32 bits to each pixel, with color masks if the
+  //compression is 3, and with its rows from the top down rather than the bottom up if asked
+  private byte[] bmp(Image image, int bits, int compression, boolean topDown) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int stride = (width * bits + 31) / 32 * 4;
+    int offset = compression == 3 ? 66 : 54;
+    ByteBuffer file = ByteBuffer.allocate(offset + stride * height).order(ByteOrder.LITTLE_ENDIAN);
+    file.put((byte) 'B').put((byte) 'M').putInt(file.capacity()).putInt(0).putInt(offset)
+            .putInt(40).putInt(width).putInt(topDown ? -height : height).putShort((short) 1)
+            .putShort((short) bits).putInt(compression).putInt(stride * height)
+            .putInt(0).putInt(0).putInt(0).putInt(0);
+    if (compression == 3) {
+      file.putInt(0xFF0000).putInt(0xFF00).putInt(0xFF);
+    }
+
+    for (int i = 0; i < height; i++) {
+      int row = topDown ? i : height - 1 - i;
+      file.position(offset + i * stride);
+      for (int j = 0; j < width; j++) {
+        int color = PackedRGB.fromPixel(image.getPixelAt(row, j));
+        file.put((byte) PackedRGB.blue(color)).put((byte) PackedRGB.green(color))
+                .put((byte) PackedRGB.red(color));
+        if (bits == 32) {
+          file.put((byte) 0xFF);
+        }
+      }
+    }
+    return file.array();
+  }
+
+  @Test
+  public void testMakeImageIcon() {
+    Image image = gradient(7, 5);
+    ImageIcon icon = ImageUtils.makeImageIcon(image);
+    assertEquals(7, icon.getIconWidth());
+    assertEquals(5, icon.getIconHeight());
+    assertTrue(sameColorPixelsInImage(image,
+            new RasterImage((BufferedImage) icon.getImage())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToImageNullException() {
+    ImageUtils.toImage(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testToBufferedImageNullException() {
+    ImageUtils.toBufferedImage(null, BufferedImage.TYPE_INT_RGB);
   }
 }